@@ -0,0 +1,442 @@
+import java.util.Arrays;
+
+/**
+ * Sparse edge storage for the Graph. Every vertex owns a growable row of primitive<br>
+ * neighbor indices along with the weight and movie of each edge, so memory grows<br>
+ * with the number of edges rather than the square of the number of vertices. Movies<br>
+ * are stored once in a SymbolTable, with their dates, and edges hold their ids.<br>
+ * freeze hands out read-only views that share the rows. Appending past the end of a row<br>
+ * never disturbs what a view can see, so only a row that is overwritten or shortened is<br>
+ * copied, the first time that happens after each freeze. Removing a vertex only clears<br>
+ * its own row and marks it; edges from other rows into it are skipped by cursors until<br>
+ * compact drops them and renumbers the vertices that are left.
+ */
+class AdjacencyList extends EdgeStore	{
+	//starting capacity of the vertex table
+	private static final int INITIAL_VERTICES = 16;
+	//starting capacity of a neighbor row
+	private static final int INITIAL_DEGREE = 4;
+	//neighbor indices of each vertex, rows are allocated on the first edge
+	private int[][] neighbors;
+	//weight of each edge, parallel to neighbors
+	private double[][] weights;
+	//id of the movie connecting each edge, parallel to neighbors, -1 if the edge has none
+	private int[][] movies;
+	//title and date of every movie, tagged with the date
+	private SymbolTable titles;
+	//number of used slots in each row
+	private int[] degree;
+	//number of edges into each vertex from vertices not removed, 0 for removed vertices
+	private int[] indegree;
+	//true for each vertex removed since the last compaction
+	private boolean[] removed;
+	//number of removed vertices
+	private int numRemoved;
+	//number of vertices in the table
+	private int vertices;
+	//number of directed edge slots in use
+	private int edges;
+	//number of views made by freeze so far
+	private int epoch;
+	//epoch in which each row was last copied, older rows may be shared with a view
+	private int[] owned;
+
+	/**
+	 * Constructor, makes an empty edge table.
+	 */
+	AdjacencyList()	{
+		clear();
+	}
+
+	/**
+	 * Private constructor for a view sharing the rows of another table.
+	 * @param source table to share.
+	 */
+	private AdjacencyList ( AdjacencyList source )	{
+		neighbors = source.neighbors.clone();
+		weights = source.weights.clone();
+		movies = source.movies.clone();
+		titles = source.titles.freeze();
+		degree = source.degree.clone();
+		indegree = source.indegree.clone();
+		removed = source.removed.clone();
+		numRemoved = source.numRemoved;
+		vertices = source.vertices;
+		edges = source.edges;
+		owned = new int[degree.length];
+	}
+
+	/**
+	 * Makes a view of the table as it is now. The view must only be read, and later changes<br>
+	 * to this table do not show up in it.
+	 * @return AdjacencyList view of the table.
+	 */
+	AdjacencyList freeze()	{
+		AdjacencyList view = new AdjacencyList ( this );
+		epoch++;
+		return view;
+	}
+
+	/**
+	 * Private method for copying a row that may be shared with a view before overwriting it.
+	 * @param x vertex whose row is about to change.
+	 */
+	private void own ( int x )	{
+		if ( owned[x] == epoch )	return;
+		owned[x] = epoch;
+		if ( neighbors[x] == null )	return;
+		neighbors[x] = neighbors[x].clone();
+		weights[x] = weights[x].clone();
+		movies[x] = movies[x].clone();
+	}
+
+	/**
+	 * Removes every vertex and edge from the table.
+	 */
+	void clear()	{
+		neighbors = new int[INITIAL_VERTICES][];
+		weights = new double[INITIAL_VERTICES][];
+		movies = new int[INITIAL_VERTICES][];
+		titles = new SymbolTable();
+		degree = new int[INITIAL_VERTICES];
+		indegree = new int[INITIAL_VERTICES];
+		removed = new boolean[INITIAL_VERTICES];
+		numRemoved = 0;
+		vertices = 0;
+		edges = 0;
+		epoch = 0;
+		owned = new int[INITIAL_VERTICES];
+	}
+
+	/**
+	 * Adds an empty row for a new vertex, doubling the vertex table when it is full.
+	 * @return int index of the new vertex.
+	 */
+	int addVertex()	{
+		if ( vertices == degree.length )	{
+			int capacity = degree.length * 2;
+			neighbors = Arrays.copyOf ( neighbors, capacity );
+			weights = Arrays.copyOf ( weights, capacity );
+			movies = Arrays.copyOf ( movies, capacity );
+			degree = Arrays.copyOf ( degree, capacity );
+			indegree = Arrays.copyOf ( indegree, capacity );
+			removed = Arrays.copyOf ( removed, capacity );
+			owned = Arrays.copyOf ( owned, capacity );
+		}
+		return vertices++;
+	}
+
+	/**
+	 * Removes a vertex and every edge touching it by clearing its row and marking it. The<br>
+	 * index stays taken, and edges into it stay in other rows, until compact.
+	 * @param index vertex to remove.
+	 */
+	void removeVertex ( int index )	{
+		//edges into vertices removed before this one were already taken off the count
+		int out = 0;
+		for ( int i = 0; i < degree[index]; i++ )	{
+			int y = neighbors[index][i];
+			if ( removed[y] )	continue;
+			indegree[y]--;
+			out++;
+		}
+		edges -= out + indegree[index];
+		neighbors[index] = null;
+		weights[index] = null;
+		movies[index] = null;
+		degree[index] = 0;
+		indegree[index] = 0;
+		removed[index] = true;
+		numRemoved++;
+	}
+
+	/**
+	 * @param v index of a vertex.
+	 * @return boolean true if the vertex was removed since the last compaction.
+	 */
+	boolean isRemoved ( int v )	{
+		return removed[v];
+	}
+
+	/**
+	 * @return int number of removed vertices still taking up an index.
+	 */
+	int numRemoved()	{
+		return numRemoved;
+	}
+
+	/**
+	 * Drops removed vertices and the edges into them, renumbering the rest. Every row is<br>
+	 * rebuilt rather than changed in place, since views may share the old ones.
+	 * @param map new index of each vertex, -1 for removed ones.
+	 * @param count number of vertices that are left.
+	 */
+	void compact ( int[] map, int count )	{
+		int capacity = Math.max ( INITIAL_VERTICES, count );
+		int[][] newNeighbors = new int[capacity][];
+		double[][] newWeights = new double[capacity][];
+		int[][] newMovies = new int[capacity][];
+		int[] newDegree = new int[capacity];
+		indegree = new int[capacity];
+		for ( int x = 0; x < vertices; x++ )	{
+			int to = map[x];
+			if ( to < 0 || degree[x] == 0 )	continue;
+			int kept = 0;
+			for ( int i = 0; i < degree[x]; i++ )
+				if ( map[neighbors[x][i]] >= 0 )	kept++;
+			if ( kept == 0 )	continue;
+			newNeighbors[to] = new int[Math.max ( INITIAL_DEGREE, kept )];
+			newWeights[to] = new double[newNeighbors[to].length];
+			newMovies[to] = new int[newNeighbors[to].length];
+			for ( int i = 0; i < degree[x]; i++ )	{
+				int y = map[neighbors[x][i]];
+				if ( y < 0 )	continue;
+				int slot = newDegree[to]++;
+				newNeighbors[to][slot] = y;
+				newWeights[to][slot] = weights[x][i];
+				newMovies[to][slot] = movies[x][i];
+				indegree[y]++;
+			}
+		}
+		neighbors = newNeighbors;
+		weights = newWeights;
+		movies = newMovies;
+		degree = newDegree;
+		removed = new boolean[capacity];
+		numRemoved = 0;
+		vertices = count;
+		//every row is new, so none is shared with a view
+		owned = new int[capacity];
+		Arrays.fill ( owned, epoch );
+	}
+
+	/**
+	 * Finds the slot of the edge from x to y.
+	 * @param x source vertex.
+	 * @param y destination vertex.
+	 * @return int slot in the row of x, or -1 if there is no such edge.
+	 */
+	int find ( int x, int y )	{
+		int[] row = neighbors[x];
+		for ( int i = 0; i < degree[x]; i++ )
+			if ( row[i] == y )
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Finds or stores a movie.
+	 * @param title title of the movie, may be null.
+	 * @param date date of the movie, 0 if there is none.
+	 * @return int id of the movie, -1 if there is no title.
+	 */
+	int movie ( String title, int date )	{
+		return title == null ? -1 : titles.add ( title, date );
+	}
+
+	/**
+	 * @param movie id of a movie.
+	 * @return String title of the movie.
+	 */
+	String title ( int movie )	{
+		return titles.get ( movie );
+	}
+
+	/**
+	 * @param movie id of a movie.
+	 * @return int date of the movie.
+	 */
+	int date ( int movie )	{
+		return titles.tag ( movie );
+	}
+
+	/**
+	 * Compares the title of a movie with a string without decoding the title.
+	 * @param movie id of a movie.
+	 * @param title string to compare with.
+	 * @return int negative, zero or positive as the title sorts before, with or after the string.
+	 */
+	int compareTitle ( int movie, String title )	{
+		return titles.compareTo ( movie, title );
+	}
+
+	/**
+	 * @return long bytes used by the stored movies.
+	 */
+	long titleFootprint()	{
+		return titles.footprint();
+	}
+
+	/**
+	 * Creates or overwrites the edge from x to y.
+	 * @param x source vertex.
+	 * @param y destination vertex.
+	 * @param weight weight of the edge.
+	 * @param movie id of the movie connecting the vertices, -1 if there is none.
+	 */
+	void set ( int x, int y, double weight, int movie )	{
+		int slot = find ( x, y );
+		if ( slot < 0 )
+			append ( x, y, weight, movie );
+		else
+			update ( x, slot, weight, movie );
+	}
+
+	/**
+	 * Adds an edge from x to y without looking for one already there.
+	 * @param x source vertex.
+	 * @param y destination vertex, not yet a neighbor of x.
+	 * @param weight weight of the edge.
+	 * @param movie id of the movie connecting the vertices, -1 if there is none.
+	 */
+	void append ( int x, int y, double weight, int movie )	{
+		if ( neighbors[x] == null )	{
+			neighbors[x] = new int[INITIAL_DEGREE];
+			weights[x] = new double[INITIAL_DEGREE];
+			movies[x] = new int[INITIAL_DEGREE];
+			owned[x] = epoch;
+		}
+		else if ( degree[x] == neighbors[x].length )	{
+			int capacity = degree[x] * 2;
+			neighbors[x] = Arrays.copyOf ( neighbors[x], capacity );
+			weights[x] = Arrays.copyOf ( weights[x], capacity );
+			movies[x] = Arrays.copyOf ( movies[x], capacity );
+			owned[x] = epoch;
+		}
+		//the new slot is past the end of the row in every view, so a shared row is written in place
+		int slot = degree[x]++;
+		neighbors[x][slot] = y;
+		weights[x][slot] = weight;
+		movies[x][slot] = movie;
+		indegree[y]++;
+		edges++;
+	}
+
+	/**
+	 * Overwrites the edge in one slot of a row.
+	 * @param x source vertex.
+	 * @param slot slot of the edge in the row of x.
+	 * @param weight weight of the edge.
+	 * @param movie id of the movie connecting the vertices, -1 if there is none.
+	 */
+	void update ( int x, int slot, double weight, int movie )	{
+		own ( x );
+		weights[x][slot] = weight;
+		movies[x][slot] = movie;
+	}
+
+	/**
+	 * Removes the edge from x to y, keeping the order of the remaining edges.
+	 * @param x source vertex.
+	 * @param y destination vertex.
+	 * @return boolean true if an edge was removed.
+	 */
+	boolean remove ( int x, int y )	{
+		int slot = find ( x, y );
+		if ( slot < 0 )	return false;
+		own ( x );
+		int tail = degree[x] - slot - 1;
+		System.arraycopy ( neighbors[x], slot + 1, neighbors[x], slot, tail );
+		System.arraycopy ( weights[x], slot + 1, weights[x], slot, tail );
+		System.arraycopy ( movies[x], slot + 1, movies[x], slot, tail );
+		degree[x]--;
+		indegree[y]--;
+		edges--;
+		return true;
+	}
+
+	/**
+	 * @return int number of directed edge slots in use.
+	 */
+	int numEdges()	{
+		return edges;
+	}
+
+	/**
+	 * @param x vertex to inspect.
+	 * @return int number of edge slots of x, counting edges into vertices removed since the last compaction.
+	 */
+	int degree ( int x )	{
+		return degree[x];
+	}
+
+	/**
+	 * @param x source vertex.
+	 * @param slot slot in the row of x, 0 to degree - 1.
+	 * @return int destination vertex of the edge.
+	 */
+	int neighbor ( int x, int slot )	{
+		return neighbors[x][slot];
+	}
+
+	/**
+	 * @param x source vertex.
+	 * @param slot slot in the row of x, 0 to degree - 1.
+	 * @return double weight of the edge.
+	 */
+	double weightAt ( int x, int slot )	{
+		return weights[x][slot];
+	}
+
+	/**
+	 * @param x source vertex.
+	 * @param slot slot in the row of x, 0 to degree - 1.
+	 * @return int id of the movie of the edge, -1 if the edge has none.
+	 */
+	int movieAt ( int x, int slot )	{
+		return movies[x][slot];
+	}
+
+	/**
+	 * @param x source vertex.
+	 * @param slot slot in the row of x, 0 to degree - 1.
+	 * @return int date of the edge, 0 if the edge has none.
+	 */
+	int dateAt ( int x, int slot )	{
+		int movie = movies[x][slot];
+		return movie < 0 ? 0 : titles.tag ( movie );
+	}
+
+	/**
+	 * @return EdgeCursor over the rows of this table.
+	 */
+	EdgeCursor cursor()	{
+		return new Cursor();
+	}
+
+	/**
+	 * Walks one row of the table in insertion order.
+	 */
+	private class Cursor extends EdgeCursor	{
+		//row being walked
+		private int vertex;
+		//slot of the current edge
+		private int slot;
+
+		void reset ( int vertex )	{
+			this.vertex = vertex;
+			slot = -1;
+		}
+
+		int next()	{
+			while ( ++slot < degree[vertex] )	{
+				int y = neighbors[vertex][slot];
+				if ( numRemoved == 0 || !removed[y] )	return y;
+			}
+			return -1;
+		}
+
+		double weight()	{
+			return weights[vertex][slot];
+		}
+
+		String movie()	{
+			int movie = movies[vertex][slot];
+			return movie < 0 ? null : titles.get ( movie );
+		}
+
+		int date()	{
+			return dateAt ( vertex, slot );
+		}
+	}
+}
@@ -0,0 +1,261 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers long lists of actor pairs without the menu, one pair per line as "one,two" or with<br>
+ * a tab between the actors. Pairs are read in chunks, and the pairs of a chunk that share a<br>
+ * first actor are grouped. A group is answered by a single Graph.separation search from that<br>
+ * actor when that is cheaper than a bidirectional bfs per pair, which only meets in the<br>
+ * middle and so takes far less than searching the whole graph. Which is cheaper is decided<br>
+ * from the time each kind of search has taken so far, since it depends on the graph.<br>
+ * The groups of a chunk are split across a ForkJoinPool, and once they are all done the<br>
+ * chunk is written out in the order it was read, so the output lines up with the input<br>
+ * however the work was spread. Each output line is the two actors and the number of edges<br>
+ * between them, "none" if there is no path, "unknown" if either actor is not in the graph<br>
+ * or "invalid" if the line does not hold two actors.
+ */
+public class BatchQuery	{
+	//pairs read before a chunk is answered
+	private static final int CHUNK = 65536;
+	//fewest pairs of a group that are ever answered with one search
+	private static final int MIN_GROUP = 8;
+	//pairs below which a range of groups is not split across the pool
+	private static final int LEAF = 64;
+	//graph being searched, each chunk searches its latest committed view
+	private Graph graph;
+	//threads running the searches
+	private ForkJoinPool pool;
+	//most pairs in a chunk
+	private int chunk;
+	//pairs answered so far
+	private long pairs;
+	//time spent and searches run answering one pair with bfs, and a whole group with separation
+	private AtomicLong pairNanos = new AtomicLong();
+	private AtomicLong pairSearches = new AtomicLong();
+	private AtomicLong groupNanos = new AtomicLong();
+	private AtomicLong groupSearches = new AtomicLong();
+
+	/**
+	 * Constructor, uses one thread per processor.
+	 * @param graph graph to search.
+	 */
+	public BatchQuery ( Graph graph )	{
+		this ( graph, Runtime.getRuntime().availableProcessors(), CHUNK );
+	}
+
+	/**
+	 * Constructor, makes a new BatchQuery.
+	 * @param graph graph to search.
+	 * @param threads number of threads to search with.
+	 * @param chunk most pairs to hold at once, a larger chunk finds more pairs sharing an actor.
+	 */
+	public BatchQuery ( Graph graph, int threads, int chunk )	{
+		this.graph = graph;
+		pool = new ForkJoinPool ( Math.max ( 1, threads ) );
+		this.chunk = Math.max ( 1, chunk );
+	}
+
+	/**
+	 * Answers every pair from a reader, then prints the throughput to standard error.
+	 * @param in pairs to answer, one per line, blank lines are skipped.
+	 * @param out where the answers go.
+	 * @throws IOException if the pairs cannot be read.
+	 */
+	public void run ( BufferedReader in, PrintStream out ) throws IOException	{
+		long start = System.nanoTime();
+		ArrayList lines = new ArrayList();
+		try	{
+			for ( String line = in.readLine(); line != null; line = in.readLine() )	{
+				line = line.trim();
+				if ( line.length() == 0 )	continue;
+				lines.add ( line );
+				if ( lines.size() == chunk )	{
+					answer ( lines, out );
+					lines.clear();
+				}
+			}
+			if ( !lines.isEmpty() )
+				answer ( lines, out );
+		}
+		finally	{
+			pool.shutdown();
+		}
+		out.flush();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.err.println ( "***Answered " + pairs + " pairs in " + String.format ( "%.2f", seconds ) + "s (" + (long)(pairs / seconds)
+				+ " pairs/sec) on " + pool.getParallelism() + " threads, " + groupSearches.get() + " actors searched for many pairs at once and "
+				+ pairSearches.get() + " pairs searched alone" );
+	}
+
+	/**
+	 * Private method for answering and writing one chunk of lines.
+	 */
+	private void answer ( ArrayList lines, PrintStream out )	{
+		Graph view = graph.view();
+		String[][] pair = new String[lines.size()][];
+		String[] answers = new String[lines.size()];
+		//the lines of each first actor, in the order the actors first appear
+		HashMap bySource = new HashMap();
+		ArrayList sources = new ArrayList();
+		for ( int x = 0; x < pair.length; x++ )	{
+			pair[x] = split ( (String)lines.get ( x ) );
+			if ( pair[x] == null )	{
+				answers[x] = "invalid";
+				continue;
+			}
+			ArrayList group = (ArrayList)bySource.get ( pair[x][0] );
+			if ( group == null )	{
+				group = new ArrayList();
+				bySource.put ( pair[x][0], group );
+				sources.add ( group );
+			}
+			group.add ( Integer.valueOf ( x ) );
+		}
+		int[][] groups = new int[sources.size()][];
+		//number of pairs in the groups before each group
+		int[] before = new int[groups.length + 1];
+		for ( int g = 0; g < groups.length; g++ )	{
+			ArrayList group = (ArrayList)sources.get ( g );
+			groups[g] = new int[group.size()];
+			for ( int i = 0; i < groups[g].length; i++ )
+				groups[g][i] = ((Integer)group.get ( i )).intValue();
+			before[g + 1] = before[g] + groups[g].length;
+		}
+		pool.invoke ( new Search ( view, pair, groups, before, answers, 0, groups.length ) );
+		for ( int x = 0; x < pair.length; x++ )	{
+			if ( pair[x] == null )
+				out.println ( lines.get ( x ) + "\t\t" + answers[x] );
+			else
+				out.println ( pair[x][0] + "\t" + pair[x][1] + "\t" + answers[x] );
+		}
+		pairs += pair.length;
+	}
+
+	/**
+	 * Private method for choosing how to answer a group. Once bfs has been timed the first<br>
+	 * large group samples a separation search, after that the cheaper of the two is used.
+	 * @param targets number of pairs in the group.
+	 * @return boolean true to answer the group with one separation search.
+	 */
+	private boolean shared ( int targets )	{
+		if ( targets < MIN_GROUP )	return false;
+		long groups = groupSearches.get();
+		long singles = pairSearches.get();
+		if ( singles == 0 )	return false;
+		if ( groups == 0 )	return true;
+		return targets * (pairNanos.get() / singles) > groupNanos.get() / groups;
+	}
+
+	/**
+	 * Splits a line into its two actors, at a tab if it has one and a comma otherwise.
+	 * @param line line of input.
+	 * @return String[] the two actors, null if the line does not hold exactly two.
+	 */
+	static String[] split ( String line )	{
+		String[] actors = line.indexOf ( '\t' ) >= 0 ? line.split ( "\t" ) : line.split ( "," );
+		if ( actors.length != 2 )	return null;
+		actors[0] = actors[0].trim();
+		actors[1] = actors[1].trim();
+		if ( actors[0].length() == 0 || actors[1].length() == 0 )	return null;
+		return actors;
+	}
+
+	/**
+	 * Answers a range of groups, halving the range across the pool until it holds one group<br>
+	 * or fewer than LEAF pairs.
+	 */
+	private class Search extends RecursiveAction	{
+		//tasks are never serialized, RecursiveAction is only Serializable by inheritance
+		private static final long serialVersionUID = 1L;
+		private Graph graph;
+		private String[][] pair;
+		private int[][] groups;
+		private int[] before;
+		private String[] answers;
+		private int from;
+		private int to;
+
+		Search ( Graph graph, String[][] pair, int[][] groups, int[] before, String[] answers, int from, int to )	{
+			this.graph = graph;
+			this.pair = pair;
+			this.groups = groups;
+			this.before = before;
+			this.answers = answers;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute()	{
+			if ( to - from > 1 && before[to] - before[from] >= LEAF )	{
+				int middle = (from + to) >>> 1;
+				invokeAll ( new Search ( graph, pair, groups, before, answers, from, middle ),
+						new Search ( graph, pair, groups, before, answers, middle, to ) );
+				return;
+			}
+			for ( int g = from; g < to; g++ )	{
+				int[] lines = groups[g];
+				int done = 0;
+				//until bfs has been timed, a few pairs of a large group are searched alone first
+				if ( lines.length >= MIN_GROUP && pairSearches.get() == 0 )
+					for ( ; done < MIN_GROUP; done++ )
+						alone ( lines[done] );
+				if ( shared ( lines.length - done ) )
+					together ( lines, done );
+				else
+					for ( int i = done; i < lines.length; i++ )
+						alone ( lines[i] );
+			}
+		}
+
+		/**
+		 * Private method for answering the rest of a group with one separation search.
+		 * @param lines lines of the group.
+		 * @param from first line not answered yet.
+		 */
+		private void together ( int[] lines, int from )	{
+			long start = System.nanoTime();
+			Comparable[] targets = new Comparable[lines.length - from];
+			for ( int i = 0; i < targets.length; i++ )
+				targets[i] = pair[lines[from + i]][1];
+			int[] found;
+			try	{
+				found = graph.separation ( pair[lines[0]][0], targets );
+			}
+			catch ( GraphException exception )	{
+				for ( int i = from; i < lines.length; i++ )
+					answers[lines[i]] = "unknown";
+				return;
+			}
+			for ( int i = 0; i < targets.length; i++ )	{
+				if ( found[i] >= 0 )
+					answers[lines[from + i]] = String.valueOf ( found[i] );
+				else
+					answers[lines[from + i]] = graph.contains ( targets[i] ) ? "none" : "unknown";
+			}
+			groupNanos.addAndGet ( System.nanoTime() - start );
+			groupSearches.incrementAndGet();
+		}
+
+		/**
+		 * Private method for answering one pair with a bfs.
+		 */
+		private void alone ( int line )	{
+			long start = System.nanoTime();
+			ArrayList path;
+			try	{
+				path = graph.bfs ( pair[line][0], pair[line][1] );
+			}
+			catch ( GraphException exception )	{
+				answers[line] = "unknown";
+				return;
+			}
+			answers[line] = path.isEmpty() ? "none" : String.valueOf ( path.size() - 1 );
+			pairNanos.addAndGet ( System.nanoTime() - start );
+			pairSearches.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,436 @@
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks Graph construction and every query at several scales of CoStarGenerator data,<br>
+ * the same way each time so runs can be compared. Each benchmark is warmed up, then run in<br>
+ * batches for a fixed time, and reports the time, heap allocated and garbage collections per<br>
+ * operation. Results are written as CSV, or JSON when the file name ends in ".json", and a<br>
+ * CSV from an earlier run can be given to print the change of every benchmark.
+ * Usage: java BenchmarkSuite [-scales 1000,10000] [-casts uniform|skewed] [-years 1920-2008]
+ *        [-seconds 1] [-o results.csv] [-compare baseline.csv]
+ */
+public class BenchmarkSuite	{
+	//seed of every generated graph and query, so runs are comparable
+	private static final long SEED = 42;
+	//answers of the benchmarks are added up here, so the JIT cannot drop the work
+	private static volatile long sink;
+	//columns of the results
+	private static final String HEADER = "scale,vertices,edges,casts,benchmark,ops,ns_per_op,bytes_per_op,gc_count,gc_ms";
+	//actor counts to benchmark
+	private int[] scales = { 1000, 10000 };
+	//cast size distribution of the generated movies
+	private int castSizes = CoStarGenerator.UNIFORM;
+	//range of release years of the generated movies
+	private int firstYear = 1920;
+	private int lastYear = 2008;
+	//time spent warming up and measuring each benchmark
+	private long warmup = 500000000L;
+	private long measure = 1000000000L;
+	//rows of results, one per benchmark and scale
+	private ArrayList rows = new ArrayList();
+	//reports the bytes allocated by a thread, null if the JVM cannot
+	private com.sun.management.ThreadMXBean allocation;
+
+	/**
+	 * Constructor, makes a new BenchmarkSuite.
+	 */
+	public BenchmarkSuite()	{
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if ( bean instanceof com.sun.management.ThreadMXBean )	{
+			allocation = (com.sun.management.ThreadMXBean)bean;
+			if ( allocation.isThreadAllocatedMemorySupported() )
+				allocation.setThreadAllocatedMemoryEnabled ( true );
+			else
+				allocation = null;
+		}
+	}
+
+	/**
+	 * One benchmarked operation. setup runs untimed before every batch of operations.
+	 */
+	private abstract static class Benchmark	{
+		String name;
+		int batch;
+
+		/**
+		 * @param name name of the benchmark in the results.
+		 * @param batch number of operations timed after each setup.
+		 */
+		Benchmark ( String name, int batch )	{
+			this.name = name;
+			this.batch = batch;
+		}
+
+		void setup()	{}
+
+		/**
+		 * Runs the operation once.
+		 * @param i number of the operation within its batch.
+		 * @return long a result of the operation.
+		 */
+		abstract long run ( int i );
+	}
+
+	/**
+	 * Runs every benchmark at every scale.
+	 */
+	public void run()	{
+		System.out.println ( "scale\tbenchmark\tops\tns/op\t\tbytes/op\tgc" );
+		for ( int s = 0; s < scales.length; s++ )
+			scale ( scales[s] );
+	}
+
+	/**
+	 * Runs every benchmark against one generated graph.
+	 * @param actors number of actors to generate.
+	 */
+	private void scale ( final int actors )	{
+		final CoStarGenerator gen = new CoStarGenerator ( SEED, actors, actors / 4, 4, 12, firstYear, lastYear, castSizes );
+		final Graph graph = new Graph();
+		gen.load ( graph );
+		final int n = graph.numVertices();
+		final String[] keys = new String[1 << 12];
+		final String[] others = new String[keys.length];
+		Random random = new Random ( SEED );
+		for ( int x = 0; x < keys.length; x++ )	{
+			keys[x] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+			others[x] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+		}
+		final int mask = keys.length - 1;
+		List list = new ArrayList();
+
+		//adds every actor, then every pair of co-stars one edge at a time
+		list.add ( new Benchmark ( "load", 1 )	{
+			long run ( int i )	{
+				Graph fresh = new Graph();
+				for ( int m = 0; m < gen.numMovies(); m++ )	{
+					String[] cast = gen.cast ( m );
+					String title = gen.title ( m );
+					String date = String.valueOf ( gen.year ( m ) );
+					for ( int x = 0; x < cast.length; x++ )	{
+						try	{
+							fresh.addVertex ( new GraphNode ( cast[x] ) );
+						}
+						catch ( GraphException exception )	{}
+					}
+					for ( int x = 0; x < cast.length; x++ )
+						for ( int y = x + 1; y < cast.length; y++ )	{
+							try	{
+								fresh.addEdge ( cast[x], cast[y], title, date );
+							}
+							catch ( GraphException exception )	{}
+						}
+				}
+				return fresh.numEdges();
+			}
+		} );
+		list.add ( new Benchmark ( "findIndex", 1 << 16 )	{
+			long run ( int i )	{
+				return graph.getVertex ( keys[i & mask] ).hashCode();
+			}
+		} );
+		list.add ( new Benchmark ( "bft", 1 )	{
+			long run ( int i )	{
+				return graph.bft ( keys[i & mask] ).size();
+			}
+		} );
+		list.add ( new Benchmark ( "bfs", 64 )	{
+			long run ( int i )	{
+				return graph.bfs ( keys[i & mask], others[i & mask] ).size();
+			}
+		} );
+		//only through movies up to the middle of the years, once the year index is sorted
+		final int middle = (firstYear + lastYear) / 2;
+		list.add ( new Benchmark ( "bfsYears", 64 )	{
+			long run ( int i )	{
+				return graph.bfs ( keys[i & mask], others[i & mask], firstYear, middle ).size();
+			}
+		} );
+		list.add ( new Benchmark ( "dfs", 1 )	{
+			long run ( int i )	{
+				return graph.dfs ( keys[i & mask] ).size();
+			}
+		} );
+		list.add ( new Benchmark ( "shortestPath", 1 )	{
+			long run ( int i )	{
+				try	{
+					return graph.shortestPath ( keys[i & mask], others[i & mask] ).size();
+				}
+				catch ( GraphException exception )	{
+					return -1;
+				}
+			}
+		} );
+		//searches from sixteen landmarks, leaving the oracle on the graph for the next two
+		list.add ( new Benchmark ( "buildOracle", 1 )	{
+			long run ( int i )	{
+				graph.buildOracle ( 16 );
+				return graph.hasOracle() ? 1 : 0;
+			}
+		} );
+		list.add ( new Benchmark ( "distanceBounds", 1 << 12 )	{
+			void setup()	{
+				if ( !graph.hasOracle() )	graph.buildOracle ( 16 );
+			}
+
+			long run ( int i )	{
+				int[] bounds = graph.distanceBounds ( keys[i & mask], others[i & mask] );
+				return bounds[0] + bounds[1];
+			}
+		} );
+		list.add ( new Benchmark ( "shortestPathALT", 1 )	{
+			void setup()	{
+				if ( !graph.hasOracle() )	graph.buildOracle ( 16 );
+			}
+
+			long run ( int i )	{
+				try	{
+					return graph.shortestPath ( keys[i & mask], others[i & mask] ).size();
+				}
+				catch ( GraphException exception )	{
+					return -1;
+				}
+			}
+		} );
+		list.add ( new Benchmark ( "diameter", 1 )	{
+			long run ( int i )	{
+				return (long)graph.diameter();
+			}
+		} );
+		list.add ( new Benchmark ( "isConnected", 1 )	{
+			long run ( int i )	{
+				return graph.isConnected() ? 1 : 0;
+			}
+		} );
+		list.add ( new Benchmark ( "numEdges", 1 << 16 )	{
+			long run ( int i )	{
+				return graph.numEdges();
+			}
+		} );
+		//removes distinct vertices from a fresh copy of the graph
+		list.add ( new Benchmark ( "removeVertex", Math.min ( 100, n ) )	{
+			Graph copy;
+			String[] victims;
+
+			void setup()	{
+				copy = new Graph();
+				gen.load ( copy );
+				victims = new String[batch];
+				Random pick = new Random ( SEED );
+				for ( int x = 0; x < batch; x++ )	{
+					String key;
+					do	{
+						key = (String)copy.getSearchKey ( pick.nextInt ( n ) );
+						for ( int y = 0; y < x && key != null; y++ )
+							if ( victims[y].equals ( key ) )	key = null;
+					} while ( key == null );
+					victims[x] = key;
+				}
+			}
+
+			long run ( int i )	{
+				return copy.removeVertex ( victims[i] ).hashCode();
+			}
+		} );
+		//compacts a fresh copy of the graph after a tenth of its vertices were removed
+		list.add ( new Benchmark ( "compact", 1 )	{
+			Graph copy;
+
+			void setup()	{
+				copy = new Graph();
+				gen.load ( copy );
+				Random pick = new Random ( SEED );
+				for ( int x = 0; x < n / 10; x++ )
+					copy.removeVertex ( copy.getSearchKey ( pick.nextInt ( copy.numVertices() ) ) );
+			}
+
+			long run ( int i )	{
+				copy.compact();
+				return copy.numVertices();
+			}
+		} );
+
+		for ( int x = 0; x < list.size(); x++ )
+			measure ( actors, graph, (Benchmark)list.get ( x ) );
+	}
+
+	/**
+	 * Warms up one benchmark, then runs batches of it until the measuring time is up.
+	 * @param actors actor count of the scale.
+	 * @param graph graph of the scale, for its size.
+	 * @param benchmark benchmark to run.
+	 */
+	private void measure ( int actors, Graph graph, Benchmark benchmark )	{
+		long total = 0;
+		for ( long stop = System.nanoTime() + warmup; System.nanoTime() < stop; )	{
+			benchmark.setup();
+			for ( int i = 0; i < benchmark.batch; i++ )
+				total += benchmark.run ( i );
+		}
+		long ops = 0;
+		long nanos = 0;
+		long bytes = 0;
+		long[] gc = collections();
+		while ( nanos < measure )	{
+			benchmark.setup();
+			long allocated = allocated();
+			long start = System.nanoTime();
+			for ( int i = 0; i < benchmark.batch; i++ )
+				total += benchmark.run ( i );
+			nanos += System.nanoTime() - start;
+			bytes += allocated() - allocated;
+			ops += benchmark.batch;
+		}
+		long[] after = collections();
+		sink += total;
+		double perOp = (double)nanos / ops;
+		double bytesPerOp = allocation == null ? -1 : (double)bytes / ops;
+		rows.add ( new String[] { String.valueOf ( actors ), String.valueOf ( graph.numVertices() ), String.valueOf ( graph.numEdges() ),
+				castSizes == CoStarGenerator.SKEWED ? "skewed" : "uniform", benchmark.name, String.valueOf ( ops ),
+				String.format ( "%.1f", perOp ), String.format ( "%.1f", bytesPerOp ),
+				String.valueOf ( after[0] - gc[0] ), String.valueOf ( after[1] - gc[1] ) } );
+		System.out.println ( actors + "\t" + benchmark.name + ( benchmark.name.length() < 8 ? "\t\t" : "\t" ) + ops + "\t"
+				+ String.format ( "%-12.1f\t%-12.1f", perOp, bytesPerOp ) + "\t" + (after[0] - gc[0]) );
+	}
+
+	/**
+	 * @return long bytes allocated by the calling thread so far, 0 if unknown.
+	 */
+	private long allocated()	{
+		return allocation == null ? 0 : allocation.getThreadAllocatedBytes ( Thread.currentThread().getId() );
+	}
+
+	/**
+	 * @return long[] number of garbage collections so far and milliseconds spent in them.
+	 */
+	private static long[] collections()	{
+		long[] gc = new long[2];
+		List beans = ManagementFactory.getGarbageCollectorMXBeans();
+		for ( int x = 0; x < beans.size(); x++ )	{
+			GarbageCollectorMXBean bean = (GarbageCollectorMXBean)beans.get ( x );
+			gc[0] += Math.max ( 0, bean.getCollectionCount() );
+			gc[1] += Math.max ( 0, bean.getCollectionTime() );
+		}
+		return gc;
+	}
+
+	/**
+	 * Writes the results, as JSON if the file name ends in ".json" and CSV otherwise.
+	 * @param filename file to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void write ( String filename ) throws IOException	{
+		PrintWriter out = new PrintWriter ( new BufferedWriter ( new FileWriter ( filename ) ) );
+		String[] columns = HEADER.split ( "," );
+		if ( filename.endsWith ( ".json" ) )	{
+			out.println ( "[" );
+			for ( int r = 0; r < rows.size(); r++ )	{
+				String[] row = (String[])rows.get ( r );
+				out.print ( "  {" );
+				for ( int c = 0; c < columns.length; c++ )	{
+					boolean text = columns[c].equals ( "casts" ) || columns[c].equals ( "benchmark" );
+					out.print ( ( c > 0 ? ", " : "" ) + "\"" + columns[c] + "\": " + ( text ? "\"" + row[c] + "\"" : row[c] ) );
+				}
+				out.println ( r < rows.size() - 1 ? "}," : "}" );
+			}
+			out.println ( "]" );
+		}
+		else	{
+			out.println ( HEADER );
+			for ( int r = 0; r < rows.size(); r++ )
+				out.println ( String.join ( ",", (String[])rows.get ( r ) ) );
+		}
+		out.close();
+	}
+
+	/**
+	 * Prints how every benchmark changed since a CSV written by an earlier run.
+	 * @param filename CSV of the earlier run.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public void compare ( String filename ) throws IOException	{
+		HashMap before = new HashMap();
+		BufferedReader in = new BufferedReader ( new FileReader ( filename ) );
+		in.readLine();
+		for ( String line = in.readLine(); line != null; line = in.readLine() )	{
+			String[] row = line.split ( "," );
+			before.put ( row[0] + "," + row[3] + "," + row[4], row );
+		}
+		in.close();
+		System.out.println ( "scale\tbenchmark\ttime\t\tallocation" );
+		for ( int r = 0; r < rows.size(); r++ )	{
+			String[] row = (String[])rows.get ( r );
+			String[] old = (String[])before.get ( row[0] + "," + row[3] + "," + row[4] );
+			if ( old == null )	continue;
+			System.out.println ( row[0] + "\t" + row[4] + ( row[4].length() < 8 ? "\t\t" : "\t" ) + change ( old[6], row[6] ) + "\t\t" + change ( old[7], row[7] ) );
+		}
+	}
+
+	/**
+	 * @return String of the change from one measurement to another as a percentage.
+	 */
+	private static String change ( String before, String after )	{
+		double was = Double.parseDouble ( before );
+		double now = Double.parseDouble ( after );
+		if ( was <= 0 )	return "-";
+		return String.format ( "%+.1f%%", 100 * (now - was) / was );
+	}
+
+	public static void main ( String[] args ) throws IOException	{
+		BenchmarkSuite suite = new BenchmarkSuite();
+		String output = null;
+		String baseline = null;
+		for ( int x = 0; x < args.length; x += 2 )	{
+			if ( x + 1 >= args.length )	{
+				usage();
+			}
+			else if ( args[x].equals ( "-scales" ) )	{
+				String[] scales = args[x + 1].split ( "," );
+				suite.scales = new int[scales.length];
+				for ( int s = 0; s < scales.length; s++ )
+					suite.scales[s] = Integer.parseInt ( scales[s].trim() );
+			}
+			else if ( args[x].equals ( "-casts" ) )	{
+				suite.castSizes = args[x + 1].equals ( "skewed" ) ? CoStarGenerator.SKEWED : CoStarGenerator.UNIFORM;
+			}
+			else if ( args[x].equals ( "-years" ) )	{
+				String[] years = args[x + 1].split ( "-" );
+				suite.firstYear = Integer.parseInt ( years[0] );
+				suite.lastYear = Integer.parseInt ( years[years.length - 1] );
+			}
+			else if ( args[x].equals ( "-seconds" ) )	{
+				suite.measure = (long)(Double.parseDouble ( args[x + 1] ) * 1e9);
+				suite.warmup = suite.measure / 2;
+			}
+			else if ( args[x].equals ( "-o" ) )	{
+				output = args[x + 1];
+			}
+			else if ( args[x].equals ( "-compare" ) )	{
+				baseline = args[x + 1];
+			}
+			else	{
+				usage();
+			}
+		}
+		suite.run();
+		if ( output != null )
+			suite.write ( output );
+		if ( baseline != null )
+			suite.compare ( baseline );
+	}
+
+	/**
+	 * Prints the command line options and quits.
+	 */
+	private static void usage()	{
+		System.out.println ( "Usage: java BenchmarkSuite [-scales 1000,10000] [-casts uniform|skewed] [-years 1920-2008]" );
+		System.out.println ( "       [-seconds 1] [-o results.csv|results.json] [-compare baseline.csv]" );
+		System.exit ( 1 );
+	}
+}
@@ -0,0 +1,166 @@
+import java.io.*;
+import java.util.Random;
+
+/**
+ * Produces seeded synthetic movie data shaped like the movie list input files.<br>
+ * Actors are drawn with a popularity skew, so a few actors appear in many movies<br>
+ * and most appear in only a handful, as in the real data.
+ */
+public class CoStarGenerator	{
+	//every cast size between the smallest and largest is as likely
+	public static final int UNIFORM = 0;
+	//most casts are near the smallest size and a few are near the largest
+	public static final int SKEWED = 1;
+	//seed for the random source, the same seed always gives the same movies
+	private long seed;
+	//number of distinct actors to draw from
+	private int actors;
+	//number of movies to produce
+	private int movies;
+	//smallest and largest cast size
+	private int minCast;
+	private int maxCast;
+	//range of release years
+	private int firstYear;
+	private int lastYear;
+	//how cast sizes are drawn, UNIFORM or SKEWED
+	private int castSizes;
+	//release year of each movie, filled on first use
+	private int[] years;
+	//actor indices of each cast, filled on first use
+	private int[][] casts;
+
+	/**
+	 * Constructor, describes the data to generate.
+	 * @param seed seed for the random source.
+	 * @param actors number of distinct actors.
+	 * @param movies number of movies.
+	 * @param minCast smallest cast size.
+	 * @param maxCast largest cast size.
+	 * @param firstYear earliest release year.
+	 * @param lastYear latest release year.
+	 */
+	public CoStarGenerator ( long seed, int actors, int movies, int minCast, int maxCast, int firstYear, int lastYear )	{
+		this ( seed, actors, movies, minCast, maxCast, firstYear, lastYear, UNIFORM );
+	}
+
+	/**
+	 * Constructor, describes the data to generate with a choice of cast size distribution.
+	 * @param seed seed for the random source.
+	 * @param actors number of distinct actors.
+	 * @param movies number of movies.
+	 * @param minCast smallest cast size.
+	 * @param maxCast largest cast size.
+	 * @param firstYear earliest release year.
+	 * @param lastYear latest release year.
+	 * @param castSizes how cast sizes are drawn, UNIFORM or SKEWED.
+	 */
+	public CoStarGenerator ( long seed, int actors, int movies, int minCast, int maxCast, int firstYear, int lastYear, int castSizes )	{
+		this.seed = seed;
+		this.actors = actors;
+		this.movies = movies;
+		this.minCast = minCast;
+		this.maxCast = maxCast;
+		this.firstYear = firstYear;
+		this.lastYear = lastYear;
+		this.castSizes = castSizes;
+	}
+
+	/**
+	 * @param index actor number, 0 to actors - 1.
+	 * @return String name of the actor.
+	 */
+	public String actorName ( int index )	{
+		return "Actor " + index;
+	}
+
+	/**
+	 * @param index movie number, 0 to movies - 1.
+	 * @return String title of the movie.
+	 */
+	public String title ( int index )	{
+		return "Movie " + index;
+	}
+
+	/**
+	 * @return int number of movies produced.
+	 */
+	public int numMovies()	{
+		return movies;
+	}
+
+	/**
+	 * @param index movie number.
+	 * @return int release year of the movie.
+	 */
+	public int year ( int index )	{
+		generate();
+		return years[index];
+	}
+
+	/**
+	 * @param index movie number.
+	 * @return String[] names of the cast of the movie.
+	 */
+	public String[] cast ( int index )	{
+		generate();
+		String[] names = new String[casts[index].length];
+		for ( int x = 0; x < names.length; x++ )
+			names[x] = actorName ( casts[index][x] );
+		return names;
+	}
+
+	/**
+	 * Draws every movie from the random source, once.
+	 */
+	private void generate()	{
+		if ( casts != null )	return;
+		Random random = new Random ( seed );
+		years = new int[movies];
+		casts = new int[movies][];
+		for ( int m = 0; m < movies; m++ )	{
+			years[m] = firstYear + random.nextInt ( lastYear - firstYear + 1 );
+			int extra = random.nextInt ( maxCast - minCast + 1 );
+			if ( castSizes == SKEWED )	{
+				double r = random.nextDouble();
+				extra = (int)((maxCast - minCast + 1) * r * r * r);
+			}
+			int[] cast = new int[minCast + extra];
+			int n = 0;
+			while ( n < cast.length )	{
+				double r = random.nextDouble();
+				int actor = (int)(actors * r * r);
+				boolean repeat = false;
+				for ( int x = 0; x < n && !repeat; x++ )
+					repeat = cast[x] == actor;
+				if ( !repeat )	cast[n++] = actor;
+			}
+			casts[m] = cast;
+		}
+	}
+
+	/**
+	 * Inserts every movie into a graph the same way GraphDriver reads an input file.
+	 * @param graph graph to fill.
+	 */
+	public void load ( Graph graph )	{
+		for ( int m = 0; m < numMovies(); m++ )
+			graph.addMovie ( title ( m ), year ( m ), cast ( m ) );
+	}
+
+	/**
+	 * Writes every movie in the movie list input format.
+	 * @param out destination of the text.
+	 * @throws IOException if the text cannot be written.
+	 */
+	public void write ( Writer out ) throws IOException	{
+		for ( int m = 0; m < numMovies(); m++ )	{
+			out.write ( title ( m ) + " (" + year ( m ) + ")\n" );
+			String[] actor = cast ( m );
+			for ( int x = 0; x < actor.length; x++ )
+				out.write ( actor[x] + "\n" );
+			out.write ( "\n" );
+		}
+		out.flush();
+	}
+}
@@ -0,0 +1,235 @@
+import java.util.Arrays;
+
+/**
+ * Union-find over vertex indices, kept up to date as vertices and edges are added so two<br>
+ * vertices can be told apart as unconnected without searching. Edges are joined without<br>
+ * regard to direction, so directed graphs get their weakly connected components. Removing<br>
+ * edges or vertices can split a component, which union-find cannot follow, so those<br>
+ * changes only mark the index stale and it is rebuilt from the edges the next time it is<br>
+ * read, except a vertex with at most one edge, which cannot be the only link between two<br>
+ * others and is simply taken out of its component. freeze hands out read-only views that<br>
+ * share the arrays until the original next changes, which copies them.
+ */
+class ComponentIndex	{
+	//starting capacity of the tables
+	private static final int INITIAL_SIZE = 16;
+	//the vertex each vertex points to, roots point to themselves
+	private int[] parent;
+	//number of vertices under each root, 0 for removed vertices
+	private int[] count;
+	//number of vertex indices
+	private int size;
+	//number of components, not counting removed vertices
+	private int sets;
+	//true if vertices or edges were removed since the last rebuild
+	private volatile boolean stale;
+	//true if the arrays are shared with a view made by freeze
+	private boolean shared;
+	//true if this is a read-only view
+	private boolean frozen;
+
+	/**
+	 * Constructor, makes an empty index.
+	 */
+	ComponentIndex()	{
+		clear();
+	}
+
+	/**
+	 * Private constructor for a view sharing the arrays of another index.
+	 * @param source index to share.
+	 */
+	private ComponentIndex ( ComponentIndex source )	{
+		parent = source.parent;
+		count = source.count;
+		size = source.size;
+		sets = source.sets;
+		stale = source.stale;
+		frozen = true;
+	}
+
+	/**
+	 * Makes a view of the index as it is now. Later changes to this index do not show up in it.
+	 * @return ComponentIndex view of the index.
+	 */
+	ComponentIndex freeze()	{
+		shared = true;
+		return new ComponentIndex ( this );
+	}
+
+	/**
+	 * Private method for copying the arrays before the first change after a freeze.
+	 */
+	private void unshare()	{
+		if ( !shared )	return;
+		shared = false;
+		parent = parent.clone();
+		count = count.clone();
+	}
+
+	/**
+	 * Removes every vertex.
+	 */
+	void clear()	{
+		parent = new int[INITIAL_SIZE];
+		count = new int[INITIAL_SIZE];
+		size = 0;
+		sets = 0;
+		stale = false;
+		shared = false;
+	}
+
+	/**
+	 * Adds a vertex in a component of its own, at the next index.
+	 */
+	void add()	{
+		unshare();
+		if ( size == parent.length )	{
+			parent = Arrays.copyOf ( parent, size * 2 );
+			count = Arrays.copyOf ( count, size * 2 );
+		}
+		parent[size] = size;
+		count[size] = 1;
+		size++;
+		sets++;
+	}
+
+	/**
+	 * Joins the components of two vertices.
+	 * @param x index of the first vertex.
+	 * @param y index of the second vertex.
+	 */
+	void union ( int x, int y )	{
+		//a stale index is rebuilt from every edge anyway
+		if ( stale )	return;
+		unshare();
+		join ( x, y );
+	}
+
+	/**
+	 * Takes a removed vertex out of its component, for a vertex whose removal splits nothing.
+	 * @param x index of the vertex.
+	 */
+	void remove ( int x )	{
+		if ( stale )	return;
+		unshare();
+		if ( --count[find ( x )] == 0 )
+			sets--;
+	}
+
+	/**
+	 * Marks the index stale after a change that may split a component, or renumber vertices.
+	 */
+	void invalidate()	{
+		stale = true;
+	}
+
+	/**
+	 * @return boolean true if a removal left the index to be rebuilt before it is read.
+	 */
+	boolean isStale()	{
+		return stale;
+	}
+
+	/**
+	 * Rebuilds the index from the edges if it is stale. Views may be read from many threads<br>
+	 * at once, so only the first of them rebuilds and the rest wait for it.
+	 * @param store edges of the graph.
+	 * @param vertices number of vertex indices, counting removed vertices.
+	 */
+	void refresh ( EdgeStore store, int vertices )	{
+		if ( !stale )	return;
+		synchronized ( this )	{
+			if ( !stale )	return;
+			//new arrays, so a view that shares the old ones never sees them change
+			int capacity = Math.max ( INITIAL_SIZE, parent.length );
+			while ( capacity < vertices )	capacity *= 2;
+			parent = new int[capacity];
+			count = new int[capacity];
+			shared = false;
+			size = vertices;
+			sets = 0;
+			for ( int v = 0; v < size; v++ )	{
+				parent[v] = v;
+				if ( store.isRemoved ( v ) )	continue;
+				count[v] = 1;
+				sets++;
+			}
+			EdgeCursor edges = store.cursor();
+			for ( int v = 0; v < size; v++ )	{
+				edges.reset ( v );
+				for ( int u = edges.next(); u >= 0; u = edges.next() )
+					join ( v, u );
+			}
+			stale = false;
+		}
+	}
+
+	/**
+	 * Private method for joining two components, the smaller one under the larger.
+	 */
+	private void join ( int x, int y )	{
+		x = find ( x );
+		y = find ( y );
+		if ( x == y )	return;
+		if ( count[x] < count[y] )	{
+			int swap = x;
+			x = y;
+			y = swap;
+		}
+		parent[y] = x;
+		count[x] += count[y];
+		sets--;
+	}
+
+	/**
+	 * Finds the root of a vertex's component. Outside of views every other vertex on the way<br>
+	 * is pointed at its grandparent, which keeps later finds short.
+	 * @param x index of a vertex.
+	 * @return int index of the root.
+	 */
+	int find ( int x )	{
+		if ( frozen || shared )	{
+			while ( parent[x] != x )
+				x = parent[x];
+			return x;
+		}
+		while ( parent[x] != x )	{
+			parent[x] = parent[parent[x]];
+			x = parent[x];
+		}
+		return x;
+	}
+
+	/**
+	 * @return boolean true if two vertices are in the same component.
+	 */
+	boolean connected ( int x, int y )	{
+		return find ( x ) == find ( y );
+	}
+
+	/**
+	 * @return int number of components.
+	 */
+	int numComponents()	{
+		return sets;
+	}
+
+	/**
+	 * @return int[] number of vertices in each component, largest first.
+	 */
+	int[] sizes()	{
+		int[] sizes = new int[sets];
+		int found = 0;
+		for ( int v = 0; v < size; v++ )
+			if ( parent[v] == v && count[v] > 0 )
+				sizes[found++] = count[v];
+		Arrays.sort ( sizes );
+		for ( int x = 0; x < found / 2; x++ )	{
+			int swap = sizes[x];
+			sizes[x] = sizes[found - 1 - x];
+			sizes[found - 1 - x] = swap;
+		}
+		return sizes;
+	}
+}
@@ -0,0 +1,249 @@
+import java.util.Arrays;
+
+/**
+ * Read-only edge storage packed for graphs too large to keep as int rows. Each row is sorted<br>
+ * by neighbor and holds the movie of every edge, as its number in a table of titles plus one<br>
+ * or 0 for none, in as few whole bytes as the largest number needs, followed by the gap from<br>
+ * each neighbor to the one before as a varint. Most gaps fit in one or two bytes and movie<br>
+ * numbers in two or three, against the twelve bytes of neighbor, movie and date AdjacencyList<br>
+ * keeps per edge. Searches only decode the gaps, and a movie is read from its fixed place<br>
+ * in the row only when asked for. Rows are packed back to back into pages of up to 1GB so<br>
+ * the store is not limited to one array, and a row never spans two pages, so a cursor<br>
+ * decodes its row from one array front to back. Weights are only kept for rows with an edge<br>
+ * that does not weigh 1, and removed vertices keep their index with an empty row.
+ */
+class CompressedAdjacency extends EdgeStore	{
+	//bytes per page as a number of bits
+	private static final int PAGE_BITS = 30;
+	private static final long PAGE_MASK = (1L << PAGE_BITS) - 1;
+	//starting capacity of a page and of the scratch row
+	private static final int INITIAL_BYTES = 1 << 16;
+	//packed rows, and where each row starts as a page number and offset
+	private byte[][] pages;
+	private long[] starts;
+	//edges of each row
+	private int[] degree;
+	//bytes of each movie number
+	private int width;
+	//weight of each edge in row order, null for rows where every edge weighs 1 and made
+	//only once there is such a row
+	private double[][] weights;
+	//title and date of every movie an edge refers to
+	private SymbolTable titles;
+	//true for each vertex that was removed when the store was packed
+	private boolean[] removed;
+	private int numRemoved;
+	//edges counted by the store that was packed, which for a movie graph are its links
+	private int edges;
+
+	/**
+	 * Constructor, packs the edges of another store.
+	 * @param store edges to pack.
+	 * @param size number of vertex indices, counting removed vertices.
+	 * @throws GraphException if one row needs more than a page.
+	 */
+	CompressedAdjacency ( EdgeStore store, int size ) throws GraphException	{
+		starts = new long[size];
+		degree = new int[size];
+		removed = new boolean[size];
+		titles = new SymbolTable();
+		edges = store.numEdges();
+		pages = new byte[1][];
+		byte[] page = new byte[INITIAL_BYTES];
+		int used = 0;
+		byte[] row = new byte[INITIAL_BYTES];
+		//neighbor, movie reference and weight of each edge of a row, with their sorted order
+		long[] order = new long[16];
+		int[] refs = new int[16];
+		double[] rowWeights = new double[16];
+		EdgeCursor cursor = store.cursor();
+		//number the movies first, so every row knows how wide a movie number is
+		for ( int v = 0; v < size; v++ )	{
+			if ( store.isRemoved ( v ) )	continue;
+			cursor.reset ( v );
+			for ( int u = cursor.next(); u >= 0; u = cursor.next() )
+				if ( cursor.movie() != null )
+					titles.add ( cursor.movie(), cursor.date() );
+		}
+		width = 1;
+		while ( width < 4 && titles.size() >= 1 << 8 * width )
+			width++;
+		for ( int v = 0; v < size; v++ )	{
+			if ( store.isRemoved ( v ) )	{
+				removed[v] = true;
+				numRemoved++;
+				starts[v] = (long)(pages.length - 1) << PAGE_BITS | used;
+				continue;
+			}
+			int n = 0;
+			boolean weighted = false;
+			cursor.reset ( v );
+			for ( int u = cursor.next(); u >= 0; u = cursor.next() )	{
+				if ( n == order.length )	{
+					order = Arrays.copyOf ( order, n * 2 );
+					refs = Arrays.copyOf ( refs, n * 2 );
+					rowWeights = Arrays.copyOf ( rowWeights, n * 2 );
+				}
+				String movie = cursor.movie();
+				refs[n] = movie == null ? 0 : titles.add ( movie, cursor.date() ) + 1;
+				rowWeights[n] = cursor.weight();
+				if ( rowWeights[n] != 1 )	weighted = true;
+				//neighbor in the high bits keeps the sort stable on the edge's place in the row
+				order[n] = (long)u << 32 | n;
+				n++;
+			}
+			Arrays.sort ( order, 0, n );
+			long bound = (long)n * (width + 5);
+			if ( bound > PAGE_MASK + 1 )
+				throw new GraphException ( "Row too large to compress!" );
+			if ( row.length < bound )
+				row = new byte[(int)Math.max ( bound, row.length * 2L )];
+			int length = n * width;
+			int previous = 0;
+			double[] sorted = weighted ? new double[n] : null;
+			for ( int i = 0; i < n; i++ )	{
+				int u = (int)(order[i] >>> 32);
+				int e = (int)order[i];
+				for ( int b = 0; b < width; b++ )
+					row[i * width + b] = (byte)(refs[e] >>> 8 * b);
+				length = put ( row, length, u - previous );
+				if ( weighted )	sorted[i] = rowWeights[e];
+				previous = u;
+			}
+			if ( length > PAGE_MASK + 1 )
+				throw new GraphException ( "Row too large to compress!" );
+			if ( used + length > page.length )	{
+				if ( used + length <= PAGE_MASK + 1 )
+					page = Arrays.copyOf ( page, (int)Math.min ( PAGE_MASK + 1, Math.max ( (long)page.length * 2, used + length ) ) );
+				else	{
+					pages[pages.length - 1] = Arrays.copyOf ( page, used );
+					pages = Arrays.copyOf ( pages, pages.length + 1 );
+					page = new byte[Math.max ( INITIAL_BYTES, length )];
+					used = 0;
+				}
+			}
+			System.arraycopy ( row, 0, page, used, length );
+			starts[v] = (long)(pages.length - 1) << PAGE_BITS | used;
+			used += length;
+			degree[v] = n;
+			if ( weighted )	{
+				if ( weights == null )	weights = new double[size][];
+				weights[v] = sorted;
+			}
+		}
+		pages[pages.length - 1] = Arrays.copyOf ( page, used );
+	}
+
+	/**
+	 * Writes a value as a varint, seven bits a byte with the high bit set on all but the last.
+	 * @param bytes array to write into, with room for five bytes.
+	 * @param at where the value starts.
+	 * @param value value to write, treated as unsigned.
+	 * @return int where the next value starts.
+	 */
+	private static int put ( byte[] bytes, int at, int value )	{
+		while ( (value & ~0x7F) != 0 )	{
+			bytes[at++] = (byte)(value | 0x80);
+			value >>>= 7;
+		}
+		bytes[at++] = (byte)value;
+		return at;
+	}
+
+	boolean isRemoved ( int v )	{
+		return removed[v];
+	}
+
+	int numRemoved()	{
+		return numRemoved;
+	}
+
+	int numEdges()	{
+		return edges;
+	}
+
+	/**
+	 * @return long bytes held by the pages, row tables, weights and titles.
+	 */
+	long footprint()	{
+		long bytes = 12L * starts.length + removed.length + titles.footprint();
+		for ( int p = 0; p < pages.length; p++ )
+			bytes += pages[p].length;
+		if ( weights != null )	{
+			bytes += 4L * weights.length;
+			for ( int v = 0; v < weights.length; v++ )
+				if ( weights[v] != null )	bytes += 8L * weights[v].length;
+		}
+		return bytes;
+	}
+
+	EdgeCursor cursor()	{
+		return new Cursor();
+	}
+
+	/**
+	 * Decodes one row front to back, neighbors in increasing order.
+	 */
+	private class Cursor extends EdgeCursor	{
+		//page holding the row, where its movie numbers start and the next gap to decode
+		private byte[] page;
+		private int base;
+		private int at;
+		//vertex being expanded, edges decoded so far and edges in its row
+		private int vertex;
+		private int edge;
+		private int count;
+		//neighbor of the current edge
+		private int neighbor;
+
+		void reset ( int vertex )	{
+			this.vertex = vertex;
+			page = pages[(int)(starts[vertex] >>> PAGE_BITS)];
+			base = (int)(starts[vertex] & PAGE_MASK);
+			count = degree[vertex];
+			at = base + count * width;
+			edge = -1;
+			neighbor = 0;
+		}
+
+		int next()	{
+			if ( ++edge >= count )	return -1;
+			byte[] bytes = page;
+			int i = at;
+			int b = bytes[i++];
+			int gap = b & 0x7F;
+			for ( int shift = 7; b < 0; shift += 7 )	{
+				b = bytes[i++];
+				gap |= (b & 0x7F) << shift;
+			}
+			at = i;
+			neighbor += gap;
+			return neighbor;
+		}
+
+		/**
+		 * @return int movie number of the current edge plus one, 0 if it has none.
+		 */
+		private int ref()	{
+			int ref = 0;
+			for ( int b = width - 1, at = base + edge * width; b >= 0; b-- )
+				ref = ref << 8 | page[at + b] & 0xFF;
+			return ref;
+		}
+
+		double weight()	{
+			if ( weights == null || weights[vertex] == null )	return 1;
+			return weights[vertex][edge];
+		}
+
+		String movie()	{
+			int ref = ref();
+			return ref == 0 ? null : titles.get ( ref - 1 );
+		}
+
+		int date()	{
+			int ref = ref();
+			return ref == 0 ? 0 : titles.tag ( ref - 1 );
+		}
+	}
+}
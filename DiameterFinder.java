@@ -0,0 +1,240 @@
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds the diameter of a graph, counted in edges, along with a longest shortest path.<br>
+ * Undirected graphs use iFUB: a double sweep picks a central vertex and gives a lower bound,<br>
+ * then the vertices farthest from the center are searched one level at a time until the<br>
+ * lower bound meets the upper bound the level allows. That is one breadth-first search per<br>
+ * vertex at worst and usually a small handful. The all sources search runs one breadth-first<br>
+ * search from every vertex spread across threads, and is what directed graphs fall back to.
+ */
+class DiameterFinder	{
+	//edges to search
+	private EdgeStore store;
+	//number of vertex indices, and how many of them belong to vertices that were not removed
+	private int size;
+	private int live;
+	//breadth-first searches run so far
+	private int searches;
+
+	/**
+	 * Constructor, makes a new DiameterFinder.
+	 * @param store edges to search.
+	 * @param size number of vertex indices, counting removed vertices.
+	 */
+	DiameterFinder ( EdgeStore store, int size )	{
+		this.store = store;
+		this.size = size;
+		live = size - store.numRemoved();
+	}
+
+	/**
+	 * @return int number of breadth-first searches run so far.
+	 */
+	int searches()	{
+		return searches;
+	}
+
+	/**
+	 * Finds a longest shortest path of an undirected graph with iFUB.<br>
+	 * Every edge must have its reverse, or the bounds may cut the search short.
+	 * @return int[] vertex indices along the path, null if the graph is not connected.
+	 */
+	int[] find()	{
+		if ( live == 0 )	return null;
+		Search search = new Search();
+		//start the double sweep from the vertex with the most edges
+		int start = 0;
+		int most = -1;
+		for ( int v = 0; v < size; v++ )	{
+			if ( store.isRemoved ( v ) )	continue;
+			int degree = search.degree ( v );
+			if ( degree > most )	{
+				most = degree;
+				start = v;
+			}
+		}
+		search.run ( start );
+		searches++;
+		if ( search.reached < live )	return null;
+		int a = search.farthest();
+		search.run ( a );
+		searches++;
+		int b = search.farthest();
+		int lower = search.dist[b];
+		int[] best = search.path ( b );
+
+		//the middle of the sweep path is close to the center of the graph
+		int center = best[best.length / 2];
+		search.run ( center );
+		searches++;
+		int[] fringe = search.queue.clone();
+		int[] level = search.dist.clone();
+		int i = level[search.farthest()];
+		if ( i > lower )	{
+			lower = i;
+			best = search.path ( search.farthest() );
+		}
+		//every vertex is within i of the center, so no two are further than 2i apart
+		int upper = 2 * i;
+		int at = live - 1;
+		while ( upper > lower )	{
+			//the vertices of level i sit at the end of the center's queue
+			for ( ; at >= 0 && level[fringe[at]] == i; at-- )	{
+				search.run ( fringe[at] );
+				searches++;
+				int far = search.farthest();
+				if ( search.dist[far] > lower )	{
+					lower = search.dist[far];
+					best = search.path ( far );
+				}
+			}
+			//any longer path has both ends within level i - 1
+			if ( lower >= 2 * (i - 1) )	break;
+			upper = 2 * (i - 1);
+			i--;
+		}
+		return best;
+	}
+
+	/**
+	 * Finds a longest shortest path by searching from every vertex, which also works on<br>
+	 * directed graphs.
+	 * @param threads number of threads to search with.
+	 * @return int[] vertex indices along the path, null if some vertex cannot reach another.
+	 */
+	int[] findAllSources ( int threads )	{
+		if ( live == 0 )	return null;
+		threads = Math.max ( 1, Math.min ( threads, live ) );
+		final AtomicInteger next = new AtomicInteger();
+		//best eccentricity and its source for each worker, -1 if a source reached too few vertices
+		final int[][] found = new int[threads][];
+		ExecutorService pool = Executors.newFixedThreadPool ( threads );
+		Future[] done = new Future[threads];
+		for ( int t = 0; t < threads; t++ )	{
+			final int worker = t;
+			done[t] = pool.submit ( new Runnable()	{
+				public void run()	{
+					Search search = new Search();
+					int[] best = { 0, -1 };
+					for ( int v = next.getAndIncrement(); v < size; v = next.getAndIncrement() )	{
+						if ( store.isRemoved ( v ) )	continue;
+						search.run ( v );
+						if ( search.reached < live )	{
+							best[0] = -1;
+							next.set ( size );
+							break;
+						}
+						int far = search.dist[search.farthest()];
+						if ( far > best[0] || best[1] < 0 )	{
+							best[0] = far;
+							best[1] = v;
+						}
+					}
+					found[worker] = best;
+				}
+			} );
+		}
+		try	{
+			for ( int t = 0; t < threads; t++ )
+				done[t].get();
+		}
+		catch ( InterruptedException exception )	{
+			Thread.currentThread().interrupt();
+			return null;
+		}
+		catch ( ExecutionException exception )	{
+			throw new RuntimeException ( exception.getCause() );
+		}
+		finally	{
+			pool.shutdownNow();
+		}
+		searches += Math.min ( next.get(), size );
+		int source = 0;
+		int most = -1;
+		for ( int t = 0; t < threads; t++ )	{
+			if ( found[t][0] < 0 )	return null;
+			if ( found[t][0] > most && found[t][1] >= 0 )	{
+				most = found[t][0];
+				source = found[t][1];
+			}
+		}
+		Search search = new Search();
+		search.run ( source );
+		searches++;
+		return search.path ( search.farthest() );
+	}
+
+	/**
+	 * One breadth-first search at a time from a source, reusing its arrays between searches.
+	 */
+	private class Search	{
+		//distance from the source, -1 if not reached
+		int[] dist = new int[size];
+		//the vertex each vertex was reached from
+		int[] parent = new int[size];
+		//vertices in the order they were reached, the last is the farthest
+		int[] queue = new int[size];
+		//number of vertices reached by the last search
+		int reached;
+		private EdgeCursor edges = store.cursor();
+
+		/**
+		 * @param v index of a vertex.
+		 * @return int number of edges leaving the vertex.
+		 */
+		int degree ( int v )	{
+			int count = 0;
+			edges.reset ( v );
+			while ( edges.next() >= 0 )
+				count++;
+			return count;
+		}
+
+		/**
+		 * Searches outward from a source until every reachable vertex has a distance.
+		 * @param source index of the vertex to start from.
+		 */
+		void run ( int source )	{
+			Arrays.fill ( dist, -1 );
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = source;
+			dist[source] = 0;
+			parent[source] = source;
+			while ( head < tail )	{
+				int u = queue[head++];
+				edges.reset ( u );
+				for ( int v = edges.next(); v >= 0; v = edges.next() )	{
+					if ( dist[v] >= 0 )	continue;
+					dist[v] = dist[u] + 1;
+					parent[v] = u;
+					queue[tail++] = v;
+				}
+			}
+			reached = tail;
+		}
+
+		/**
+		 * @return int index of a vertex furthest from the last source.
+		 */
+		int farthest()	{
+			return queue[reached - 1];
+		}
+
+		/**
+		 * @param v index of a vertex reached by the last search.
+		 * @return int[] vertex indices from the last source to the vertex.
+		 */
+		int[] path ( int v )	{
+			int[] path = new int[dist[v] + 1];
+			for ( int x = path.length - 1; x >= 0; x-- )	{
+				path[x] = v;
+				v = parent[v];
+			}
+			return path;
+		}
+	}
+}
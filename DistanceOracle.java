@@ -0,0 +1,273 @@
+import java.util.Arrays;
+
+/**
+ * Precomputed hop counts from a few landmark vertices, the ones with the most edges, to every<br>
+ * other vertex, kept one byte each. By the triangle inequality two vertices are at least as<br>
+ * far apart as their distances from any landmark differ, and no further apart than those<br>
+ * distances added up, so bounds on any distance take one look per landmark. The same lower<br>
+ * bounds steer an A* search (ALT) toward its target, which finds exactly the path Dijkstra's<br>
+ * algorithm would while settling far fewer vertices. Directed graphs only search forward<br>
+ * from the landmarks, which gives lower bounds but no upper ones, and so do undirected graphs<br>
+ * holding edges that only lead one way.
+ */
+class DistanceOracle	{
+	//distances of unreached vertices, and the distance kept for any vertex at least that far
+	private static final int UNREACHED = 255;
+	private static final int FAR = 254;
+	//landmark vertex indices
+	private int[] landmarks;
+	//hop count from each landmark to every vertex index
+	private byte[][] distance;
+	private boolean directed;
+	//lightest edge weight, a path of h hops weighs at least h times this
+	private double scale;
+
+	/**
+	 * Constructor, picks the landmarks and searches from each of them.
+	 * @param store edges to search.
+	 * @param size number of vertex indices, counting removed vertices.
+	 * @param count number of landmarks to pick, fewer if the graph has fewer vertices with edges.
+	 * @param directed true if edges only lead one way.
+	 */
+	DistanceOracle ( EdgeStore store, int size, int count, boolean directed )	{
+		EdgeCursor edges = store.cursor();
+		int[] degree = new int[size];
+		scale = Double.POSITIVE_INFINITY;
+		//every edge hashed both ways round, the sums only match if each edge has its reverse
+		long forward = 0;
+		long backward = 0;
+		for ( int v = 0; v < size; v++ )	{
+			if ( store.isRemoved ( v ) )	continue;
+			edges.reset ( v );
+			for ( int u = edges.next(); u >= 0; u = edges.next() )	{
+				degree[v]++;
+				scale = Math.min ( scale, edges.weight() );
+				forward += mix ( (long)v << 32 | u );
+				backward += mix ( (long)u << 32 | v );
+			}
+		}
+		//weighted edges only lead one way even in undirected graphs
+		this.directed = directed || forward != backward;
+		if ( scale == Double.POSITIVE_INFINITY )	scale = 1;
+		//a graph with weights of zero or less gets no help from the bounds
+		if ( scale < 0 )	scale = 0;
+		landmarks = pick ( degree, count );
+		distance = new byte[landmarks.length][];
+		int[] queue = new int[size];
+		for ( int l = 0; l < landmarks.length; l++ )
+			distance[l] = search ( edges, landmarks[l], size, queue );
+	}
+
+	/**
+	 * Spreads the bits of a pair of vertex indices.
+	 * @param h the pair packed into a long.
+	 * @return long mixed hash code.
+	 */
+	static long mix ( long h )	{
+		h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+		h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return h ^ (h >>> 33);
+	}
+
+	/**
+	 * Private method for choosing the vertices with the most edges.
+	 * @param degree number of edges of each vertex.
+	 * @param count number of landmarks wanted.
+	 * @return int[] indices of the landmarks, most edges first.
+	 */
+	private static int[] pick ( int[] degree, int count )	{
+		int[] chosen = new int[count];
+		int found = 0;
+		//the chosen vertices are kept in order, each candidate slides in where it belongs
+		for ( int v = 0; v < degree.length; v++ )	{
+			if ( degree[v] == 0 || (found == count && degree[v] <= degree[chosen[count - 1]]) )
+				continue;
+			int at = found < count ? found++ : count - 1;
+			for ( ; at > 0 && degree[chosen[at - 1]] < degree[v]; at-- )
+				chosen[at] = chosen[at - 1];
+			chosen[at] = v;
+		}
+		return Arrays.copyOf ( chosen, found );
+	}
+
+	/**
+	 * Private method for one breadth-first search, counting hops up to FAR.
+	 * @param source index of the landmark.
+	 * @param queue scratch space for the search.
+	 * @return byte[] hop count of every vertex index, UNREACHED if there is no path.
+	 */
+	private static byte[] search ( EdgeCursor edges, int source, int size, int[] queue )	{
+		byte[] dist = new byte[size];
+		Arrays.fill ( dist, (byte)UNREACHED );
+		dist[source] = 0;
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = source;
+		while ( head < tail )	{
+			int u = queue[head++];
+			int next = Math.min ( FAR, (dist[u] & 0xff) + 1 );
+			edges.reset ( u );
+			for ( int v = edges.next(); v >= 0; v = edges.next() )	{
+				if ( (dist[v] & 0xff) != UNREACHED )	continue;
+				dist[v] = (byte)next;
+				queue[tail++] = v;
+			}
+		}
+		return dist;
+	}
+
+	/**
+	 * @return int number of landmarks.
+	 */
+	int numLandmarks()	{
+		return landmarks.length;
+	}
+
+	/**
+	 * @return long bytes held by the hop counts.
+	 */
+	long footprint()	{
+		long bytes = 4L * landmarks.length;
+		for ( int l = 0; l < distance.length; l++ )
+			bytes += distance[l].length;
+		return bytes;
+	}
+
+	/**
+	 * @param t index of a vertex.
+	 * @return int[] hop count from each landmark to the vertex, kept so lower can be called often.
+	 */
+	int[] column ( int t )	{
+		int[] column = new int[landmarks.length];
+		for ( int l = 0; l < column.length; l++ )
+			column[l] = distance[l][t] & 0xff;
+		return column;
+	}
+
+	/**
+	 * Bounds the number of edges on any path from a vertex to a target from below.
+	 * @param v index of the vertex.
+	 * @param column hop counts of the target from column.
+	 * @return int least number of edges, Integer.MAX_VALUE if no path can exist.
+	 */
+	int lower ( int v, int[] column )	{
+		int best = 0;
+		for ( int l = 0; l < column.length; l++ )	{
+			int a = distance[l][v] & 0xff;
+			int b = column[l];
+			int bound;
+			if ( directed )	{
+				//a landmark reaching v but not the target proves v cannot reach it either
+				if ( a >= FAR )	continue;
+				if ( b == UNREACHED )	return Integer.MAX_VALUE;
+				bound = b - a;
+			}
+			else	{
+				if ( (a == UNREACHED) != (b == UNREACHED) )	return Integer.MAX_VALUE;
+				//FAR only says at least that far, which still bounds the difference unless both are
+				if ( a >= FAR && b >= FAR )	continue;
+				bound = Math.abs ( a - b );
+			}
+			if ( bound > best )	best = bound;
+		}
+		return best;
+	}
+
+	/**
+	 * Bounds the number of edges on a shortest path between two vertices from above.
+	 * @param v index of the first vertex.
+	 * @param column hop counts of the second vertex from column.
+	 * @return int most number of edges, Integer.MAX_VALUE if no landmark connects the two.
+	 */
+	int upper ( int v, int[] column )	{
+		int best = Integer.MAX_VALUE;
+		if ( directed )	return best;
+		for ( int l = 0; l < column.length; l++ )	{
+			int a = distance[l][v] & 0xff;
+			if ( a < FAR && column[l] < FAR && a + column[l] < best )
+				best = a + column[l];
+		}
+		return best;
+	}
+
+	/**
+	 * Finds a lightest path with A*, using the landmark bounds times the lightest edge weight<br>
+	 * as the estimate of the weight left. The estimate never overshoots and never drops by more<br>
+	 * than an edge weighs, so every vertex is settled once and the first time the target is<br>
+	 * settled its path is a lightest one. The bounds still hold for a search that skips some<br>
+	 * of the edges, such as one limited to a range of years.
+	 * @param edges cursor over the edges to search, the ones the oracle was built from or some of them.
+	 * @param size number of vertex indices.
+	 * @param source index of the first vertex.
+	 * @param target index of the last vertex.
+	 * @return int[] vertex indices from source to target, null if there is no path.
+	 */
+	int[] path ( EdgeCursor edges, int size, int source, int target )	{
+		int[] column = column ( target );
+		if ( lower ( source, column ) == Integer.MAX_VALUE )	return null;
+		QueryState state = QueryState.begin ( size );
+		try	{
+			int epoch = state.epoch;
+			//reached vertices have a weight and sit in the heap until they are settled
+			int[] reached = state.markB;
+			int[] settled = state.markF;
+			double[] weight = state.weight;
+			double[] estimate = state.estimate;
+			double[] priority = state.priority;
+			int[] parent = state.parentF;
+			//reached vertices by weight plus estimate
+			IndexedHeap heap = new IndexedHeap ( state.queueF, state.depthB, priority );
+			//vertices settled, only kept for GraphMetrics
+			int visited = 0;
+			reached[source] = epoch;
+			weight[source] = 0;
+			estimate[source] = 0;
+			priority[source] = 0;
+			parent[source] = source;
+			heap.add ( source );
+			while ( !heap.isEmpty() )	{
+				int u = heap.poll();
+				settled[u] = epoch;
+				visited++;
+				if ( u == target )	break;
+				edges.reset ( u );
+				for ( int v = edges.next(); v >= 0; v = edges.next() )	{
+					if ( settled[v] == epoch )	continue;
+					double w = weight[u] + edges.weight();
+					if ( reached[v] != epoch )	{
+						int bound = lower ( v, column );
+						//a vertex that cannot reach the target is never worth settling
+						if ( bound == Integer.MAX_VALUE )	{
+							settled[v] = epoch;
+							continue;
+						}
+						reached[v] = epoch;
+						estimate[v] = bound * scale;
+						weight[v] = w;
+						priority[v] = w + estimate[v];
+						parent[v] = u;
+						heap.add ( v );
+					}
+					else if ( w < weight[v] )	{
+						weight[v] = w;
+						priority[v] = w + estimate[v];
+						parent[v] = u;
+						heap.decreased ( v );
+					}
+				}
+			}
+			GraphMetrics.search ( GraphMetrics.SHORTEST_PATH, visited, heap.widest() );
+			if ( settled[target] != epoch || reached[target] != epoch )	return null;
+			int hops = 0;
+			for ( int v = target; v != source; v = parent[v] )
+				hops++;
+			int[] path = new int[hops + 1];
+			for ( int v = target, x = hops; x >= 0; v = parent[v], x-- )
+				path[x] = v;
+			return path;
+		}
+		finally	{
+			state.end();
+		}
+	}
+}
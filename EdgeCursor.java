@@ -0,0 +1,35 @@
+/**
+ * Walks the edges leaving one vertex of a Graph's edge storage. Traversals keep one cursor<br>
+ * per search and reset it for every vertex they expand, so the same search code runs over<br>
+ * any storage that can hand out a cursor.
+ */
+abstract class EdgeCursor	{
+
+	/**
+	 * Starts walking the edges of a vertex.
+	 * @param vertex index of the vertex to expand.
+	 */
+	abstract void reset ( int vertex );
+
+	/**
+	 * Moves to the next edge. A neighbor may be returned more than once if several<br>
+	 * edges lead to it.
+	 * @return int index of the neighbor at the end of the edge, or -1 when there are no more edges.
+	 */
+	abstract int next();
+
+	/**
+	 * @return double weight of the current edge.
+	 */
+	abstract double weight();
+
+	/**
+	 * @return String movie of the current edge, null if it has none.
+	 */
+	abstract String movie();
+
+	/**
+	 * @return int date of the movie of the current edge, 0 if it has none.
+	 */
+	abstract int date();
+}
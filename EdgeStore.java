@@ -0,0 +1,33 @@
+/**
+ * Read side of a Graph's edge storage. Every way of storing edges hands out cursors over<br>
+ * the edges of a vertex, which is all the graph's searches need.
+ */
+abstract class EdgeStore	{
+
+	/**
+	 * @return EdgeCursor over the edges of this store, one per search.
+	 */
+	abstract EdgeCursor cursor();
+
+	/**
+	 * @return int number of edges held by the store.
+	 */
+	abstract int numEdges();
+
+	/**
+	 * Stores that remove vertices by marking them leave the index in place until the next<br>
+	 * compaction, and their cursors skip edges into it.
+	 * @param v index of a vertex.
+	 * @return boolean true if the vertex was removed.
+	 */
+	boolean isRemoved ( int v )	{
+		return false;
+	}
+
+	/**
+	 * @return int number of removed vertices still taking up an index.
+	 */
+	int numRemoved()	{
+		return 0;
+	}
+}
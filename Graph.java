@@ -1,4 +1,8 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.io.IOException;
 
 /**
  * A representation of a mathematical relationship model using Java. It supports<br>
@@ -9,28 +13,59 @@ import java.util.ArrayList;
 public class Graph	{
 	//size integer variable to keep track of number of nodes in the graph
 	private int size;
-	//Double two-dimensional array for the adjacency matrix
-	private double[][] adjacent;
-	//Array for holding the movie edges
-	private String[][] movielist;
-	//Array for holding the dates of movies
-	private int[][] datelist;
+	//Sparse edge storage holding the weight, movie and date of every edge
+	private AdjacencyList adjacency;
+	//Movie vertex storage used in place of adjacency when movies are kept as vertices, null otherwise
+	private MovieIncidence incidence;
+	//Memory mapped storage of a graph loaded from a snapshot file, null otherwise
+	private GraphSnapshot snapshot;
+	//Packed read-only storage of a view made by compress, null otherwise
+	private CompressedAdjacency packed;
 	//boolean to determine whether a graph is directed
 	private boolean directed;
-	//Vertex storage list
-	private ArrayList vertexList;
+	//true once an undirected graph may hold an edge without its reverse, as a weighted edge or snapshot can
+	private boolean oneWay;
+	//Hash index from vertex keys to their position, which also stores the keys
+	private VertexIndex index;
 	//int to determin generic unweighted value
 	private final int UNWEIGHTED_VALUE = 1;
+	//true if this graph is a read-only view made by commit
+	private boolean frozen;
+	//latest view made by commit, read by queries on other threads
+	private volatile Graph published;
+	//storage index of each vertex by position, built when first needed after a removal
+	private volatile int[] live;
+	//storage index of each position in a view made by reorder, null otherwise
+	private int[] order;
+	//thread compacting the graph in the background, null if there is none
+	private Thread compactor;
+	//connected components of the vertecies, kept up to date as edges are added
+	private ComponentIndex components;
+	//landmark distances made by buildOracle, null until then and after any change
+	private volatile DistanceOracle oracle;
+	//edges sorted by year for searches limited to a range of years, made when first needed
+	private volatile YearIndex years;
+	//degrees counted for searching from one vertex to all of them, made when first needed
+	private volatile LevelSearch levels;
+	//answers of recent path queries, null unless setCache installed a cache
+	private volatile QueryCache cache;
+	//stamp of what the graph holds, which every change replaces so cached answers from before it go unused
+	private volatile long version = VERSIONS.incrementAndGet();
+	//source of version stamps, so no two graphs holding different edges ever share one
+	private static final AtomicLong VERSIONS = new AtomicLong();
+	//positions of the pair counts returned by addMovie
+	public static final int INSERTED = 0;
+	public static final int REPLACED = 1;
+	public static final int SKIPPED = 2;
 
 	/**
 	 *  Default Constructor, creates an undirected graph.
 	 */
 	public Graph ()	{
 		size = 0;
-		adjacent = new double[size][size];
-		movielist = new String[size][size];
-		datelist = new int[size][size];
-		vertexList = new ArrayList();
+		adjacency = new AdjacencyList();
+		index = new VertexIndex();
+		components = new ComponentIndex();
 		directed = false;
 	}
   
@@ -39,22 +74,296 @@ public class Graph	{
 	 */
 	public Graph ( boolean param )	{
 		size = 0;
-		adjacent = new double[size][size];
-		movielist = new String[size][size];
-		datelist = new int[size][size];
-		vertexList = new ArrayList();
+		adjacency = new AdjacencyList();
+		index = new VertexIndex();
+		components = new ComponentIndex();
 		directed = param;
 	}
 
+	/**
+	 *  Constructor, takes a boolean to determine directed or undirected and a boolean to keep<br>
+	 *  movies as vertices linked to their cast instead of linking every pair of co-stars.<br>
+	 *  Movie graphs answer every query the same way but only link actors through movies.
+	 */
+	public Graph ( boolean param, boolean movieVertices )	{
+		size = 0;
+		adjacency = new AdjacencyList();
+		if ( movieVertices )
+			incidence = new MovieIncidence();
+		index = new VertexIndex();
+		components = new ComponentIndex();
+		directed = param;
+	}
+
+	/**
+	 *  Private constructor for a read-only view of another graph as it is now.
+	 */
+	private Graph ( Graph source )	{
+		size = source.size;
+		adjacency = source.adjacency.freeze();
+		if ( source.incidence != null )
+			incidence = source.incidence.freeze();
+		index = source.index.freeze();
+		components = source.components.freeze();
+		directed = source.directed;
+		oneWay = source.oneWay;
+		oracle = source.oracle;
+		order = source.order;
+		//the view holds what the source holds, so answers cached by either serve both
+		cache = source.cache;
+		version = source.version;
+		//the degrees still hold, but the search must walk the view's edges rather than the source's
+		if ( source.levels != null )
+			levels = new LevelSearch ( source.levels, edges() );
+		frozen = true;
+	}
+
+	/**
+	 * Publishes the graph as it is now as a new read-only view, which view then returns.<br>
+	 * The view shares storage with the graph instead of copying it: rows the graph only<br>
+	 * appends to stay shared, and a row is copied the first time it is overwritten after<br>
+	 * the commit. Queries that already hold an older view keep searching it undisturbed.
+	 * @return Graph the new view.
+	 */
+	public synchronized Graph commit()	{
+		if ( isReadOnly() )
+			return this;
+		Graph view = new Graph ( this );
+		published = view;
+		return view;
+	}
+
+	/**
+	 * Makes a read-only view of the graph as it is now with its edges packed by<br>
+	 * CompressedAdjacency, which takes a few bytes per edge instead of the twelve or more<br>
+	 * of the rows it is made from. The view answers every query the same way, though rows<br>
+	 * are walked in order of neighbor, so a search may pick a different path of the same<br>
+	 * length. The view shares nothing with the edges of the graph, so once the graph itself<br>
+	 * is dropped only the packed edges stay on the heap. Movie graphs are not packed: their<br>
+	 * edges are walked through the movies, and packing them would store every pair of co-stars.
+	 * @return Graph the packed view.
+	 * @throws GraphException if the graph keeps movies as vertices or a vertex has too many edges to pack.
+	 */
+	public synchronized Graph compress() throws GraphException	{
+		if ( incidence != null )
+			throw new GraphException ( "Movie graphs cannot be compressed, their movies already stand for the co-star edges!" );
+		long timer = GraphMetrics.start();
+		Graph view = new Graph ( this );
+		view.snapshot = snapshot;
+		view.packed = new CompressedAdjacency ( edges(), size );
+		view.adjacency = new AdjacencyList();
+		view.incidence = null;
+		view.levels = null;
+		GraphMetrics.time ( GraphMetrics.COMPRESS, timer );
+		return view;
+	}
+
+	/**
+	 * Makes a read-only view of the graph as it is now with its vertecies stored in the order<br>
+	 * VertexOrder finds, so co-stars sit next to each other in memory and searches touch<br>
+	 * fewer cache lines. Removed vertecies are left out. Positions do not change: getVertex,<br>
+	 * getSearchKey and distances number the vertecies as the graph does, and keys are found<br>
+	 * the same way. compress the view to also pack its edges, whose gaps the new order shrinks.
+	 * @return Graph the reordered view.
+	 * @throws GraphException if the graph is a snapshot, which keeps the order it was saved in, or was made by compress.
+	 */
+	public synchronized Graph reorder() throws GraphException	{
+		if ( snapshot != null )
+			throw new GraphException ( "Snapshot graphs cannot be reordered!" );
+		//the packed rows are not renumbered, so the order must come before compress
+		if ( packed != null )
+			throw new GraphException ( "Compressed graphs cannot be reordered, reorder before compressing!" );
+		long timer = GraphMetrics.start();
+		Graph view = new Graph ( this );
+		int[] map = VertexOrder.cuthillMcKee ( edges(), size );
+		int[] slots = positions();
+		int[] byIndex = new int[slots.length];
+		for ( int p = 0; p < slots.length; p++ )	{
+			byIndex[map[slots[p]]] = slots[p];
+			slots[p] = map[slots[p]];
+		}
+		//the frozen copies only share rows the compactions replace rather than change
+		if ( view.incidence != null )
+			view.incidence.compact ( map, slots.length );
+		else
+			view.adjacency.compact ( map, slots.length );
+		view.index = new VertexIndex();
+		for ( int x = 0; x < byIndex.length; x++ )
+			view.index.add ( key ( byIndex[x] ) );
+		view.order = slots;
+		view.size = slots.length;
+		view.live = null;
+		view.components.invalidate();
+		view.oracle = null;
+		view.levels = null;
+		//cached trees are by storage index, which the view renumbers
+		view.version = VERSIONS.incrementAndGet();
+		GraphMetrics.time ( GraphMetrics.REORDER, timer );
+		return view;
+	}
+
+	/**
+	 * Tells whether searches limited to a range of years find every path. Other graphs keep<br>
+	 * only the oldest movie linking each pair of actors, so a range that starts after that<br>
+	 * movie misses the pair even if they starred together again later. A range with only a<br>
+	 * latest year is exact either way.
+	 * @return boolean true if the graph keeps movies as vertices, and with them every movie.
+	 */
+	public boolean keepsEveryMovie()	{
+		return incidence != null;
+	}
+
+	/**
+	 * Tells whether the graph can be changed. Snapshots, and views made by commit, compress<br>
+	 * and reorder, are read-only, and every change to them throws a GraphException.
+	 * @return boolean true if the graph is a snapshot or view, until it is emptied.
+	 */
+	public boolean isReadOnly()	{
+		return snapshot != null || frozen;
+	}
+
+	/**
+	 * Returns the graph as of the last commit, for queries that may run while it is being changed.<br>
+	 * A graph that was never committed, and a snapshot or view, is its own view.
+	 * @return Graph the latest view.
+	 */
+	public Graph view()	{
+		Graph view = published;
+		return view != null ? view : this;
+	}
+
+	/**
+	 * Opens a graph saved with save. The file is memory mapped and read in place, so the graph<br>
+	 * can be searched right away but cannot be changed until it is emptied.
+	 * @param filename snapshot file to open.
+	 * @return Graph backed by the snapshot.
+	 * @throws IOException if the file cannot be read or is not a snapshot.
+	 */
+	public static Graph load ( String filename ) throws IOException	{
+		GraphSnapshot snapshot = new GraphSnapshot ( filename );
+		Graph graph = new Graph ( snapshot.isDirected() );
+		graph.snapshot = snapshot;
+		graph.size = snapshot.numVertices();
+		graph.oneWay = true;
+		graph.components.invalidate();
+		return graph;
+	}
+
+	/**
+	 * Saves the graph as a binary snapshot that load can open. Only the string form of each key is kept.
+	 * @param filename file to write.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void save ( String filename ) throws IOException	{
+		Comparable[] keys = new Comparable[numVertices()];
+		for ( int x = 0; x < keys.length; x++ )
+			keys[x] = getSearchKey ( x );
+		EdgeStore store = edges();
+		if ( order != null || store.numRemoved() > 0 )
+			store = new Renumbered ( store, positions() );
+		GraphSnapshot.write ( filename, keys, store, directed );
+	}
+
+	/**
+	 * Private class for saving a graph with removed vertecies, which presents its edges with<br>
+	 * every vertex at its position rather than its storage index.
+	 */
+	private static class Renumbered extends EdgeStore	{
+		private EdgeStore store;
+		//storage index of each position, and position of each storage index
+		private int[] slots;
+		private int[] positions;
+
+		Renumbered ( EdgeStore store, int[] slots )	{
+			this.store = store;
+			this.slots = slots;
+			int most = -1;
+			for ( int x = 0; x < slots.length; x++ )
+				most = Math.max ( most, slots[x] );
+			positions = new int[most + 1];
+			for ( int x = 0; x < slots.length; x++ )
+				positions[slots[x]] = x;
+		}
+
+		int numEdges()	{
+			return store.numEdges();
+		}
+
+		EdgeCursor cursor()	{
+			final EdgeCursor edges = store.cursor();
+			return new EdgeCursor()	{
+				void reset ( int vertex )	{
+					edges.reset ( slots[vertex] );
+				}
+
+				int next()	{
+					int y = edges.next();
+					return y < 0 ? y : positions[y];
+				}
+
+				double weight()	{
+					return edges.weight();
+				}
+
+				String movie()	{
+					return edges.movie();
+				}
+
+				int date()	{
+					return edges.date();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Private method guarding every change to the graph, called before its arguments are checked.
+	 * @throws GraphException if the graph is a read-only snapshot or view.
+	 */
+	private void checkWritable() throws GraphException	{
+		if ( snapshot != null )
+			throw new GraphException ( "Snapshot graphs are read-only!" );
+		if ( frozen )
+			throw new GraphException ( "Graph views are read-only!" );
+	}
+
+	/**
+	 * Private method called once a change has passed its checks, so a change that fails<br>
+	 * leaves everything in place. The distance oracle is dropped, since the change may bring<br>
+	 * vertecies closer than its bounds allow, and so are the year index, whose rows are copies<br>
+	 * of the edges, and the degrees counted by LevelSearch. The graph gets a new version, so<br>
+	 * nothing cached before the change is used after it.
+	 */
+	private void changed()	{
+		version = VERSIONS.incrementAndGet();
+		if ( oracle != null )
+			oracle = null;
+		if ( years != null )
+			years = null;
+		if ( levels != null )
+			levels = null;
+	}
+
 	/**
 	 * Removes all vertecies in the graph and sets the size to zero.
 	 */
-	public void makeEmpty()	{
+	public synchronized void makeEmpty()	{
+		snapshot = null;
+		packed = null;
+		order = null;
+		frozen = false;
+		oneWay = false;
 		size = 0;
-		adjacent = new double[size][size];
-		movielist = new String[size][size];
-		datelist = new int[size][size];
-		vertexList.clear();
+		live = null;
+		oracle = null;
+		years = null;
+		levels = null;
+		version = VERSIONS.incrementAndGet();
+		adjacency.clear();
+		if ( incidence != null )
+			incidence.clear();
+		index.clear();
+		components.clear();
 	}
 
 	/**
@@ -62,70 +371,80 @@ public class Graph	{
 	 * @return boolean if the graph is empty.
 	 */
 	public boolean isEmpty()	{
-		return ( size == 0 );
+		return ( numVertices() == 0 );
 	}
 	
 	/**
-	 * Determines if this graph is a connected graph or not.
+	 * Determines if this graph is a connected graph or not. Undirected graphs are answered<br>
+	 * from the component index without searching, unless a weighted edge was only added one<br>
+	 * way, which the index cannot tell apart, and then they are checked like directed ones.
 	 * @return boolean determining if this is connected.
 	 */
 	public boolean isConnected()	{
-		for ( int x = 0; x < size; x++ )	{
+		if ( components().numComponents() > 1 )	return false;
+		//every vertex of an undirected graph reaches the same set, a directed one is checked from each
+		if ( symmetric() )
+			return true;
+		int n = numVertices();
+		for ( int x = 0; x < n; x++ )	{
 			ArrayList t = bft ( getVertex ( x ).getKey() );
-			if ( t.size() != size )	return false;
+			if ( t.size() != n )	return false;
 		}
 		return true;
 	}
 	
+	/**
+	 * Finds the component a searchable key belongs to. Directed graphs are split into weakly<br>
+	 * connected components, linking vertecies an edge joins in either direction.
+	 * @param searchKey vertex to find.
+	 * @return int id shared by every vertex in the same component. Ids can change whenever the graph does.
+	 * @throws GraphException if the vertex is not in the graph.
+	 */
+	public int componentOf ( Comparable searchKey ) throws GraphException	{
+		int x = findIndex ( searchKey );
+		if ( x < 0 )	throw new GraphException ( "Vertex not in graph!" );
+		return components().find ( x );
+	}
+
+	/**
+	 * @return int number of connected components, weakly connected ones for directed graphs.
+	 */
+	public int numComponents()	{
+		return components().numComponents();
+	}
+
+	/**
+	 * @return int[] number of vertecies in each connected component, largest first.
+	 */
+	public int[] componentSizes()	{
+		return components().sizes();
+	}
+
+	/**
+	 * Private method for ruling out a path between two vertex indices without searching.<br>
+	 * A stale index is not rebuilt for it: rebuilding walks every edge, which costs more<br>
+	 * than the search it would save, so the search just runs until the next numComponents.
+	 * @return boolean true if the vertecies are in different components, so no path joins them.
+	 */
+	private boolean apart ( int x, int y )	{
+		return !components.isStale() && !components.connected ( x, y );
+	}
+
 	/**
 	 * Convienence method for determining the number of vertecies in the graph.
 	 * @return int of the size of the graph.pat
 	 */
 	public int numVertices()	{
-		return size;
+		return size - edges().numRemoved();
 	}
 
 	/**
-	 * Determines the number of edges between all points in the graph.
+	 * Determines the number of edges between all points in the graph.<br>
+	 * Movie graphs count the links between actors and their movies.
 	 * @return int of the number of edges.
 	 */
 	public int numEdges()	{
-		int c = 0;
-		for ( int x = 0; x < size; x++ )	{
-			for ( int y = 0; y < size; y++ )	{
-				if ( adjacent[x][y] != Double.POSITIVE_INFINITY )	{
-					c++;	//But wait, it's Java!
-				}
-			}
-		}
-		return c;
-	}
-
-	/**
-	 *  Method to resize the adjacency matrix.
-	 *  @param Size integer value of the size of the graph.
-	 */
-	private void resizeAdjacent ( int size )	{
-		double[][] temp = new double[size][size];
-		String[][] tmovie = new String[size][size];
-		int[][] tdate = new int[size][size];
-		for( int x = 0; x < size - 1; x++)
-			for ( int y = 0; y < size - 1; y++ )	{
-				temp[x][y] = adjacent[x][y];
-				tmovie[x][y] = movielist[x][y];
-				tdate[x][y] = datelist[x][y];
-			}
-		for ( int x = 0; x < size; x++ )	{
-			temp[x][size - 1] = Double.POSITIVE_INFINITY;
-            temp[size - 1][x] = Double.POSITIVE_INFINITY;
-            tmovie[x][size - 1] = "";
-            tmovie[size - 1][x] = "";
-            tdate[x][size - 1] = 0;
-            tdate[size - 1][x] = 0;
-		}
-		adjacent = temp;
-		movielist = tmovie;
-		datelist = tdate;
+		return edges().numEdges();
 	}
 
 	/**
@@ -133,29 +452,48 @@ public class Graph	{
 	 * @param GraphNode the node to be added.
 	 * @throws GraphException if the node is already in the graph.
 	 */
-	public void addVertex ( GraphNode myItem ) throws GraphException	{
+	public synchronized void addVertex ( GraphNode myItem ) throws GraphException	{
+		checkWritable();
 		if ( findIndex ( myItem.getKey() ) >= 0 )
 			throw new GraphException ( "Vertex already exists!" );
+		changed();
 		size++;
-		vertexList.add ( myItem );
-		resizeAdjacent ( vertexList.size() );
+		live = null;
+		index.add ( myItem.getKey() );
+		components.add();
+		if ( incidence != null )
+			incidence.addActor();
+		else
+			adjacency.addVertex();
 	}
 	
 	/**
 	 * Adds an edge with a weight.
 	 * @param searchKey1 first vertex to use in the edge.
 	 * @param searchKey2 second vertex to use in the edge.
-	 * @param weight double value of the edge between searchKey1 and searchKey2.
-	 * @throws GraphException if an edge already exists.
+	 * @param weight double value of the edge between searchKey1 and searchKey2, at least 0.
+	 * @throws GraphException if an edge already exists or the weight is negative.
 	 */
-	public void addEdge ( Comparable searchKey1, Comparable searchKey2, double weight ) throws GraphException	{
+	public synchronized void addEdge ( Comparable searchKey1, Comparable searchKey2, double weight ) throws GraphException	{
+		long start = GraphMetrics.start();
+		checkWritable();
+		//shortestPath settles vertecies lightest first, which a negative weight would undo
+		if ( !(weight >= 0) )
+			throw new GraphException ( "Edge weights cannot be negative!" );
 		int x = findIndex ( searchKey1 );
 		int y = findIndex ( searchKey2 );
 		if ( x < 0 || y < 0 )
 			throw new GraphException ( "No matching vertecies were found!" );
-		if ( adjacent[x][y] > 0 )
+		if ( incidence != null )
+			throw new GraphException ( "Movie graphs only link actors through movies!" );
+		if ( adjacency.find ( x, y ) >= 0 )
 			throw new GraphException ( "Edge already exists!" );
-		adjacent[x][y] = weight;
+		changed();
+		adjacency.set ( x, y, weight, -1 );
+		if ( !directed )
+			oneWay = true;
+		components.union ( x, y );
+		GraphMetrics.time ( GraphMetrics.ADD_EDGE, start );
 	}
 	
 	/**
@@ -166,23 +504,119 @@ public class Graph	{
 	 * @param date date of the movie's release.
 	 * @throws GraphException if a duplicate was found or if no vertecies were found.
 	 */
-	public void addEdge ( Comparable searchKey1, Comparable searchKey2, String movie, String date ) throws GraphException	{
+	public synchronized void addEdge ( Comparable searchKey1, Comparable searchKey2, String movie, String date ) throws GraphException	{
+		long start = GraphMetrics.start();
+		checkWritable();
 		int x = findIndex ( searchKey1 );
 		int y = findIndex ( searchKey2 );
 		if ( x < 0 || y < 0 )
 			throw new GraphException ( "No matching vertecies were found!" );
 		int datenum = Integer.parseInt ( date );
-		if ( datenum == 0 || datelist[x][y] < datenum || (datelist[x][y] == datenum && movielist[x][y].compareTo ( movie ) > 0) )	{
-			adjacent[x][y] = UNWEIGHTED_VALUE;
-			adjacent[y][x] = UNWEIGHTED_VALUE;
-			movielist[x][y] = movie;
-			movielist[y][x] = movie;
-			datelist[x][y] = datenum;
-			datelist[y][x] = datenum;
-		}
-		else	{
+		if ( incidence != null )	{
+			changed();
+			int m = incidence.addMovie ( movie, datenum );
+			//the pair joins whoever was already in the cast
+			int member = incidence.member ( m );
+			incidence.link ( x, m );
+			incidence.link ( y, m );
+			if ( member >= 0 )	components.union ( x, member );
+			components.union ( x, y );
+			GraphMetrics.time ( GraphMetrics.ADD_EDGE, start );
+			return;
+		}
+		if ( costar ( x, y, adjacency.movie ( movie, datenum ) ) == SKIPPED )
 			throw new GraphException ( "Duplicate edge exists!" );
+		changed();
+		GraphMetrics.time ( GraphMetrics.ADD_EDGE, start );
+	}
+
+	/**
+	 * Private method for linking two actors through a movie, in both directions.
+	 * @param x index of the first actor.
+	 * @param y index of the second actor.
+	 * @param movie id of the movie that both actors starred in, from AdjacencyList.movie.
+	 * @return int INSERTED, REPLACED, or SKIPPED if an older movie already links them.
+	 */
+	private int costar ( int x, int y, int movie )	{
+		int slot = adjacency.find ( x, y );
+		if ( slot < 0 )	{
+			adjacency.append ( x, y, UNWEIGHTED_VALUE, movie );
+			adjacency.set ( y, x, UNWEIGHTED_VALUE, movie );
+			components.union ( x, y );
+			return INSERTED;
+		}
+		//keep the oldest movie, ties go to the first title alphabetically
+		int current = adjacency.movieAt ( x, slot );
+		int date = movie < 0 ? 0 : adjacency.date ( movie );
+		int old = adjacency.dateAt ( x, slot );
+		if ( date == 0 || old > date || (old == date && current != movie
+				&& adjacency.compareTitle ( current, adjacency.title ( movie ) ) > 0) )	{
+			adjacency.update ( x, slot, UNWEIGHTED_VALUE, movie );
+			adjacency.set ( y, x, UNWEIGHTED_VALUE, movie );
+			return REPLACED;
 		}
+		return SKIPPED;
+	}
+
+	/**
+	 * Adds every actor of a movie to the graph and connects the whole cast through the movie.<br>
+	 * Movie graphs link each actor to the movie once, other graphs add an edge between every pair.
+	 * @param movie title of the movie.
+	 * @param date date of the movie's release.
+	 * @param cast keys of the actors in the movie.
+	 */
+	public void addMovie ( String movie, String date, Comparable[] cast )	{
+		addMovie ( movie, Integer.parseInt ( date ), cast );
+	}
+
+	/**
+	 * Adds every actor of a movie to the graph and connects the whole cast through the movie,<br>
+	 * looking each actor up once. A pair already linked by an older movie is skipped rather<br>
+	 * than reported as an error. Movie graphs count links between an actor and the movie.
+	 * @param movie title of the movie.
+	 * @param year year of the movie's release, 0 if unknown.
+	 * @param cast keys of the actors in the movie.
+	 * @return int[] counts of the pairs inserted, replaced and skipped, indexed by INSERTED, REPLACED and SKIPPED.
+	 */
+	public synchronized int[] addMovie ( String movie, int year, Comparable[] cast )	{
+		long start = GraphMetrics.start();
+		checkWritable();
+		int[] counts = new int[3];
+		int[] actors = new int[cast.length];
+		for ( int x = 0; x < cast.length; x++ )	{
+			actors[x] = findIndex ( cast[x] );
+			if ( actors[x] < 0 )	{
+				addVertex ( new GraphNode ( cast[x] ) );
+				actors[x] = size - 1;
+			}
+		}
+		if ( incidence != null )	{
+			int m = incidence.addMovie ( movie, year );
+			int member = incidence.member ( m );
+			for ( int x = 0; x < actors.length; x++ )	{
+				counts[incidence.link ( actors[x], m ) ? INSERTED : SKIPPED]++;
+				components.union ( actors[x], member >= 0 ? member : actors[0] );
+			}
+			changed();
+			GraphMetrics.time ( GraphMetrics.ADD_MOVIE, start );
+			return counts;
+		}
+		//the title is stored once for the whole cast
+		int m = adjacency.movie ( movie, year );
+		for ( int x = 0; x < actors.length - 1; x++ )	{
+			for ( int y = x + 1; y < actors.length; y++ )	{
+				//an actor listed twice is not their own co-star
+				if ( actors[x] == actors[y] )
+					counts[SKIPPED]++;
+				else
+					counts[costar ( actors[x], actors[y], m )]++;
+			}
+		}
+		//new actors were counted by addVertex, a cast whose pairs were all skipped changes nothing else
+		if ( counts[INSERTED] + counts[REPLACED] > 0 )
+			changed();
+		GraphMetrics.time ( GraphMetrics.ADD_MOVIE, start );
+		return counts;
 	}
 
 	/**
@@ -191,17 +625,24 @@ public class Graph	{
 	 * @param searchKey2 second vertex to find.
 	 * @throws GraphException if a duplicate was found or no matching vertecies found.
 	 */
-	public void addEdge ( Comparable searchKey1, Comparable searchKey2 ) throws GraphException	{  
+	public synchronized void addEdge ( Comparable searchKey1, Comparable searchKey2 ) throws GraphException	{  
+		long start = GraphMetrics.start();
+		checkWritable();
 		int x = findIndex ( searchKey1 );
 		int y = findIndex ( searchKey2 );
 		if ( x < 0 || y < 0 )
 			throw new GraphException ( "Vertecies not found!" );
-		if ( adjacent[x][y] > 0 )
+		if ( incidence != null )
+			throw new GraphException ( "Movie graphs only link actors through movies!" );
+		if ( adjacency.find ( x, y ) >= 0 )
 			throw new GraphException ( "Edge already exists!" );
-		adjacent[x][y] = UNWEIGHTED_VALUE;
+		changed();
+		adjacency.set ( x, y, UNWEIGHTED_VALUE, -1 );
 		if(!directed)	{
-			adjacent[y][x] = UNWEIGHTED_VALUE;
+			adjacency.set ( y, x, UNWEIGHTED_VALUE, -1 );
 		}
+		components.union ( x, y );
+		GraphMetrics.time ( GraphMetrics.ADD_EDGE, start );
 	}
 	
 	/**
@@ -215,7 +656,13 @@ public class Graph	{
 		int y = findIndex ( searchKey2 );
 		if ( x < 0 || y < 0 )
 			throw new GraphException ( "Edge does not exist!" );
-		return adjacent[x][y];
+		double weight = Double.POSITIVE_INFINITY;
+		EdgeCursor edges = cursor();
+		edges.reset ( x );
+		for ( int n = edges.next(); n >= 0; n = edges.next() )
+			if ( n == y && edges.weight() < weight )
+				weight = edges.weight();
+		return weight;
 	}
 	
 	/**
@@ -226,24 +673,51 @@ public class Graph	{
 	 * @throws GraphException if no edge was found.
 	 */
 	public String getMovie ( Comparable searchKey1, Comparable searchKey2 ) throws GraphException	{
+		return getMovie ( searchKey1, searchKey2, Integer.MIN_VALUE, Integer.MAX_VALUE );
+	}
+
+	/**
+	 * Returns the movie connection between two actors out of the movies released in a range<br>
+	 * of years, for describing a path found by a search limited to those years.
+	 * @param searchKey1 first actor to find.
+	 * @param searchKey2 second actor to find.
+	 * @param fromYear earliest year of a movie to pick.
+	 * @param toYear latest year of a movie to pick.
+	 * @return String representing the oldest and first movie alphabetically in range linking the two actors.
+	 * @throws GraphException if no edge was found.
+	 */
+	public String getMovie ( Comparable searchKey1, Comparable searchKey2, int fromYear, int toYear ) throws GraphException	{
 		int x = findIndex ( searchKey1 );
 		int y = findIndex ( searchKey2 );
 		if ( x < 0 || y < 0 )
 			throw new GraphException ( "Movie connection does not exist!" );
-		return movielist[x][y] + "(" + datelist[x][y] + ")";
+		//movie graphs can link two actors through several movies, pick the oldest then first alphabetically
+		String movie = null;
+		int date = 0;
+		EdgeCursor edges = cursor();
+		edges.reset ( x );
+		for ( int n = edges.next(); n >= 0; n = edges.next() )	{
+			if ( n != y || edges.movie() == null || edges.date() < fromYear || edges.date() > toYear )	continue;
+			if ( movie == null || edges.date() < date || (edges.date() == date && edges.movie().compareTo ( movie ) < 0) )	{
+				movie = edges.movie();
+				date = edges.date();
+			}
+		}
+		if ( movie == null )	return "(0)";
+		return movie + " (" + date + ")";
 	}
 	
 	/**
-	 * Returns a vertex by index.
+	 * Returns a vertex by index. Indices run from 0 to numVertices() - 1 in the order the<br>
+	 * vertecies were added, skipping removed ones.
 	 * @param index Integer number representing the vertex you want.
 	 * @return GraphNode of the vertex at the specified index.
 	 * @throws GraphException if index is out of range ( 1 - size ).
 	 */
 	public GraphNode getVertex ( int index ) throws GraphException	{
-		if ( index > size || index < 0 )
+		if ( index >= numVertices() || index < 0 )
 			throw new GraphException ( "Index out of bounds!" );
-		else
-			return (GraphNode)vertexList.get ( index );
+		return vertex ( slot ( index ) );
 	}
 	
 	/**
@@ -253,7 +727,15 @@ public class Graph	{
 	 * @throws GraphException if vertex is not found,
 	 */
 	public GraphNode getVertex ( Comparable searchKey ) throws GraphException	{
-		return getVertex ( findIndex ( searchKey ) );
+		return vertex ( findIndex ( searchKey ) );
+	}
+
+	/**
+	 * @param searchKey key to find.
+	 * @return boolean true if the key is a vertex of the graph.
+	 */
+	public boolean contains ( Comparable searchKey )	{
+		return findIndex ( searchKey ) >= 0;
 	}
 	
 	/**
@@ -263,30 +745,145 @@ public class Graph	{
 	 * @throws GraphException if the index is out of range.
 	 */
 	public Comparable getSearchKey ( int index ) throws GraphException	{
-		if ( index > size || index < 0 )
+		if ( index >= numVertices() || index < 0 )
 			throw new GraphException ( "Index out of range!" );
-		return ((GraphNode)(vertexList.get ( index ))).getKey();
+		return key ( slot ( index ) );
+	}
+
+	/**
+	 * Private method for building the GraphNode of a storage index.
+	 * @param x storage index of the vertex.
+	 * @return GraphNode of the vertex.
+	 * @throws GraphException if there is no such vertex.
+	 */
+	private GraphNode vertex ( int x ) throws GraphException	{
+		if ( x >= size || x < 0 )
+			throw new GraphException ( "Index out of bounds!" );
+		return new GraphNode ( key ( x ) );
+	}
+
+	/**
+	 * Private method for reading the key at a storage index.
+	 * @param x storage index of the vertex.
+	 * @return Comparable key of the vertex.
+	 */
+	private Comparable key ( int x )	{
+		if ( snapshot != null )
+			return snapshot.key ( x );
+		return (Comparable)index.get ( x );
+	}
+
+	/**
+	 * Private method for finding where the vertex at a position is stored. The two differ<br>
+	 * only while removed vertecies are waiting to be compacted, and in a view made by reorder.
+	 * @param position position of the vertex, 0 to numVertices() - 1.
+	 * @return int storage index of the vertex.
+	 */
+	private int slot ( int position )	{
+		if ( order != null )
+			return order[position];
+		if ( edges().numRemoved() == 0 )
+			return position;
+		int[] slots = live;
+		if ( slots == null )	{
+			slots = positions();
+			live = slots;
+		}
+		return slots[position];
+	}
+
+	/**
+	 * Private method for listing the storage index of every vertex that was not removed.
+	 * @return int[] storage index of each position, a new array the caller may change.
+	 */
+	private int[] positions()	{
+		if ( order != null )
+			return order.clone();
+		EdgeStore store = edges();
+		int[] slots = new int[numVertices()];
+		int n = 0;
+		for ( int x = 0; x < size; x++ )
+			if ( !store.isRemoved ( x ) )
+				slots[n++] = x;
+		return slots;
 	}
 	
 	/**
-	 * Private method for finding the index of a given searchable key.
+	 * Private method for finding the index of a given searchable key through the hash index.
 	 * @param key of the vertex to find in the graph. Assumes to be in the range 1 - size.
 	 * @return int representing the index of the vertex or -1 if no vertex is found.
 	 */
 	private int findIndex ( Comparable key )	{
-		for ( int i = 0; i < vertexList.size(); i++ )
-			if ( ((GraphNode)vertexList.get ( i )).getKey().compareTo ( key ) == 0 )
-				return i;
-		return -1;
+		if ( snapshot != null )
+			return snapshot.find ( key );
+		return index.find ( key );
 	}
-	
+
 	/**
-	 *  Clears all vertices, sets all to be unmarked.
+	 * Private method for reaching the level search, counting the degrees first after a change.
+	 * @return LevelSearch of the graph.
 	 */
-	private void clearMarks()	{
-		for ( int x = 0; x < size; x++ )	{
-			((GraphNode)vertexList.get ( x )).setMarked ( false );
+	private LevelSearch levels()	{
+		LevelSearch search = levels;
+		if ( search == null )	{
+			search = new LevelSearch ( edges(), size, directed );
+			levels = search;
 		}
+		return search;
+	}
+
+	/**
+	 * Private method for whether every edge leads back the other way, as the searches that<br>
+	 * treat the graph as undirected need. Only a graph that may hold one-way edges is counted.
+	 * @return boolean true if the graph is undirected and every edge has its reverse.
+	 */
+	private boolean symmetric()	{
+		return !directed && ( !oneWay || levels().symmetric() );
+	}
+
+	/**
+	 * Private method for reaching whichever storage holds the edges.
+	 * @return EdgeStore of the graph.
+	 */
+	private EdgeStore edges()	{
+		if ( packed != null )
+			return packed;
+		if ( snapshot != null )
+			return snapshot;
+		if ( incidence != null )
+			return incidence;
+		return adjacency;
+	}
+
+	/**
+	 * Private method for reaching the component index, rebuilt first if a removal left it stale.
+	 * @return ComponentIndex of the graph.
+	 */
+	private ComponentIndex components()	{
+		components.refresh ( edges(), size );
+		return components;
+	}
+
+	/**
+	 * Private method for reaching the year index, made empty the first time it is needed<br>
+	 * after a change. Its rows are only sorted as searches reach them.
+	 * @return YearIndex of the graph.
+	 */
+	private YearIndex years()	{
+		YearIndex index = years;
+		if ( index == null )	{
+			index = new YearIndex ( edges(), size );
+			years = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Private method for walking edges without caring how they are stored.
+	 * @return EdgeCursor over the edges of the graph.
+	 */
+	private EdgeCursor cursor()	{
+		return edges().cursor();
 	}
 
 	/**
@@ -295,73 +892,278 @@ public class Graph	{
 	 * @param searchKey2 second vertex to find.
 	 * @throws GraphException if vertecies do not exist.
 	 */
-	public void removeEdge ( Comparable searchKey1, Comparable searchKey2 ) throws GraphException	{
+	public synchronized void removeEdge ( Comparable searchKey1, Comparable searchKey2 ) throws GraphException	{
+		checkWritable();
 		int a = findIndex ( searchKey1 );
 		int b = findIndex ( searchKey2 );
 		if ( a == -1 || b == -1 )	throw new GraphException ( "Entry not found in list!" );
-		adjacent[a][b] = Double.POSITIVE_INFINITY;
-		movielist[a][b] = "";
+		if ( incidence != null )	throw new GraphException ( "Movie graphs only link actors through movies!" );
+		boolean removed = adjacency.remove ( a, b );
 		if ( !directed )	{
-			adjacent[b][a] = Double.POSITIVE_INFINITY;
-			movielist[b][a] = "";
+			removed |= adjacency.remove ( b, a );
 		}
+		if ( !removed )	return;
+		changed();
+		components.invalidate();
 	}
 	
 	/**
-	 * Removes a vertex by a searchable key.
+	 * Removes a vertex by a searchable key. Only the vertex's own edges are touched: it is<br>
+	 * marked as removed and searches skip it, and its index is given up at the next compact.
 	 * @param key the vertex to find.
 	 * @return GraphNode of the vertex removed from the graph.
 	 * @throws GraphException if the vertex is not in the graph.
 	 */
-	public GraphNode removeVertex ( Comparable key ) throws GraphException	{
-		int index = findIndex ( key );
-		if ( index == -1 )	throw new GraphException ( "Vertex not in graph!" ); 
-		double[][] temp = new double[adjacent.length - 1][adjacent.length - 1]; 
-		String[][] mtemp = new String[adjacent.length - 1][adjacent.length - 1]; 
-		for ( int row = 0; row < adjacent.length; row++ )	{
-			for ( int col = 0; col < adjacent[0].length; col++ ) {
-				if ( row != index && col != index )	{
-					int newrow = row;
-					int newcol = col;
-					/* make sure the row/col are not in the row/col of the vertex to be removed */
-					if ( row > index )	newrow = row - 1;
-					if ( col > index )	newcol = col - 1;
-					temp[newrow][newcol] = adjacent[row][col];
-					mtemp[newrow][newcol] = movielist[row][col];
+	public synchronized GraphNode removeVertex ( Comparable key ) throws GraphException	{
+		checkWritable();
+		int x = findIndex ( key );
+		if ( x == -1 )	throw new GraphException ( "Vertex not in graph!" ); 
+		changed();
+		GraphNode removed = vertex ( x );
+		//a vertex with one edge leading back is a leaf, whose removal leaves its component whole
+		boolean leaf = incidence == null && !directed && !oneWay && adjacency.degree ( x ) <= 1;
+		if ( incidence != null )
+			incidence.removeActor ( x );
+		else
+			adjacency.removeVertex ( x );
+		index.remove ( x );
+		if ( leaf )
+			components.remove ( x );
+		else
+			components.invalidate();
+		live = null;
+		return removed;
+	}
+
+	/**
+	 * Gives up the indices of removed vertecies and the space of the edges into them,<br>
+	 * renumbering the vertecies that are left. Views made before keep their own storage.
+	 * @throws GraphException if the graph is a read-only snapshot or view.
+	 */
+	public synchronized void compact() throws GraphException	{
+		checkWritable();
+		EdgeStore store = edges();
+		if ( store.numRemoved() == 0 )	return;
+		changed();
+		int[] map = new int[size];
+		int kept = 0;
+		for ( int x = 0; x < size; x++ )
+			map[x] = store.isRemoved ( x ) ? -1 : kept++;
+		if ( incidence != null )
+			incidence.compact ( map, kept );
+		else
+			adjacency.compact ( map, kept );
+		index.compact ( map, kept );
+		components.invalidate();
+		size = kept;
+		live = null;
+	}
+
+	/**
+	 * Compacts the graph if removed vertecies take up more than a fraction of its indices.
+	 * @param threshold fraction of removed vertecies, between 0 and 1, that triggers compaction.
+	 * @return boolean true if the graph was compacted.
+	 */
+	public synchronized boolean compact ( double threshold )	{
+		if ( snapshot != null || frozen || size == 0 )	return false;
+		if ( edges().numRemoved() <= threshold * size )	return false;
+		compact();
+		return true;
+	}
+
+	/**
+	 * Starts a daemon thread that checks every so often whether the graph needs compacting.<br>
+	 * Every change to the graph holds its lock, so compaction never lands in the middle of<br>
+	 * one. Compaction renumbers the vertecies, so searches that run while it may happen<br>
+	 * should be made on view() rather than on the graph itself.
+	 * @param threshold fraction of removed vertecies that triggers compaction.
+	 * @param millis milliseconds between checks.
+	 */
+	public synchronized void startCompaction ( final double threshold, final long millis )	{
+		stopCompaction();
+		compactor = new Thread ( new Runnable()	{
+			public void run()	{
+				try	{
+					while ( !Thread.currentThread().isInterrupted() )	{
+						Thread.sleep ( millis );
+						compact ( threshold );
+					}
+				}
+				catch ( InterruptedException exception )	{}
+			}
+		}, "Graph compactor" );
+		compactor.setDaemon ( true );
+		compactor.start();
+	}
+
+	/**
+	 * Stops the background compaction started by startCompaction, if any.
+	 */
+	public synchronized void stopCompaction()	{
+		if ( compactor == null )	return;
+		compactor.interrupt();
+		compactor = null;
+	}
+	
+	/**
+	 * Precomputes a distance oracle: a breadth-first search from each of several landmarks,<br>
+	 * the vertecies with the most edges, keeping one byte per vertex and landmark. It lets<br>
+	 * distanceBounds answer in time proportional to the landmarks and steers shortestPath<br>
+	 * toward its target. Any change to the graph drops the oracle, while views keep the<br>
+	 * one their graph had when committed, so snapshots and views are the graphs to build it on.
+	 * @param landmarks number of landmarks to search from, 0 drops the oracle.
+	 */
+	public synchronized void buildOracle ( int landmarks )	{
+		oracle = landmarks > 0 ? new DistanceOracle ( edges(), size, landmarks, directed ) : null;
+	}
+
+	/**
+	 * @return boolean true if buildOracle made an oracle that no change has dropped since.
+	 */
+	public boolean hasOracle()	{
+		return oracle != null;
+	}
+
+	/**
+	 * Installs a cache for the answers of bfs and shortestPath, which views committed from<br>
+	 * then on share. Changing the graph leaves the cache in place, its answers from before the<br>
+	 * change just go unused, so a cache is best put on a graph that is searched far more often<br>
+	 * than it is changed. bfs may answer from a cached tree with a different path of the same length.
+	 * @param cache cache to use, null to search every time.
+	 */
+	public synchronized void setCache ( QueryCache cache )	{
+		this.cache = cache;
+	}
+
+	/**
+	 * @return QueryCache the cache setCache installed, null if there is none.
+	 */
+	public QueryCache getCache()	{
+		return cache;
+	}
+
+	/**
+	 * Bounds the degrees of separation between two searchable keys from the landmark distances,<br>
+	 * without searching the graph.
+	 * @param searchKey1 first key to find.
+	 * @param searchKey2 second key to find.
+	 * @return int[] the least and the most edges between the keys. The least is Integer.MAX_VALUE<br>
+	 * if no path can exist, the most is Integer.MAX_VALUE if no landmark links the two.
+	 * @throws GraphException if there is no oracle or either key is not in the graph.
+	 */
+	public int[] distanceBounds ( Comparable searchKey1, Comparable searchKey2 ) throws GraphException	{
+		DistanceOracle distances = oracle;
+		if ( distances == null )	throw new GraphException ( "No distance oracle has been built!" );
+		int a = findIndex ( searchKey1 );
+		int b = findIndex ( searchKey2 );
+		if ( a < 0 || b < 0 )	throw new GraphException ( "Vertex not in graph!" );
+		if ( a == b )	return new int[] { 0, 0 };
+		int[] column = distances.column ( b );
+		return new int[] { distances.lower ( a, column ), distances.upper ( a, column ) };
+	}
+
+	/**
+	 * Returns the vertecies one edge away from a searchable key, each listed once.
+	 * @param searchKey vertex to start from.
+	 * @return ArrayList of the neighboring vertecies.
+	 * @throws GraphException if the vertex is not in the graph.
+	 */
+	public ArrayList neighbors ( Comparable searchKey ) throws GraphException	{
+		int start = findIndex ( searchKey );
+		if ( start < 0 )	throw new GraphException ( "Vertex not in graph!" );
+		ArrayList neighborList = new ArrayList();
+		QueryState state = QueryState.begin ( size );
+		try	{
+			int[] marked = state.markF;
+			int epoch = state.epoch;
+			marked[start] = epoch;
+			EdgeCursor edges = cursor();
+			edges.reset ( start );
+			for ( int g = edges.next(); g >= 0; g = edges.next() )	{
+				if ( marked[g] != epoch )	{
+					marked[g] = epoch;
+					neighborList.add ( vertex ( g ) );
 				}
 			}
+			return neighborList;
+		}
+		finally	{
+			state.end();
 		}
-		adjacent = temp;
-		movielist = mtemp;
-		size--;
-		return (GraphNode)vertexList.remove ( index );
 	}
-	
+
 	/**
 	 * Returns the breadth-first traversal of a searchable key.
 	 * @param searchKey vertex to start from.
 	 * @return ArrayList of the vertecies in the path. Empty if no path is found.
 	 */
 	public ArrayList bft ( Comparable searchKey )	{
-		GraphNode temp;
+		long start = GraphMetrics.start();
+		try	{
+			return bft ( searchKey, cursor() );
+		}
+		finally	{
+			GraphMetrics.time ( GraphMetrics.BFT, start );
+		}
+	}
+
+	/**
+	 * Returns the breadth-first traversal of a searchable key, only following edges whose movie<br>
+	 * was released in a range of years. Each edge carries the date of the oldest movie linking<br>
+	 * its actors, so a range that starts after that movie leaves the edge out even if a later<br>
+	 * movie links them too. Movie graphs keep every movie and have no such gap.
+	 * @param searchKey vertex to start from.
+	 * @param fromYear earliest year of a movie to follow.
+	 * @param toYear latest year of a movie to follow.
+	 * @return ArrayList of the vertecies in the path. Empty if no path is found.
+	 */
+	public ArrayList bft ( Comparable searchKey, int fromYear, int toYear )	{
+		long start = GraphMetrics.start();
+		try	{
+			return bft ( searchKey, years().cursor ( fromYear, toYear ) );
+		}
+		finally	{
+			GraphMetrics.time ( GraphMetrics.BFT, start );
+		}
+	}
+
+	/**
+	 * Private method for the breadth-first traversal over whichever edges a cursor walks.
+	 */
+	private ArrayList bft ( Comparable searchKey, EdgeCursor edges )	{
 		ArrayList searchList = new ArrayList();
-		ArrayList bfsQueue = new ArrayList ( size );
-		bfsQueue.add ( bfsQueue.size(), vertexList.get ( findIndex ( searchKey ) ) );
-		getVertex ( searchKey ).setMarked ( true );
-		searchList.add ( getVertex ( searchKey ) );
-
-		while ( !bfsQueue.isEmpty() )	{
-			temp = (GraphNode)bfsQueue.remove ( 0 );
-			for ( int g = 0; g < size; g++ )	{
-				if ( adjacent[findIndex ( temp.getKey() )][g] != Double.POSITIVE_INFINITY && !getVertex ( g ).isMarked() )	{
-					((GraphNode)vertexList.get ( g )).setMarked ( true );
-					bfsQueue.add ( bfsQueue.size(), vertexList.get ( g ) );
-					searchList.add ( getVertex ( g ) );
+		int start = findIndex ( searchKey );
+		searchList.add ( vertex ( start ) );
+		//marks live with the search rather than the vertices
+		QueryState state = QueryState.begin ( size );
+		try	{
+			int[] marked = state.markF;
+			int epoch = state.epoch;
+			int[] bfsQueue = state.queueF;
+			int head = 0;
+			int tail = 0;
+			bfsQueue[tail++] = start;
+			marked[start] = epoch;
+			//most vertices queued at once, only kept for GraphMetrics
+			int widest = 0;
+
+			while ( head < tail )	{
+				if ( GraphMetrics.ENABLED && tail - head > widest )	widest = tail - head;
+				edges.reset ( bfsQueue[head++] );
+				for ( int g = edges.next(); g >= 0; g = edges.next() )	{
+					if ( marked[g] != epoch )	{
+						marked[g] = epoch;
+						bfsQueue[tail++] = g;
+						searchList.add ( vertex ( g ) );
+					}
 				}
 			}
+			GraphMetrics.search ( GraphMetrics.BFT, tail, widest );
+			return searchList;
+		}
+		finally	{
+			state.end();
 		}
-		clearMarks();
-		return searchList;
 	}
 
 	/**
@@ -369,53 +1171,381 @@ public class Graph	{
 	 * @return int representing the diameter of the graph.
 	 */
 	public double diameter()	{
-		// early check... can make it take a really long time
-		if ( !isConnected() )	return Double.POSITIVE_INFINITY;
-		System.out.println ( "Graph is connected." );
-		double mins[] = new double[size];
-		// find all shortest paths and determine the maximum of each
-		for ( int x = 0; x < size; x++ )	{
-			mins[x] = 0.0;
-			Comparable key = getVertex ( x ).getKey();
-			for ( int y = 0; y < size; y++ )	{
-				if ( x == y )	continue;
-				ArrayList path = shortestPath ( key, getVertex ( y ).getKey() );
-				if ( path.size() > mins[x] )	mins[x] = path.size();
-			}
+		if ( numVertices() == 0 )	return 0;
+		ArrayList path = diameterPath();
+		if ( path.isEmpty() )	return Double.POSITIVE_INFINITY;
+		// return num edges between them, not number of nodes
+		return path.size() - 1;
+	}
+
+	/**
+	 * Finds a longest shortest path in the graph, whose ends are the two vertecies furthest apart.<br>
+	 * Undirected graphs are searched with iFUB, which usually needs only a few breadth-first<br>
+	 * searches. Directed graphs, and undirected ones with an edge that only leads one way,<br>
+	 * search from every vertex on all processors.
+	 * @return ArrayList of the vertecies along the path, empty if the graph is unconnected.
+	 */
+	public ArrayList diameterPath()	{
+		//iFUB bounds eccentricities from both ends of every edge, which a one-way edge breaks
+		if ( !symmetric() )
+			return diameterPath ( Runtime.getRuntime().availableProcessors() );
+		long start = GraphMetrics.start();
+		try	{
+			if ( numComponents() > 1 )
+				return new ArrayList();
+			return vertices ( new DiameterFinder ( edges(), size ).find() );
 		}
-		// find the minimum of the paths
-		double max = mins[0];
-		for ( int x = 0; x < size; x++ )	{
-			if ( mins[x] > max )	max = mins[x];
+		finally	{
+			GraphMetrics.time ( GraphMetrics.DIAMETER, start );
+		}
+	}
+
+	/**
+	 * Finds a longest shortest path in the graph with a breadth-first search from every vertex,<br>
+	 * spread across several threads.
+	 * @param threads number of threads to search with.
+	 * @return ArrayList of the vertecies along the path, empty if the graph is unconnected.
+	 */
+	public ArrayList diameterPath ( int threads )	{
+		long start = GraphMetrics.start();
+		try	{
+			if ( numComponents() > 1 )
+				return new ArrayList();
+			return vertices ( new DiameterFinder ( edges(), size ).findAllSources ( threads ) );
+		}
+		finally	{
+			GraphMetrics.time ( GraphMetrics.DIAMETER, start );
 		}
-		// return num edges between them, not number of nodes
-		return max - 1;
+	}
+
+	/**
+	 * Private method for turning vertex indices into their GraphNodes.
+	 * @param indices indices of the vertecies, may be null.
+	 * @return ArrayList of the GraphNodes, empty if there are no indices.
+	 */
+	private ArrayList vertices ( int[] indices )	{
+		ArrayList list = new ArrayList();
+		if ( indices == null )	return list;
+		for ( int x = 0; x < indices.length; x++ )
+			list.add ( vertex ( indices[x] ) );
+		return list;
 	}
 	
 	/**
-	 * Returns a breadth-first search between two searchable keys.
+	 * Returns a breadth-first search between two searchable keys. The search grows from both keys<br>
+	 * at once, always expanding whichever frontier is smaller, and stops at the level where the two<br>
+	 * searches meet. Directed graphs can only be searched forward from the first key.
+	 * @param searchKey1 first key to find.
+	 * @param searchKey2 second key to find.
+	 * @return ArrayList containing the path between the two keys, empty if no path is possible.
+	 * @throws GraphException if either key is not in the graph.
+	 */
+	public ArrayList bfs ( Comparable searchKey1, Comparable searchKey2 ) throws GraphException	{
+		long start = GraphMetrics.start();
+		try	{
+			QueryCache results = cache;
+			if ( results == null )
+				return bfs ( searchKey1, searchKey2, cursor() );
+			long stamp = version;
+			ArrayList path = treePath ( results, stamp, searchKey1, searchKey2 );
+			if ( path != null )	return path;
+			path = results.get ( stamp, QueryCache.BFS, searchKey1, searchKey2, Integer.MIN_VALUE, Integer.MAX_VALUE );
+			if ( path != null )	return new ArrayList ( path );
+			path = bfs ( searchKey1, searchKey2, cursor() );
+			results.put ( stamp, QueryCache.BFS, searchKey1, searchKey2, Integer.MIN_VALUE, Integer.MAX_VALUE, new ArrayList ( path ) );
+			if ( symmetric() && results.hot ( stamp, searchKey1, size ) )
+				results.putTree ( stamp, searchKey1, levels().run ( findIndex ( searchKey1 ), null, null ) );
+			return path;
+		}
+		finally	{
+			GraphMetrics.time ( GraphMetrics.BFS, start );
+		}
+	}
+
+	/**
+	 * Returns a breadth-first search between two searchable keys that only follows edges whose<br>
+	 * movie was released in a range of years, dated the way bft with a range dates them.
 	 * @param searchKey1 first key to find.
 	 * @param searchKey2 second key to find.
+	 * @param fromYear earliest year of a movie to follow.
+	 * @param toYear latest year of a movie to follow.
 	 * @return ArrayList containing the path between the two keys, empty if no path is possible.
+	 * @throws GraphException if either key is not in the graph.
+	 */
+	public ArrayList bfs ( Comparable searchKey1, Comparable searchKey2, int fromYear, int toYear ) throws GraphException	{
+		long start = GraphMetrics.start();
+		try	{
+			QueryCache results = cache;
+			if ( results == null )
+				return bfs ( searchKey1, searchKey2, years().cursor ( fromYear, toYear ) );
+			long stamp = version;
+			ArrayList path = results.get ( stamp, QueryCache.BFS, searchKey1, searchKey2, fromYear, toYear );
+			if ( path != null )	return new ArrayList ( path );
+			path = bfs ( searchKey1, searchKey2, years().cursor ( fromYear, toYear ) );
+			results.put ( stamp, QueryCache.BFS, searchKey1, searchKey2, fromYear, toYear, new ArrayList ( path ) );
+			return path;
+		}
+		finally	{
+			GraphMetrics.time ( GraphMetrics.BFS, start );
+		}
+	}
+
+	/**
+	 * Counts the edges on a shortest path from one vertex to each of several others with a<br>
+	 * single breadth-first search, which stops as soon as every target that can be reached<br>
+	 * has been. Targets outside the source's component are never searched for.
+	 * @param searchKey vertex to start from.
+	 * @param targets keys to find, may repeat.
+	 * @return int[] number of edges to each target, -1 if there is no path or the target is not in the graph.
+	 * @throws GraphException if the starting key is not in the graph.
+	 */
+	public int[] separation ( Comparable searchKey, Comparable[] targets ) throws GraphException	{
+		long timer = GraphMetrics.start();
+		int start = findIndex ( searchKey );
+		if ( start < 0 )
+			throw new GraphException ( "Vertex not in graph!" );
+		int[] found = new int[targets.length];
+		int[] indices = new int[targets.length];
+		QueryState state = QueryState.begin ( size );
+		try	{
+			int epoch = state.epoch;
+			int[] marked = state.markF;
+			int[] depth = state.depthF;
+			int[] queue = state.queueF;
+			//targets still to reach are marked from the back, each one counted once
+			int[] wanted = state.markB;
+			int left = 0;
+			for ( int t = 0; t < targets.length; t++ )	{
+				indices[t] = findIndex ( targets[t] );
+				int v = indices[t];
+				if ( v < 0 || v == start || wanted[v] == epoch || apart ( start, v ) )	continue;
+				wanted[v] = epoch;
+				left++;
+			}
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = start;
+			marked[start] = epoch;
+			depth[start] = 0;
+			EdgeCursor edges = cursor();
+			//most vertices queued at once, only kept for GraphMetrics
+			int widest = 0;
+			while ( left > 0 && head < tail )	{
+				if ( GraphMetrics.ENABLED && tail - head > widest )	widest = tail - head;
+				int u = queue[head++];
+				edges.reset ( u );
+				for ( int v = edges.next(); v >= 0; v = edges.next() )	{
+					if ( marked[v] == epoch )	continue;
+					marked[v] = epoch;
+					depth[v] = depth[u] + 1;
+					queue[tail++] = v;
+					if ( wanted[v] == epoch )	left--;
+				}
+			}
+			GraphMetrics.search ( GraphMetrics.SEPARATION, tail, widest );
+			for ( int t = 0; t < targets.length; t++ )	{
+				int v = indices[t];
+				found[t] = v >= 0 && marked[v] == epoch ? depth[v] : -1;
+			}
+			GraphMetrics.time ( GraphMetrics.SEPARATION, timer );
+			return found;
+		}
+		finally	{
+			state.end();
+		}
+	}
+
+	/**
+	 * Counts the edges on a shortest path from one vertex to every other, a full table of<br>
+	 * "Bacon numbers", with each level of the search split across the common ForkJoinPool.<br>
+	 * Large levels of undirected graphs are searched bottom-up, see LevelSearch.
+	 * @param searchKey vertex to start from.
+	 * @return int[] number of edges to the vertex at each position, numbered as getSearchKey numbers them, -1 if there is no path.
+	 * @throws GraphException if the key is not in the graph.
+	 */
+	public int[] distances ( Comparable searchKey ) throws GraphException	{
+		return distances ( searchKey, ForkJoinPool.getCommonPoolParallelism() );
+	}
+
+	/**
+	 * Counts the edges on a shortest path from one vertex to every other, on a given number<br>
+	 * of threads.
+	 * @param searchKey vertex to start from.
+	 * @param threads number of threads to search with, 1 searches on the calling thread alone.
+	 * @return int[] number of edges to the vertex at each position, numbered as getSearchKey numbers them, -1 if there is no path.
+	 * @throws GraphException if the key is not in the graph.
+	 */
+	public int[] distances ( Comparable searchKey, int threads ) throws GraphException	{
+		long timer = GraphMetrics.start();
+		int source = findIndex ( searchKey );
+		if ( source < 0 )
+			throw new GraphException ( "Vertex not in graph!" );
+		ForkJoinPool pool = null;
+		if ( threads > 1 )
+			pool = threads == ForkJoinPool.getCommonPoolParallelism() ? ForkJoinPool.commonPool() : new ForkJoinPool ( threads );
+		int[] visits = new int[2];
+		int[] dist;
+		try	{
+			dist = levels().run ( source, pool, visits );
+		}
+		finally	{
+			if ( pool != null && pool != ForkJoinPool.commonPool() )
+				pool.shutdown();
+		}
+		GraphMetrics.search ( GraphMetrics.DISTANCES, visits[0], visits[1] );
+		//removed vertecies leave gaps in the storage indices that positions skip
+		if ( order != null || edges().numRemoved() > 0 )	{
+			int[] slots = positions();
+			int[] byPosition = new int[slots.length];
+			for ( int p = 0; p < slots.length; p++ )
+				byPosition[p] = dist[slots[p]];
+			dist = byPosition;
+		}
+		GraphMetrics.time ( GraphMetrics.DISTANCES, timer );
+		return dist;
+	}
+
+	/**
+	 * Counts how many vertecies lie at each distance in a table made by distances.
+	 * @param distances distances from one vertex.
+	 * @return int[] number of vertecies at each number of edges, the vertex itself at 0. Unreachable vertecies are not counted.
+	 */
+	public static int[] histogram ( int[] distances )	{
+		int most = -1;
+		for ( int x = 0; x < distances.length; x++ )
+			if ( distances[x] > most )	most = distances[x];
+		int[] counts = new int[most + 1];
+		for ( int x = 0; x < distances.length; x++ )
+			if ( distances[x] >= 0 )	counts[distances[x]]++;
+		return counts;
+	}
+
+	/**
+	 * Private method for the bidirectional search over whichever edges a cursor walks.
+	 */
+	private ArrayList bfs ( Comparable searchKey1, Comparable searchKey2, EdgeCursor edges ) throws GraphException	{
+		int source = findIndex ( searchKey1 );
+		int target = findIndex ( searchKey2 );
+		if ( source < 0 || target < 0 )
+			throw new GraphException ( "Vertex not in graph!" );
+		ArrayList path = new ArrayList();
+		if ( source == target )	{
+			path.add ( vertex ( source ) );
+			return path;
+		}
+		if ( apart ( source, target ) )	return path;
+		QueryState state = QueryState.begin ( size );
+		try	{
+			int epoch = state.epoch;
+			//marked by each end, the distance from that end is only kept for marked vertices
+			int[] markF = state.markF;
+			int[] markB = state.markB;
+			int[] depthF = state.depthF;
+			int[] depthB = state.depthB;
+			//the vertex before each vertex on the way from the source, and after it on the way to the target
+			int[] parentF = state.parentF;
+			int[] parentB = state.parentB;
+			//each queue holds the vertices of its search in order, the current level starts at head
+			int[] queueF = state.queueF;
+			int[] queueB = state.queueB;
+			int headF = 0, tailF = 1, headB = 0, tailB = 1;
+			queueF[0] = source;
+			queueB[0] = target;
+			markF[source] = epoch;
+			markB[target] = epoch;
+			depthF[source] = 0;
+			depthB[target] = 0;
+			int meet = -1;
+			int best = Integer.MAX_VALUE;
+			//largest level either end expanded, only kept for GraphMetrics
+			int widest = 0;
+
+			while ( meet < 0 && headF < tailF && headB < tailB )	{
+				boolean forward = directed || tailF - headF <= tailB - headB;
+				int[] queue = forward ? queueF : queueB;
+				int[] mark = forward ? markF : markB;
+				int[] depth = forward ? depthF : depthB;
+				int[] otherMark = forward ? markB : markF;
+				int[] other = forward ? depthB : depthF;
+				int[] parent = forward ? parentF : parentB;
+				int head = forward ? headF : headB;
+				int tail = forward ? tailF : tailB;
+				int level = tail;
+				if ( GraphMetrics.ENABLED && level - head > widest )	widest = level - head;
+				//expand the whole level so the shortest of its meetings is kept
+				for ( ; head < level; head++ )	{
+					int u = queue[head];
+					edges.reset ( u );
+					for ( int v = edges.next(); v >= 0; v = edges.next() )	{
+						if ( mark[v] == epoch )	continue;
+						mark[v] = epoch;
+						depth[v] = depth[u] + 1;
+						parent[v] = u;
+						queue[tail++] = v;
+						if ( otherMark[v] == epoch && depth[v] + other[v] < best )	{
+							best = depth[v] + other[v];
+							meet = v;
+						}
+					}
+				}
+				if ( forward )	{
+					headF = head;
+					tailF = tail;
+				}
+				else	{
+					headB = head;
+					tailB = tail;
+				}
+			}
+			GraphMetrics.search ( GraphMetrics.BFS, tailF + tailB, widest );
+			if ( meet < 0 )	return path;
+
+			for ( int v = meet; v != source; v = parentF[v] )
+				path.add ( 0, vertex ( v ) );
+			path.add ( 0, vertex ( source ) );
+			for ( int v = meet; v != target; )	{
+				v = parentB[v];
+				path.add ( vertex ( v ) );
+			}
+			return path;
+		}
+		finally	{
+			state.end();
+		}
+	}
+
+	/**
+	 * Private method for a bfs answered from a cached tree, which holds the distance of every<br>
+	 * vertex from its source. The path is walked from the other key toward the source one<br>
+	 * level at a time, each step to the first neighbor one edge closer. Trees are only kept<br>
+	 * for undirected graphs whose every edge has its reverse, so each such neighbor leads back.
+	 * @return ArrayList the path, empty if there is none, null if neither key has a tree.
 	 */
-	public ArrayList bfs ( Comparable searchKey1, Comparable searchKey2 )	{
-		ArrayList p = bft ( searchKey1 );
-		Comparable curkey = searchKey1;
-		int x = 0;
-		for ( x = 0; x < p.size() && curkey.compareTo ( searchKey2 ) != 0; x++ )
-			curkey = ((GraphNode) p.get ( x )).getKey();
-		
-		if ( x > p.size() / 2 )	{
-			for ( int y = p.size() - 1; y > x; y-- )
-				p.remove( y );
-		}
-		else	{
-			ArrayList q = new ArrayList ( x );
-			for ( int y = 0; y <= x; y++ )
-				q.add ( p.get ( x ) );
-			p = q;
-		}
-		return p;
+	private ArrayList treePath ( QueryCache results, long stamp, Comparable searchKey1, Comparable searchKey2 ) throws GraphException	{
+		int[] dist = results.tree ( stamp, searchKey1 );
+		boolean backward = dist != null;
+		if ( dist == null )
+			dist = results.tree ( stamp, searchKey2 );
+		if ( dist == null )	return null;
+		int v = findIndex ( backward ? searchKey2 : searchKey1 );
+		if ( v < 0 )
+			throw new GraphException ( "Vertex not in graph!" );
+		ArrayList path = new ArrayList();
+		if ( dist[v] < 0 )	return path;
+		path.add ( vertex ( v ) );
+		EdgeCursor edges = cursor();
+		while ( dist[v] > 0 )	{
+			edges.reset ( v );
+			int u = edges.next();
+			while ( dist[u] != dist[v] - 1 )
+				u = edges.next();
+			v = u;
+			if ( backward )
+				path.add ( 0, vertex ( v ) );
+			else
+				path.add ( vertex ( v ) );
+		}
+		return path;
 	}
 	
 	/**
@@ -425,107 +1555,198 @@ public class Graph	{
 	 * @throws GraphException if no path is found.
 	 */
 	public ArrayList dfs ( Comparable searchKey ) throws GraphException	{
+		long timer = GraphMetrics.start();
 		ArrayList dfsList = new ArrayList();
-		dfsList = dfsRec ( getVertex ( searchKey ), dfsList );
-		clearMarks();
-		if ( dfsList.isEmpty() )	{
-			throw new GraphException ( "No path is found!" );
+		int start = findIndex ( searchKey );
+		vertex ( start );
+		QueryState state = QueryState.begin ( size );
+		try	{
+			int[] marked = state.markF;
+			int epoch = state.epoch;
+			//one cursor for each level of the search, the deepest one is being walked
+			EdgeCursor[] stack = new EdgeCursor[16];
+			int depth = 0;
+			stack[0] = cursor();
+			stack[0].reset ( start );
+			dfsList.add ( vertex ( start ) );
+			marked[start] = epoch;
+			//deepest the stack went, only kept for GraphMetrics
+			int widest = 0;
+			while ( depth >= 0 )	{
+				int j = stack[depth].next();
+				if ( j < 0 )	{
+					depth--;
+					continue;
+				}
+				if ( marked[j] == epoch )	continue;
+				//go down to the vertex before finishing the rest of this level
+				dfsList.add ( vertex ( j ) );
+				marked[j] = epoch;
+				if ( ++depth == stack.length )
+					stack = Arrays.copyOf ( stack, depth * 2 );
+				if ( GraphMetrics.ENABLED && depth > widest )	widest = depth;
+				if ( stack[depth] == null )
+					stack[depth] = cursor();
+				stack[depth].reset ( j );
+			}
+			if ( dfsList.isEmpty() )	{
+				throw new GraphException ( "No path is found!" );
+			}
+			GraphMetrics.search ( GraphMetrics.DFS, dfsList.size(), widest + 1 );
+			GraphMetrics.time ( GraphMetrics.DFS, timer );
+			return dfsList;
 		}
-		return dfsList;
-	}
-
-	/**
-	 *  Private recursive method called to generate a breadth-first search.
-	 *  @param vertex GraphNode to search from.
-	 *  @param searchRecList list to use while recursing. 
-	 *  @return ArrayList of the generated path. 
-	 */
-	private ArrayList dfsRec ( GraphNode vertex, ArrayList searchRecList )	{
-		searchRecList.add ( vertex );
-		vertex.setMarked ( true );
-		int i = vertexList.indexOf ( vertex );
-		for ( int j = 0; j<size; j++ )	{
-			if ( adjacent[i][j] != Double.POSITIVE_INFINITY && !(getVertex ( j )).isMarked() )
-				dfsRec( getVertex ( j ), searchRecList );
+		finally	{
+			state.end();
 		}
-		return searchRecList;
 	}
 
    /**
-    * Used to calculate the shortest distance between two vertices using Djisktra's algorithm.
+    * Used to calculate the shortest distance between two vertices using Djisktra's algorithm.<br>
+    * Once buildOracle has run, an A* search guided by the landmark bounds takes its place.<br>
+    * Either search stops as soon as it reaches the last vertex, and pathCost gives the weight of the path.
     * @throws GraphException if both Comparables are equal or there is no connecting path.
     * @return ArrayList containing the path between the two items in the Graph.
     */
 	public ArrayList shortestPath ( Comparable firstkey, Comparable lastkey ) throws GraphException	{
+		long start = GraphMetrics.start();
+		try	{
+			return shortestPath ( firstkey, lastkey, Integer.MIN_VALUE, Integer.MAX_VALUE, false );
+		}
+		finally	{
+			GraphMetrics.time ( GraphMetrics.SHORTEST_PATH, start );
+		}
+	}
+
+	/**
+	 * Finds the shortest path between two vertices that only follows edges whose movie was<br>
+	 * released in a range of years, dated the way bft with a range dates them.
+	 * @param fromYear earliest year of a movie to follow.
+	 * @param toYear latest year of a movie to follow.
+	 * @throws GraphException if both Comparables are equal or there is no connecting path.
+	 * @return ArrayList containing the path between the two items in the Graph.
+	 */
+	public ArrayList shortestPath ( Comparable firstkey, Comparable lastkey, int fromYear, int toYear ) throws GraphException	{
+		long start = GraphMetrics.start();
+		try	{
+			return shortestPath ( firstkey, lastkey, fromYear, toYear, true );
+		}
+		finally	{
+			GraphMetrics.time ( GraphMetrics.SHORTEST_PATH, start );
+		}
+	}
+
+	/**
+	 * Private method for the shortest path through the cache, if there is one. Only paths<br>
+	 * found are kept, a query with none searches again.
+	 */
+	private ArrayList shortestPath ( Comparable firstkey, Comparable lastkey, int fromYear, int toYear, boolean limited ) throws GraphException	{
+		QueryCache results = cache;
+		if ( results == null )
+			return shortestPath ( firstkey, lastkey, limited ? years().cursor ( fromYear, toYear ) : cursor() );
+		long stamp = version;
+		ArrayList path = results.get ( stamp, QueryCache.SHORTEST_PATH, firstkey, lastkey, fromYear, toYear );
+		if ( path != null )	return new ArrayList ( path );
+		path = shortestPath ( firstkey, lastkey, limited ? years().cursor ( fromYear, toYear ) : cursor() );
+		results.put ( stamp, QueryCache.SHORTEST_PATH, firstkey, lastkey, fromYear, toYear, new ArrayList ( path ) );
+		return path;
+	}
+
+	/**
+	 * Private method for the shortest path over whichever edges a cursor walks.
+	 */
+	private ArrayList shortestPath ( Comparable firstkey, Comparable lastkey, EdgeCursor edges ) throws GraphException	{
 		if ( firstkey.compareTo ( lastkey ) == 0 )
 			throw new GraphException ( "Cannot find shortest path to same vertex!" );
-		/* the arraylist containing the raw path array */
-		ArrayList path = new ArrayList ( vertexList.size() );
-		/* mark the first vertex */
-		getVertex ( firstkey ).setMarked ( true );
 		/* indexes of the first and last search keys */
 		int firstindex = findIndex ( firstkey );
 		int secondindex = findIndex ( lastkey );
-		/* the row of the adjacency matrix at firstindex */
-		double[] weight = new double[vertexList.size()];
-		/* initialize the weight/path arrays */
-		for ( int i = 0; i < weight.length; i++ )	{
-			path.add ( vertexList.get ( i ) );
-			weight[i] = adjacent[firstindex][i];
-			/* if the weight is not infinity we must change the path to reflect the changes */
-			if ( weight[i] < Double.POSITIVE_INFINITY )
-	            path.set ( i, getVertex ( firstkey ) );
-		}
-		/* loop through all the elements in the graph, must mark them all */
-		for ( int i = 1; i < vertexList.size(); i++ )	{
-			/* index of smallest vertex */
-			int smallest = -1;
-			/* smallest weight thus far that is not marked */
-			double smallestweight = Double.POSITIVE_INFINITY;
-			for ( int j = 0; j < weight.length; j++ )
-				/* run through the weight array and find the smallest weight */
-				if ( smallestweight >= weight[j] && !((GraphNode)vertexList.get ( j )).isMarked() )	{
-					/* note smallest vertex */
-					smallest = j;
-					smallestweight = weight[j];
-				}
-			//if ( smallest == -1 )	continue;
-			/* mark smallest vertex */
-			GraphNode smallnode = (GraphNode)vertexList.get ( smallest );
-			smallnode.setMarked ( true );
-			/* update the weight/path arrays */
-			for ( int j = 0; j < weight.length; j++ )
-				/* if a new weight to that vertex is less than the current weight, change the weight in the array and change the path arraylist */
-				if ( weight[j] > weight[smallest] + adjacent[smallest][j] )	{
-					weight[j] = weight[smallest] + adjacent[smallest][j];
-					path.set ( j, vertexList.get ( smallest ) );
+		if ( firstindex < 0 || secondindex < 0 )
+			throw new GraphException ( "Vertex not in graph!" );
+		if ( apart ( firstindex, secondindex ) )
+			throw new GraphException ( "No connecting path!" );
+		DistanceOracle distances = oracle;
+		int[] found = distances != null ? distances.path ( edges, size, firstindex, secondindex ) : dijkstra ( edges, firstindex, secondindex );
+		if ( found == null )
+			throw new GraphException ( "No connecting path!" );
+		return vertices ( found );
+	}
+
+	/**
+	 * Private method for Dijkstra's search from one vertex until another is settled. Reached<br>
+	 * vertecies wait in an IndexedHeap by their weight, so each step takes the lightest one<br>
+	 * in log time and a lighter way to a waiting vertex moves it up in place. Only vertecies<br>
+	 * lighter than the target are ever settled. Weights must not be negative, as addEdge makes sure.
+	 * @param edges cursor over the edges to search.
+	 * @param source storage index of the first vertex.
+	 * @param target storage index of the last vertex.
+	 * @return int[] storage indices from source to target, null if there is no path.
+	 */
+	private int[] dijkstra ( EdgeCursor edges, int source, int target )	{
+		QueryState state = QueryState.begin ( size );
+		try	{
+			int epoch = state.epoch;
+			//reached vertecies have a weight and sit in the heap until they are settled
+			int[] reached = state.markB;
+			int[] settled = state.markF;
+			double[] weight = state.weight;
+			int[] parent = state.parentF;
+			IndexedHeap heap = new IndexedHeap ( state.queueF, state.depthB, weight );
+			//vertecies settled, only kept for GraphMetrics
+			int visited = 0;
+			reached[source] = epoch;
+			weight[source] = 0;
+			parent[source] = source;
+			heap.add ( source );
+			while ( !heap.isEmpty() )	{
+				int u = heap.poll();
+				settled[u] = epoch;
+				visited++;
+				if ( u == target )	break;
+				edges.reset ( u );
+				for ( int v = edges.next(); v >= 0; v = edges.next() )	{
+					if ( settled[v] == epoch )	continue;
+					double w = weight[u] + edges.weight();
+					if ( reached[v] != epoch )	{
+						reached[v] = epoch;
+						weight[v] = w;
+						parent[v] = u;
+						heap.add ( v );
+					}
+					//several edges may lead to the same vertex, the lightest one wins
+					else if ( w < weight[v] )	{
+						weight[v] = w;
+						parent[v] = u;
+						heap.decreased ( v );
+					}
 				}
+			}
+			GraphMetrics.search ( GraphMetrics.SHORTEST_PATH, visited, heap.widest() );
+			if ( settled[target] != epoch )	return null;
+			int hops = 0;
+			for ( int v = target; v != source; v = parent[v] )
+				hops++;
+			int[] path = new int[hops + 1];
+			for ( int v = target, x = hops; x >= 0; v = parent[v], x-- )
+				path[x] = v;
+			return path;
 		}
-		/* backwards path */
-		ArrayList result = new ArrayList();
-		GraphNode node = getVertex ( lastkey );
-		int lastindex = findIndex ( lastkey );
-		/* while the node is not the first node */
-		while ( lastindex != firstindex )	{
-			result.add ( node );
-			node = (GraphNode)path.get ( lastindex );
-			int newlastindex = findIndex ( node.getKey() );
-			/* if the indexes are the same, then there is no way to get to that vertex */
-			if ( newlastindex == lastindex )
-				throw new GraphException ( "No connecting path!" );
-			else
-				lastindex = newlastindex;
-		}
-		/* gotta add the first one */
-		result.add ( getVertex ( firstkey ) );
-		
-		/* unmark everything */
-		clearMarks();
-		
-		/* reverse the arraylist */
-		path.clear();
-		for ( int i = result.size() - 1; i >= 0; i-- )
-			path.add ( result.get ( i ) );
-		return path;
+		finally	{
+			state.end();
+		}
+	}
+
+	/**
+	 * Adds up the weights along a path, such as one shortestPath found, taking the lightest<br>
+	 * edge wherever several link the same two vertecies.
+	 * @param path GraphNodes of the path in order.
+	 * @return double total weight of the path, 0 for a path of one vertex, infinite if two neighbors on it are not linked.
+	 * @throws GraphException if a vertex on the path is not in the graph.
+	 */
+	public double pathCost ( ArrayList path ) throws GraphException	{
+		double cost = 0;
+		for ( int x = 1; x < path.size(); x++ )
+			cost += getWeight ( ((GraphNode)path.get ( x - 1 )).getKey(), ((GraphNode)path.get ( x )).getKey() );
+		return cost;
 	}
 }
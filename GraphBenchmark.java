@@ -0,0 +1,1101 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Command line benchmarks for the Graph, run against CoStarGenerator data.
+ * Usage: java GraphBenchmark [benchmark] [largest actor count]
+ */
+public class GraphBenchmark	{
+
+	//seed shared by every benchmark so runs are comparable
+	private static final long SEED = 42;
+
+	/**
+	 * Builds the generator used at one scale of a benchmark.
+	 * @param actors number of actors.
+	 * @return CoStarGenerator for that many actors.
+	 */
+	private static CoStarGenerator generator ( int actors )	{
+		return new CoStarGenerator ( SEED, actors, actors / 4, 4, 12, 1920, 2008 );
+	}
+
+	/**
+	 * Measures load time and key lookup latency as the actor count grows, and compares<br>
+	 * the hash index with the linear scan it replaced.
+	 * @param maxActors largest actor count to try.
+	 */
+	private static void lookup ( int maxActors )	{
+		System.out.println ( "actors\tvertices\tedges\tload ms\thash ns/lookup\tscan ns/lookup" );
+		for ( int actors = 1000; actors <= maxActors; actors *= 10 )	{
+			CoStarGenerator gen = generator ( actors );
+			gen.cast ( 0 );
+			Graph graph = new Graph();
+			long start = System.nanoTime();
+			gen.load ( graph );
+			long load = System.nanoTime() - start;
+
+			int n = graph.numVertices();
+			String[] keys = new String[1 << 16];
+			Random random = new Random ( SEED );
+			for ( int x = 0; x < keys.length; x++ )
+				keys[x] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+
+			int lookups = 2000000;
+			int found = 0;
+			start = System.nanoTime();
+			for ( int x = 0; x < lookups; x++ )
+				if ( graph.getVertex ( keys[x & (keys.length - 1)] ) != null )	found++;
+			double hash = (double)(System.nanoTime() - start) / lookups;
+
+			//the old findIndex walked the vertex list comparing keys
+			int scans = Math.max ( 100, 20000000 / n );
+			start = System.nanoTime();
+			for ( int x = 0; x < scans; x++ )	{
+				String key = keys[x & (keys.length - 1)];
+				for ( int i = 0; i < n; i++ )
+					if ( graph.getSearchKey ( i ).compareTo ( key ) == 0 )	{
+						found++;
+						break;
+					}
+			}
+			double scan = (double)(System.nanoTime() - start) / scans;
+
+			System.out.println ( actors + "\t" + n + "\t" + graph.numEdges() + "\t" + load / 1000000 + "\t"
+					+ String.format ( "%.1f", hash ) + "\t" + String.format ( "%.1f", scan ) + ( found < 0 ? "!" : "" ) );
+		}
+	}
+
+	/**
+	 * The parsing loop GraphDriver.readFile used before MovieListReader, kept as a baseline.
+	 * @param filename file to parse.
+	 * @return int number of movies read.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private static int legacyParse ( String filename ) throws IOException	{
+		BufferedReader read = new BufferedReader ( new FileReader ( filename ) );
+		ArrayList actors = new ArrayList();
+		int movies = 0;
+		while ( read.ready() )	{
+			String line = read.readLine();
+			if ( line.equals ( "" ) )	continue;
+			String data[] = line.split ( "\\(\\d{4}\\)\\s*$" );
+			String date =  line.substring ( data[0].length() + 1, data[0].length() + 5 );
+			data[0].trim();
+			line = read.readLine();
+			while ( read.ready() && !line.equals ( "" ) )	{
+				actors.add ( line );
+				line = read.readLine();
+			}
+			String actor[] = new String[actors.size()];
+			actor = (String [])actors.toArray ( actor );
+			actors.clear();
+			if ( date.length() + actor.length > 0 )	movies++;
+		}
+		read.close();
+		return movies;
+	}
+
+	/**
+	 * Compares the throughput of MovieListReader with the old regex parsing loop on plain<br>
+	 * and gzipped generated files.
+	 * @param maxActors actor count of the generated file.
+	 * @throws IOException if the temporary files cannot be written.
+	 */
+	private static void parse ( int maxActors ) throws IOException	{
+		File plain = File.createTempFile ( "movies", ".txt" );
+		File zipped = File.createTempFile ( "movies", ".txt.gz" );
+		plain.deleteOnExit();
+		zipped.deleteOnExit();
+		CoStarGenerator gen = new CoStarGenerator ( SEED, maxActors, maxActors, 4, 40, 1920, 2008 );
+		Writer out = new BufferedWriter ( new OutputStreamWriter ( new FileOutputStream ( plain ), "UTF-8" ) );
+		gen.write ( out );
+		out.close();
+		out = new BufferedWriter ( new OutputStreamWriter ( new GZIPOutputStream ( new FileOutputStream ( zipped ) ), "UTF-8" ) );
+		gen.write ( out );
+		out.close();
+		double mb = plain.length() / 1e6;
+		System.out.println ( "parser\t\tMB/s\tmovies/s" );
+		for ( int round = 0; round < 5; round++ )	{
+			long start = System.nanoTime();
+			int movies = legacyParse ( plain.getPath() );
+			report ( "regex", mb, movies, System.nanoTime() - start );
+			start = System.nanoTime();
+			movies = countMovies ( plain.getPath() );
+			report ( "stream", mb, movies, System.nanoTime() - start );
+			start = System.nanoTime();
+			movies = countMovies ( zipped.getPath() );
+			report ( "stream gz", mb, movies, System.nanoTime() - start );
+		}
+	}
+
+	/**
+	 * @param filename file to read with MovieListReader.
+	 * @return int number of movies read.
+	 * @throws IOException if the file cannot be read.
+	 */
+	private static int countMovies ( String filename ) throws IOException	{
+		MovieListReader read = MovieListReader.open ( filename );
+		int movies = 0;
+		while ( read.next() != null )
+			movies++;
+		read.close();
+		return movies;
+	}
+
+	/**
+	 * Prints one line of parser throughput.
+	 */
+	private static void report ( String name, double mb, int movies, long nanos )	{
+		double seconds = nanos / 1e9;
+		System.out.println ( name + "\t" + ( name.length() < 8 ? "\t" : "" ) + String.format ( "%.1f", mb / seconds ) + "\t" + (long)(movies / seconds) );
+	}
+
+	/**
+	 * Formats latency percentiles of a set of timings.
+	 * @param nanos timings in nanoseconds, sorted in place.
+	 * @param count number of timings used.
+	 * @return String of p50, p90, p99 and max in milliseconds.
+	 */
+	private static String percentiles ( long[] nanos, int count )	{
+		Arrays.sort ( nanos, 0, count );
+		return String.format ( "%d\t%.3f\t%.3f\t%.3f\t%.3f", count, nanos[count / 2] / 1e6, nanos[count * 9 / 10] / 1e6,
+				nanos[Math.min ( count - 1, count * 99 / 100 )] / 1e6, nanos[count - 1] / 1e6 );
+	}
+
+	/**
+	 * Measures point to point query latency on one large co-star graph: the bidirectional bfs,<br>
+	 * a full bft from the source, which is what bfs used to cost, and shortestPath.
+	 * @param maxActors actor count of the graph.
+	 */
+	private static void path ( int maxActors )	{
+		CoStarGenerator gen = new CoStarGenerator ( SEED, maxActors, maxActors / 2, 3, 15, 1920, 2008 );
+		Graph graph = new Graph();
+		gen.load ( graph );
+		int n = graph.numVertices();
+		System.out.println ( n + " vertices, " + graph.numEdges() + " edges" );
+		System.out.println ( "query\t\tcount\tp50 ms\tp90 ms\tp99 ms\tmax ms" );
+		Random random = new Random ( SEED );
+		String[][] pairs = new String[1000][2];
+		for ( int x = 0; x < pairs.length; x++ )	{
+			pairs[x][0] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+			pairs[x][1] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+		}
+		long[] nanos = new long[pairs.length];
+		for ( int x = 0; x < pairs.length; x++ )	{
+			long start = System.nanoTime();
+			graph.bfs ( pairs[x][0], pairs[x][1] );
+			nanos[x] = System.nanoTime() - start;
+		}
+		System.out.println ( "bfs\t\t" + percentiles ( nanos, pairs.length ) );
+		int count = Math.min ( pairs.length, 200 );
+		for ( int x = 0; x < count; x++ )	{
+			long start = System.nanoTime();
+			graph.bft ( pairs[x][0] );
+			nanos[x] = System.nanoTime() - start;
+		}
+		System.out.println ( "bft\t\t" + percentiles ( nanos, count ) );
+		for ( int x = 0; x < count; x++ )	{
+			long start = System.nanoTime();
+			try	{
+				if ( !pairs[x][0].equals ( pairs[x][1] ) )
+					graph.shortestPath ( pairs[x][0], pairs[x][1] );
+			}
+			catch ( GraphException exception )	{}
+			nanos[x] = System.nanoTime() - start;
+		}
+		System.out.println ( "shortestPath\t" + percentiles ( nanos, count ) );
+	}
+
+	/**
+	 * Times the diameter search as the actor count grows, and compares iFUB with searching<br>
+	 * from every vertex on all processors while that is still affordable.
+	 * @param maxActors largest actor count to try.
+	 */
+	private static void diameter ( int maxActors )	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		System.out.println ( "actors\tvertices\tedges\tdiameter\tiFUB ms\tall sources ms (" + threads + " threads)" );
+		for ( int actors = 1000; actors <= maxActors; actors *= 10 )	{
+			//as many movies as actors keeps the graph connected
+			CoStarGenerator gen = new CoStarGenerator ( SEED, actors, actors, 3, 15, 1920, 2008 );
+			Graph graph = new Graph();
+			gen.load ( graph );
+			long start = System.nanoTime();
+			double diameter = graph.diameter();
+			long ifub = System.nanoTime() - start;
+			String all = "-";
+			if ( graph.numVertices() <= 20000 )	{
+				start = System.nanoTime();
+				ArrayList path = graph.diameterPath ( threads );
+				all = ( System.nanoTime() - start ) / 1000000 + ( path.size() - 1 == diameter || path.isEmpty() ? "" : "!" );
+			}
+			System.out.println ( actors + "\t" + graph.numVertices() + "\t" + graph.numEdges() + "\t" + diameter + "\t"
+					+ ifub / 1000000 + "\t" + all );
+		}
+	}
+
+	/**
+	 * Runs queries against one graph from more and more threads at once and reports the<br>
+	 * query rate. Every answer is checked against the one found by a single thread first,<br>
+	 * so searches sharing the graph would show up as mismatches. Most queries are bfs, every<br>
+	 * 16th is also a dfs and every 64th a shortestPath.
+	 * @param maxActors actor count of the graph.
+	 */
+	private static void threads ( int maxActors )	{
+		CoStarGenerator gen = generator ( maxActors );
+		final Graph graph = new Graph();
+		gen.load ( graph );
+		int n = graph.numVertices();
+		final String[][] pairs = new String[4096][2];
+		final int[] expect = new int[pairs.length];
+		Random random = new Random ( SEED );
+		for ( int x = 0; x < pairs.length; x++ )	{
+			pairs[x][0] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+			pairs[x][1] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+			expect[x] = query ( graph, pairs[x][0], pairs[x][1], x );
+		}
+		System.out.println ( n + " vertices, " + graph.numEdges() + " edges, " + Runtime.getRuntime().availableProcessors() + " processors" );
+		System.out.println ( "threads\tqueries/s\tspeedup\tmismatches" );
+		double single = 0;
+		for ( int threads = 1; threads <= 2 * Runtime.getRuntime().availableProcessors(); threads *= 2 )	{
+			final long stop = System.nanoTime() + 2000000000L;
+			final long[] queries = new long[threads];
+			final int[] wrong = new int[threads];
+			Thread[] workers = new Thread[threads];
+			for ( int t = 0; t < threads; t++ )	{
+				final int worker = t;
+				workers[t] = new Thread ( new Runnable()	{
+					public void run()	{
+						for ( int x = worker * 997; System.nanoTime() < stop; x = (x + 1) % pairs.length )	{
+							if ( query ( graph, pairs[x][0], pairs[x][1], x ) != expect[x] )	wrong[worker]++;
+							queries[worker]++;
+						}
+					}
+				} );
+			}
+			long start = System.nanoTime();
+			for ( int t = 0; t < threads; t++ )
+				workers[t].start();
+			long total = 0;
+			int mismatches = 0;
+			for ( int t = 0; t < threads; t++ )	{
+				try	{
+					workers[t].join();
+				}
+				catch ( InterruptedException exception )	{
+					Thread.currentThread().interrupt();
+					return;
+				}
+				total += queries[t];
+				mismatches += wrong[t];
+			}
+			double rate = total / ((System.nanoTime() - start) / 1e9);
+			if ( threads == 1 )	single = rate;
+			System.out.println ( threads + "\t" + (long)rate + "\t" + String.format ( "%.2f", rate / single ) + "\t" + mismatches );
+		}
+	}
+
+	/**
+	 * Runs one query of the threads benchmark.
+	 * @return int summary of the answers, the same every time the query is run.
+	 */
+	private static int query ( Graph graph, String one, String two, int x )	{
+		int answer = graph.bfs ( one, two ).toString().hashCode();
+		if ( x % 16 == 0 )
+			answer = 31 * answer + graph.dfs ( one ).size();
+		if ( x % 64 == 0 && !one.equals ( two ) )	{
+			try	{
+				answer = 31 * answer + graph.shortestPath ( one, two ).size();
+			}
+			catch ( GraphException exception )	{
+				answer = 31 * answer - 1;
+			}
+		}
+		return answer;
+	}
+
+	/**
+	 * Measures the landmark distance oracle as the actor count grows: how long the landmark<br>
+	 * searches take, the heap each landmark holds, how fast bounds come back and how often<br>
+	 * they pin the distance exactly, and shortestPath with and without the oracle on the same<br>
+	 * pairs. Paths found both ways are checked to have the same length.
+	 * @param maxActors largest actor count to try.
+	 */
+	private static void oracle ( int maxActors )	{
+		int landmarks = 16;
+		System.out.println ( landmarks + " landmarks" );
+		System.out.println ( "actors\tvertices\tedges\tbuild ms\tKB/landmark\tbounds ns\texact\tdijkstra ms\tALT ms\tspeedup" );
+		for ( int actors = 1000; actors <= maxActors; actors *= 10 )	{
+			CoStarGenerator gen = new CoStarGenerator ( SEED, actors, actors / 2, 3, 15, 1920, 2008 );
+			Graph graph = new Graph();
+			gen.load ( graph );
+			int n = graph.numVertices();
+			Random random = new Random ( SEED );
+			String[][] pairs = new String[4096][2];
+			for ( int x = 0; x < pairs.length; x++ )	{
+				do	{
+					pairs[x][0] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+					pairs[x][1] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+				} while ( pairs[x][0].equals ( pairs[x][1] ) );
+			}
+			int count = 200;
+			int[] lengths = new int[count];
+			long start = System.nanoTime();
+			for ( int x = 0; x < count; x++ )
+				lengths[x] = pathLength ( graph, pairs[x] );
+			double dijkstra = (System.nanoTime() - start) / 1e6 / count;
+
+			long base = usedHeap();
+			start = System.nanoTime();
+			graph.buildOracle ( landmarks );
+			long build = System.nanoTime() - start;
+			long bytes = usedHeap() - base;
+
+			int exact = 0;
+			int rounds = 1000000;
+			start = System.nanoTime();
+			for ( int x = 0; x < rounds; x++ )	{
+				int[] bounds = graph.distanceBounds ( pairs[x & 4095][0], pairs[x & 4095][1] );
+				if ( bounds[0] == bounds[1] )	exact++;
+			}
+			double bounds = (double)(System.nanoTime() - start) / rounds;
+
+			int wrong = 0;
+			start = System.nanoTime();
+			for ( int x = 0; x < count; x++ )
+				if ( pathLength ( graph, pairs[x] ) != lengths[x] )	wrong++;
+			double alt = (System.nanoTime() - start) / 1e6 / count;
+
+			System.out.println ( actors + "\t" + n + "\t" + graph.numEdges() + "\t" + build / 1000000 + "\t"
+					+ String.format ( "%.1f", bytes / 1024.0 / landmarks ) + "\t" + String.format ( "%.1f", bounds ) + "\t"
+					+ String.format ( "%.1f%%", 100.0 * exact / rounds ) + "\t" + String.format ( "%.3f", dijkstra ) + "\t"
+					+ String.format ( "%.3f", alt ) + "\t" + String.format ( "%.1f", dijkstra / alt )
+					+ ( wrong > 0 ? "\t" + wrong + " wrong!" : "" ) );
+		}
+	}
+
+	/**
+	 * Measures the component index on co-star graphs with a tenth as many actors again added<br>
+	 * in pairs that only starred with each other: the load time it is kept up to date through,<br>
+	 * isConnected, and bfs and shortestPath from the large component to the pairs, which are<br>
+	 * turned away without a search.
+	 * @param maxActors largest actor count to try.
+	 */
+	private static void components ( int maxActors )	{
+		System.out.println ( "actors\tvertices\tcomponents\tlargest\tload ms\tisConnected ns\tapart bfs ns\tapart shortestPath ns" );
+		for ( int actors = 1000; actors <= maxActors; actors *= 10 )	{
+			CoStarGenerator gen = new CoStarGenerator ( SEED, actors, actors / 2, 3, 15, 1920, 2008 );
+			Graph graph = new Graph();
+			long start = System.nanoTime();
+			gen.load ( graph );
+			int n = graph.numVertices();
+			for ( int x = 0; x < actors / 20; x++ )
+				graph.addMovie ( "Duo " + x, 2000, new Comparable[] { "Lone Actor " + 2 * x, "Lone Actor " + (2 * x + 1) } );
+			long load = System.nanoTime() - start;
+			int[] sizes = graph.componentSizes();
+			//an actor of the generated graph and one of the pairs
+			Random random = new Random ( SEED );
+			String[][] pairs = new String[1024][2];
+			for ( int x = 0; x < pairs.length; x++ )	{
+				pairs[x][0] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+				pairs[x][1] = "Lone Actor " + random.nextInt ( actors / 10 );
+			}
+			int rounds = 100000;
+			int found = 0;
+			start = System.nanoTime();
+			for ( int x = 0; x < rounds; x++ )
+				if ( graph.isConnected() )	found++;
+			double connected = (double)(System.nanoTime() - start) / rounds;
+			start = System.nanoTime();
+			for ( int x = 0; x < rounds; x++ )
+				found += graph.bfs ( pairs[x & 1023][0], pairs[x & 1023][1] ).size();
+			double bfs = (double)(System.nanoTime() - start) / rounds;
+			start = System.nanoTime();
+			for ( int x = 0; x < rounds; x++ )
+				found += pathLength ( graph, pairs[x & 1023] );
+			double dijkstra = (double)(System.nanoTime() - start) / rounds;
+			System.out.println ( actors + "\t" + graph.numVertices() + "\t" + sizes.length + "\t" + sizes[0] + "\t" + load / 1000000 + "\t"
+					+ String.format ( "%.1f", connected ) + "\t" + String.format ( "%.1f", bfs ) + "\t"
+					+ String.format ( "%.1f", dijkstra ) + ( found > 0 ? "!" : "" ) );
+		}
+	}
+
+	/**
+	 * Measures searches limited to movies released up to a year, on one large co-star graph:<br>
+	 * bfs over every edge, bfs up to the year while the year index is still being sorted and<br>
+	 * once it is, and what the same query cost before: building a graph from only the movies<br>
+	 * up to the year and searching that. Every limited path is checked against the rebuilt graph.
+	 * @param maxActors actor count of the graph.
+	 */
+	private static void years ( int maxActors )	{
+		CoStarGenerator gen = new CoStarGenerator ( SEED, maxActors, maxActors / 2, 3, 15, 1920, 2008 );
+		Graph graph = new Graph();
+		gen.load ( graph );
+		int n = graph.numVertices();
+		System.out.println ( n + " vertices, " + graph.numEdges() + " edges" );
+		System.out.println ( "until\tedges in range\trebuild ms\trebuilt bfs ms\tbfs ms\tfirst pass ms\tlimited bfs ms\twrong" );
+		Random random = new Random ( SEED );
+		String[][] pairs = new String[1000][2];
+		for ( int x = 0; x < pairs.length; x++ )	{
+			pairs[x][0] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+			pairs[x][1] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+		}
+		for ( int until = 1940; until <= 2000; until += 30 )	{
+			long start = System.nanoTime();
+			Graph older = new Graph();
+			for ( int m = 0; m < gen.numMovies(); m++ )
+				if ( gen.year ( m ) <= until )
+					older.addMovie ( gen.title ( m ), gen.year ( m ), gen.cast ( m ) );
+			long rebuild = System.nanoTime() - start;
+			//a change drops the year index, so the first pass sorts the rows it reaches
+			graph.makeEmpty();
+			gen.load ( graph );
+			double[] passes = new double[2];
+			int wrong = 0;
+			for ( int pass = 0; pass < 2; pass++ )	{
+				start = System.nanoTime();
+				for ( int x = 0; x < pairs.length; x++ )	{
+					int length = graph.bfs ( pairs[x][0], pairs[x][1], Integer.MIN_VALUE, until ).size();
+					if ( pass == 1 && length != limitedLength ( older, pairs[x] ) )	wrong++;
+				}
+				passes[pass] = (System.nanoTime() - start) / 1e6 / pairs.length;
+			}
+			start = System.nanoTime();
+			for ( int x = 0; x < pairs.length; x++ )
+				graph.bfs ( pairs[x][0], pairs[x][1] );
+			double bfs = (System.nanoTime() - start) / 1e6 / pairs.length;
+			start = System.nanoTime();
+			for ( int x = 0; x < pairs.length; x++ )
+				limitedLength ( older, pairs[x] );
+			double rebuilt = (System.nanoTime() - start) / 1e6 / pairs.length;
+			System.out.println ( until + "\t" + older.numEdges() + "\t" + rebuild / 1000000 + "\t" + String.format ( "%.3f", rebuilt ) + "\t" + String.format ( "%.3f", bfs ) + "\t"
+					+ String.format ( "%.3f", passes[0] ) + "\t" + String.format ( "%.3f", passes[1] ) + "\t" + wrong );
+		}
+	}
+
+	/**
+	 * Measures BatchQuery on lists of pairs with fewer and fewer first actors, against one bfs<br>
+	 * per pair the way scripting the menu answered them, and against one separation search<br>
+	 * for every first actor, after a round that warms them all up. Every answer is checked<br>
+	 * against the bfs.
+	 * @param maxActors actor count of the graph.
+	 */
+	private static void batch ( int maxActors ) throws IOException	{
+		Graph graph = new Graph();
+		generator ( maxActors ).load ( graph );
+		int n = graph.numVertices();
+		int threads = Runtime.getRuntime().availableProcessors();
+		System.out.println ( n + " vertices, " + graph.numEdges() + " edges, " + threads + " processors" );
+		System.out.println ( "pairs\tsources\tbfs pairs/s\tseparation pairs/s\tbatch 1 thread pairs/s\tbatch " + threads + " threads pairs/s\twrong" );
+		Random random = new Random ( SEED );
+		int count = 20000;
+		for ( int sources = count; sources >= 10; sources /= 10 )	{
+			String[] first = new String[sources];
+			for ( int x = 0; x < sources; x++ )
+				first[x] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+			String[][] pairs = new String[count][];
+			StringBuilder lines = new StringBuilder();
+			for ( int x = 0; x < count; x++ )	{
+				pairs[x] = new String[] { first[random.nextInt ( sources )], (String)graph.getSearchKey ( random.nextInt ( n ) ) };
+				lines.append ( pairs[x][0] ).append ( '\t' ).append ( pairs[x][1] ).append ( '\n' );
+			}
+			//the first round only warms up the searches
+			double bfs = 0, separation = 0;
+			double[] rates = new double[2];
+			int wrong = 0;
+			for ( int round = 0; round < 2; round++ )	{
+				long start = System.nanoTime();
+				String[] expect = new String[count];
+				for ( int x = 0; x < count; x++ )	{
+					ArrayList path = graph.bfs ( pairs[x][0], pairs[x][1] );
+					expect[x] = path.isEmpty() ? "none" : String.valueOf ( path.size() - 1 );
+				}
+				bfs = count / ((System.nanoTime() - start) / 1e9);
+				start = System.nanoTime();
+				HashMap targets = new HashMap();
+				for ( int x = 0; x < count; x++ )	{
+					ArrayList list = (ArrayList)targets.get ( pairs[x][0] );
+					if ( list == null )	{
+						list = new ArrayList();
+						targets.put ( pairs[x][0], list );
+					}
+					list.add ( pairs[x][1] );
+				}
+				Object[] keys = targets.keySet().toArray();
+				for ( int x = 0; x < keys.length; x++ )	{
+					ArrayList list = (ArrayList)targets.get ( keys[x] );
+					graph.separation ( (Comparable)keys[x], (Comparable[])list.toArray ( new Comparable[list.size()] ) );
+				}
+				separation = count / ((System.nanoTime() - start) / 1e9);
+				wrong = 0;
+				for ( int run = 0; run < 2; run++ )	{
+					ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+					PrintStream out = new PrintStream ( bytes );
+					start = System.nanoTime();
+					new BatchQuery ( graph, run == 0 ? 1 : threads, 65536 ).run ( new BufferedReader ( new StringReader ( lines.toString() ) ), out );
+					rates[run] = count / ((System.nanoTime() - start) / 1e9);
+					String[] answers = bytes.toString().split ( "\n" );
+					for ( int x = 0; x < count; x++ )
+						if ( !answers[x].endsWith ( "\t" + expect[x] ) )	wrong++;
+				}
+			}
+			System.out.println ( count + "\t" + sources + "\t" + (long)bfs + "\t" + (long)separation + "\t" + (long)rates[0] + "\t" + (long)rates[1] + "\t" + wrong );
+		}
+	}
+
+	/**
+	 * Measures full distance tables from random sources at growing scales: bft, which only<br>
+	 * lists the vertecies in visiting order, a separation search to every key, which is the<br>
+	 * plain top-down search the tables took before, and distances on one thread and on the<br>
+	 * common pool. Every table is checked against the separation search.
+	 * @param maxActors largest actor count.
+	 */
+	private static void levels ( int maxActors )	{
+		int threads = ForkJoinPool.getCommonPoolParallelism();
+		System.out.println ( "actors\tedges\tbft ms\tseparation ms\tdistances 1 thread ms\tdistances " + threads + " threads ms\twrong" );
+		for ( int actors = Math.max ( 1000, maxActors / 100 ); actors <= maxActors; actors *= 10 )	{
+			Graph graph = build ( actors );
+			int n = graph.numVertices();
+			Comparable[] keys = new Comparable[n];
+			for ( int x = 0; x < n; x++ )
+				keys[x] = graph.getSearchKey ( x );
+			Random random = new Random ( SEED );
+			int sources = 20;
+			double[] ms = new double[4];
+			int wrong = 0;
+			//the first round only warms up the searches
+			for ( int round = 0; round < 2; round++ )	{
+				Arrays.fill ( ms, 0 );
+				for ( int s = 0; s < sources; s++ )	{
+					Comparable key = keys[random.nextInt ( n )];
+					long start = System.nanoTime();
+					graph.bft ( key );
+					ms[0] += (System.nanoTime() - start) / 1e6;
+					start = System.nanoTime();
+					int[] expect = graph.separation ( key, keys );
+					ms[1] += (System.nanoTime() - start) / 1e6;
+					start = System.nanoTime();
+					int[] one = graph.distances ( key, 1 );
+					ms[2] += (System.nanoTime() - start) / 1e6;
+					start = System.nanoTime();
+					int[] many = graph.distances ( key );
+					ms[3] += (System.nanoTime() - start) / 1e6;
+					if ( !Arrays.equals ( expect, one ) || !Arrays.equals ( expect, many ) )	wrong++;
+				}
+			}
+			System.out.println ( actors + "\t" + graph.numEdges() + "\t" + String.format ( "%.2f", ms[0] / sources ) + "\t" + String.format ( "%.2f", ms[1] / sources ) + "\t"
+					+ String.format ( "%.2f", ms[2] / sources ) + "\t" + String.format ( "%.2f", ms[3] / sources ) + "\t" + wrong );
+		}
+	}
+
+	/**
+	 * Measures a co-star graph against the view compress makes of it at growing scales: heap<br>
+	 * per edge, with the vertex keys counted in both, and the time of bft from random sources,<br>
+	 * bfs between random pairs and shortestPath between fewer pairs, after a round that warms<br>
+	 * them up. Every bfs and shortestPath length is checked against the uncompressed graph.
+	 * @param maxActors largest actor count.
+	 */
+	private static void compress ( int maxActors )	{
+		System.out.println ( "actors\tedges\tbytes/edge\tpacked bytes/edge\tbft ms\tpacked bft ms\tbfs us\tpacked bfs us\tshortestPath ms\tpacked shortestPath ms\twrong" );
+		for ( int actors = Math.max ( 1000, maxActors / 100 ); actors <= maxActors; actors *= 10 )	{
+			long base = usedHeap();
+			Graph graph = build ( actors );
+			long full = usedHeap() - base;
+			Graph packed = graph.compress();
+			int n = graph.numVertices();
+			Random random = new Random ( SEED );
+			String[][] pairs = new String[2000][2];
+			for ( int x = 0; x < pairs.length; x++ )	{
+				pairs[x][0] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+				pairs[x][1] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+			}
+			int sources = 20;
+			int weighted = 20;
+			//time of bft, bfs and shortestPath over the graph and then over the packed view
+			double[] times = new double[6];
+			int[] lengths = new int[pairs.length];
+			int[] costs = new int[weighted];
+			int wrong = 0;
+			for ( int round = 0; round < 2; round++ )	{
+				for ( int g = 0; g < 2; g++ )	{
+					Graph searched = g == 0 ? graph : packed;
+					long start = System.nanoTime();
+					for ( int x = 0; x < sources; x++ )
+						searched.bft ( pairs[x][0] );
+					times[g] = (System.nanoTime() - start) / 1e6 / sources;
+					start = System.nanoTime();
+					for ( int x = 0; x < pairs.length; x++ )	{
+						int length = searched.bfs ( pairs[x][0], pairs[x][1] ).size();
+						if ( g == 0 )
+							lengths[x] = length;
+						else if ( round == 1 && length != lengths[x] )
+							wrong++;
+					}
+					times[2 + g] = (System.nanoTime() - start) / 1e3 / pairs.length;
+					start = System.nanoTime();
+					for ( int x = 0; x < weighted; x++ )	{
+						int length = pathLength ( searched, pairs[x] );
+						if ( g == 0 )
+							costs[x] = length;
+						else if ( round == 1 && length != costs[x] )
+							wrong++;
+					}
+					times[4 + g] = (System.nanoTime() - start) / 1e6 / weighted;
+				}
+			}
+			int edges = graph.numEdges();
+			graph = null;
+			long compressed = usedHeap() - base;
+			System.out.println ( actors + "\t" + edges + "\t" + String.format ( "%.1f", (double)full / edges ) + "\t" + String.format ( "%.1f", (double)compressed / edges ) + "\t"
+					+ String.format ( "%.2f", times[0] ) + "\t" + String.format ( "%.2f", times[1] ) + "\t" + String.format ( "%.1f", times[2] ) + "\t"
+					+ String.format ( "%.1f", times[3] ) + "\t" + String.format ( "%.1f", times[4] ) + "\t" + String.format ( "%.1f", times[5] ) + "\t" + wrong );
+			packed = null;
+		}
+	}
+
+	/**
+	 * Builds a co-star graph shaped like the real data, where actors mostly work within one<br>
+	 * industry or era. Actors fall into groups of a thousand, and each movie draws nine in<br>
+	 * ten of its cast from one group and the rest from everyone, popular actors more often.<br>
+	 * Movies are added in random order, as the alphabetical input files list them, so the<br>
+	 * order actors are first seen in has nothing to do with who they work with.
+	 * @param actors actor count.
+	 * @return Graph of actors/2 movies with casts of 3 to 15.
+	 */
+	private static Graph clustered ( int actors )	{
+		Random random = new Random ( SEED );
+		int groups = Math.max ( 1, actors / 1000 );
+		int size = actors / groups;
+		Graph graph = new Graph();
+		for ( int m = 0; m < actors / 2; m++ )	{
+			int group = random.nextInt ( groups );
+			String[] cast = new String[3 + random.nextInt ( 13 )];
+			for ( int x = 0; x < cast.length; x++ )	{
+				double r = random.nextDouble();
+				int actor = random.nextInt ( 10 ) > 0 ? group * size + (int)(size * r * r) : (int)(actors * r * r);
+				cast[x] = "Actor " + actor;
+			}
+			graph.addMovie ( "Movie " + m, 1920 + random.nextInt ( 89 ), cast );
+		}
+		return graph;
+	}
+
+	/**
+	 * Measures searches over co-star graphs stored in the order their actors were added<br>
+	 * against the views reorder makes of them, and all of them again once compressed: bft<br>
+	 * and distances from random sources and bfs between random pairs, best of five rounds in<br>
+	 * which the layouts take turns. The graphs are the generator's, whose casts are drawn<br>
+	 * from everyone so no order can bring co-stars together, and clustered ones. Every bfs<br>
+	 * length and distance table is checked against the graph as added.
+	 * @param maxActors largest actor count.
+	 */
+	private static void reorder ( int maxActors )	{
+		System.out.println ( "data\tactors\tedges\treorder ms\tlayout\tbft ms\tdistances ms\tbfs us\twrong" );
+		for ( int run = 0; run < 4; run++ )	{
+			int actors = run % 2 == 0 ? Math.max ( 1000, maxActors / 10 ) : maxActors;
+			String data = run < 2 ? "random" : "clustered";
+			Graph graph = run < 2 ? build ( actors ) : clustered ( actors );
+			long start = System.nanoTime();
+			Graph reordered = graph.reorder();
+			long took = (System.nanoTime() - start) / 1000000;
+			Graph[] layouts = { graph, reordered, graph.compress(), reordered.compress() };
+			String[] names = { "added", "reordered", "packed", "reordered packed" };
+			int n = graph.numVertices();
+			Random random = new Random ( SEED );
+			String[][] pairs = new String[2000][2];
+			for ( int x = 0; x < pairs.length; x++ )	{
+				pairs[x][0] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+				pairs[x][1] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+			}
+			int sources = 20;
+			int[] lengths = new int[pairs.length];
+			int[][] tables = new int[sources][];
+			//best time of bft, distances and bfs over each layout, the layouts take turns every round
+			double[][] best = new double[layouts.length][3];
+			for ( int l = 0; l < layouts.length; l++ )
+				Arrays.fill ( best[l], Double.MAX_VALUE );
+			int[] wrong = new int[layouts.length];
+			for ( int round = 0; round < 5; round++ )	{
+				for ( int l = 0; l < layouts.length; l++ )	{
+					start = System.nanoTime();
+					for ( int x = 0; x < sources; x++ )
+						layouts[l].bft ( pairs[x][0] );
+					best[l][0] = Math.min ( best[l][0], (System.nanoTime() - start) / 1e6 / sources );
+					start = System.nanoTime();
+					for ( int x = 0; x < sources; x++ )	{
+						int[] table = layouts[l].distances ( pairs[x][0], 1 );
+						if ( l == 0 )
+							tables[x] = table;
+						else if ( !Arrays.equals ( table, tables[x] ) )
+							wrong[l]++;
+					}
+					best[l][1] = Math.min ( best[l][1], (System.nanoTime() - start) / 1e6 / sources );
+					start = System.nanoTime();
+					for ( int x = 0; x < pairs.length; x++ )	{
+						int length = layouts[l].bfs ( pairs[x][0], pairs[x][1] ).size();
+						if ( l == 0 )
+							lengths[x] = length;
+						else if ( length != lengths[x] )
+							wrong[l]++;
+					}
+					best[l][2] = Math.min ( best[l][2], (System.nanoTime() - start) / 1e3 / pairs.length );
+				}
+			}
+			for ( int l = 0; l < layouts.length; l++ )
+				System.out.println ( data + "\t" + actors + "\t" + graph.numEdges() + "\t" + took + "\t" + names[l] + "\t" + String.format ( "%.2f", best[l][0] ) + "\t"
+						+ String.format ( "%.2f", best[l][1] ) + "\t" + String.format ( "%.1f", best[l][2] ) + "\t" + wrong[l] );
+		}
+	}
+
+	/**
+	 * Measures shortestPath as the actor count grows on co-star graphs whose links are given<br>
+	 * random weights from 1 to 10, against the search it replaced, which scanned every vertex<br>
+	 * for the lightest one each time it settled one and went on until it had settled them all.<br>
+	 * The old search runs on a copy of the rows and only on as many pairs as it can afford,<br>
+	 * and every cost it finds is checked against pathCost of the path shortestPath found.
+	 * @param maxActors largest actor count to try.
+	 */
+	private static void dijkstra ( int maxActors )	{
+		System.out.println ( "actors\tvertices\tedges\theap ms\tscan ms\tspeedup\twrong" );
+		for ( int actors = 1000; actors <= maxActors; actors *= 10 )	{
+			Graph costars = build ( actors );
+			int n = costars.numVertices();
+			Random random = new Random ( SEED );
+			Graph graph = new Graph();
+			HashMap indices = new HashMap();
+			for ( int x = 0; x < n; x++ )	{
+				graph.addVertex ( new GraphNode ( costars.getSearchKey ( x ) ) );
+				indices.put ( costars.getSearchKey ( x ), Integer.valueOf ( x ) );
+			}
+			//the same rows for the old search, each link weighed the same both ways
+			int[][] rows = new int[n][];
+			double[][] weights = new double[n][];
+			for ( int x = 0; x < n; x++ )	{
+				ArrayList row = costars.neighbors ( costars.getSearchKey ( x ) );
+				rows[x] = new int[row.size()];
+				weights[x] = new double[row.size()];
+				for ( int i = 0; i < row.size(); i++ )
+					rows[x][i] = ((Integer)indices.get ( ((GraphNode)row.get ( i )).getKey() )).intValue();
+			}
+			for ( int x = 0; x < n; x++ )
+				for ( int i = 0; i < rows[x].length; i++ )	{
+					int y = rows[x][i];
+					if ( y < x )	continue;
+					double weight = 1 + random.nextInt ( 10 );
+					weights[x][i] = weight;
+					for ( int j = 0; j < rows[y].length; j++ )
+						if ( rows[y][j] == x )	weights[y][j] = weight;
+					graph.addEdge ( costars.getSearchKey ( x ), costars.getSearchKey ( y ), weight );
+					graph.addEdge ( costars.getSearchKey ( y ), costars.getSearchKey ( x ), weight );
+				}
+			costars = null;
+			int[][] pairs = new int[200][2];
+			for ( int x = 0; x < pairs.length; x++ )	{
+				do	{
+					pairs[x][0] = random.nextInt ( n );
+					pairs[x][1] = random.nextInt ( n );
+				} while ( pairs[x][0] == pairs[x][1] );
+			}
+			double[] costs = new double[pairs.length];
+			//one round to warm up, then the timed one
+			long start = 0;
+			for ( int round = 0; round < 2; round++ )	{
+				start = System.nanoTime();
+				for ( int x = 0; x < pairs.length; x++ )	{
+					try	{
+						costs[x] = graph.pathCost ( graph.shortestPath ( graph.getSearchKey ( pairs[x][0] ), graph.getSearchKey ( pairs[x][1] ) ) );
+					}
+					catch ( GraphException exception )	{
+						costs[x] = Double.POSITIVE_INFINITY;
+					}
+				}
+			}
+			double heap = (System.nanoTime() - start) / 1e6 / pairs.length;
+			//the old search is quadratic in the vertices, keep its sample small
+			int count = (int)Math.max ( 3, Math.min ( pairs.length, 2e10 / ((double)n * n) ) );
+			int wrong = 0;
+			start = System.nanoTime();
+			for ( int x = 0; x < count; x++ )
+				if ( legacyDijkstra ( rows, weights, pairs[x][0], pairs[x][1] ) != costs[x] )	wrong++;
+			double scan = (System.nanoTime() - start) / 1e6 / count;
+			System.out.println ( actors + "\t" + n + "\t" + graph.numEdges() + "\t" + String.format ( "%.3f", heap ) + "\t"
+					+ String.format ( "%.1f", scan ) + "\t" + String.format ( "%.0f", scan / heap ) + "\t" + wrong );
+		}
+	}
+
+	/**
+	 * Measures bfs under skewed traffic as the actor count grows: nine queries in ten start<br>
+	 * from one of 300 famous actors, the first of them far more often than the rest, and end<br>
+	 * anywhere. Two rounds of such queries run without a cache, with a QueryCache of answers<br>
+	 * alone, and with one that also has room for trees from every famous actor, the second<br>
+	 * round finding the cache the first one left. Every answer is checked to have the length<br>
+	 * of the one found without the cache.
+	 * @param maxActors largest actor count to try.
+	 */
+	private static void cache ( int maxActors )	{
+		System.out.println ( "actors\tvertices\tcache\tround\tus/query\thit rate\tevictions\tspeedup\twrong" );
+		for ( int actors = 1000; actors <= maxActors; actors *= 10 )	{
+			Graph graph = build ( actors );
+			int n = graph.numVertices();
+			Random random = new Random ( SEED );
+			//different queries for each round, from the same famous actors
+			String[][] pairs = new String[100000][2];
+			for ( int x = 0; x < pairs.length; x++ )	{
+				double pick = random.nextDouble();
+				int source = random.nextInt ( 10 ) < 9 ? (int)(300 * pick * pick * pick) % n : random.nextInt ( n );
+				pairs[x][0] = (String)graph.getSearchKey ( source );
+				pairs[x][1] = (String)graph.getSearchKey ( random.nextInt ( n ) );
+			}
+			int entries = 10000;
+			String[] names = { "none", "answers", "trees" };
+			String[] rounds = { "cold", "warm" };
+			int[] lengths = new int[pairs.length];
+			double[] plain = new double[rounds.length];
+			//one untimed pass through a throwaway cache, so the searches and the cache are compiled before timing
+			graph.setCache ( new QueryCache ( entries ) );
+			for ( int x = 0; x < pairs.length; x++ )
+				graph.bfs ( pairs[x][0], pairs[x][1] );
+			for ( int c = 0; c < names.length; c++ )	{
+				//room for a path of 16 vertecies per entry, and for 300 trees
+				QueryCache cache = c == 0 ? null : new QueryCache ( entries, 16L * entries + ( c == 2 ? 300L * n : 0 ), c == 1 ? 0 : 16 );
+				graph.setCache ( cache );
+				long asked = 0;
+				long hits = 0;
+				for ( int round = 0; round < rounds.length; round++ )	{
+					int first = round * pairs.length / rounds.length;
+					int last = first + pairs.length / rounds.length;
+					long start = System.nanoTime();
+					int wrong = 0;
+					for ( int x = first; x < last; x++ )	{
+						int length = graph.bfs ( pairs[x][0], pairs[x][1] ).size();
+						if ( c == 0 )
+							lengths[x] = length;
+						else if ( length != lengths[x] )
+							wrong++;
+					}
+					double micros = (System.nanoTime() - start) / 1e3 / (last - first);
+					if ( c == 0 )	plain[round] = micros;
+					String rate = "-\t-";
+					if ( cache != null )	{
+						rate = String.format ( "%.1f%%", 100.0 * (cache.hits() - hits) / (cache.hits() + cache.misses() - asked) ) + "\t" + cache.evictions();
+						hits = cache.hits();
+						asked = cache.hits() + cache.misses();
+					}
+					System.out.println ( actors + "\t" + n + "\t" + names[c] + "\t" + rounds[round] + "\t" + String.format ( "%.1f", micros ) + "\t"
+							+ rate + "\t" + String.format ( "%.1f", plain[round] / micros ) + "\t" + wrong );
+				}
+			}
+			graph.setCache ( null );
+		}
+	}
+
+	/**
+	 * The shortestPath search before the heap: settles every reachable vertex, each time<br>
+	 * scanning all of them for the lightest one not yet settled.
+	 * @param rows neighbors of each vertex.
+	 * @param weights weight of each edge in the rows.
+	 * @param source vertex to start from.
+	 * @param target vertex whose distance to return.
+	 * @return double weight of the lightest path, infinite if there is none.
+	 */
+	private static double legacyDijkstra ( int[][] rows, double[][] weights, int source, int target )	{
+		int n = rows.length;
+		double[] weight = new double[n];
+		Arrays.fill ( weight, Double.POSITIVE_INFINITY );
+		boolean[] marked = new boolean[n];
+		weight[source] = 0;
+		for ( int i = 0; i < n; i++ )	{
+			int smallest = -1;
+			for ( int j = 0; j < n; j++ )
+				if ( !marked[j] && weight[j] < Double.POSITIVE_INFINITY && (smallest < 0 || weight[j] < weight[smallest]) )
+					smallest = j;
+			if ( smallest < 0 )	break;
+			marked[smallest] = true;
+			for ( int e = 0; e < rows[smallest].length; e++ )
+				weight[rows[smallest][e]] = Math.min ( weight[rows[smallest][e]], weight[smallest] + weights[smallest][e] );
+		}
+		return weight[target];
+	}
+
+	/**
+	 * @param pair keys of the two ends.
+	 * @return int number of vertecies on the bfs path between a pair in a graph that may lack either key.
+	 */
+	private static int limitedLength ( Graph graph, String[] pair )	{
+		try	{
+			return graph.bfs ( pair[0], pair[1] ).size();
+		}
+		catch ( GraphException exception )	{
+			return 0;
+		}
+	}
+
+	/**
+	 * @param pair keys of the two ends.
+	 * @return int number of vertecies on the shortest path between a pair, 0 if there is none.
+	 */
+	private static int pathLength ( Graph graph, String[] pair )	{
+		try	{
+			return graph.shortestPath ( pair[0], pair[1] ).size();
+		}
+		catch ( GraphException exception )	{
+			return 0;
+		}
+	}
+
+	/**
+	 * Measures the heap held by a graph, with names and titles in symbol tables, against the<br>
+	 * same graph laid out the way it was before: a GraphNode and String per vertex name, and<br>
+	 * a String reference plus an int date per edge.
+	 * @param maxActors largest actor count to try.
+	 */
+	private static void heap ( int maxActors )	{
+		System.out.println ( "actors\tvertices\tedges\tsymbol MB\tString MB\tsaved" );
+		for ( int actors = 1000; actors <= maxActors; actors *= 10 )	{
+			long base = usedHeap();
+			Graph graph = build ( actors );
+			long symbols = usedHeap() - base;
+			Object[] legacy = legacyLayout ( graph );
+			long strings = usedHeap() - base - symbols;
+			System.out.println ( actors + "\t" + graph.numVertices() + "\t" + graph.numEdges() + "\t"
+					+ String.format ( "%.2f", symbols / 1048576.0 ) + "\t" + String.format ( "%.2f", strings / 1048576.0 ) + "\t"
+					+ String.format ( "%.1f%%", 100.0 * (strings - symbols) / strings ) + ( legacy.length == 0 ? "!" : "" ) );
+		}
+	}
+
+	/**
+	 * @return Graph loaded from the generator at one scale, with nothing else left reachable.
+	 */
+	private static Graph build ( int actors )	{
+		Graph graph = new Graph();
+		generator ( actors ).load ( graph );
+		return graph;
+	}
+
+	/**
+	 * Rebuilds the vertex list, key index and edge rows of a graph the way they were stored<br>
+	 * before symbol tables: fresh GraphNode and String keys, one shared String per movie title,<br>
+	 * and rows grown by doubling from four slots just as AdjacencyList grows them.
+	 * @param graph graph to copy.
+	 * @return Object[] holding every part of the copy.
+	 */
+	private static Object[] legacyLayout ( Graph graph )	{
+		int n = graph.numVertices();
+		int capacity = 16;
+		while ( capacity < n )	capacity *= 2;
+		int slots = 16;
+		while ( slots < 2 * n )	slots *= 2;
+		ArrayList nodes = new ArrayList();
+		Object[] keys = new Object[capacity];
+		int[] hashes = new int[capacity];
+		int[] degree = new int[capacity];
+		int[][] neighbors = new int[capacity][];
+		double[][] weights = new double[capacity][];
+		String[][] movies = new String[capacity][];
+		int[][] dates = new int[capacity][];
+		HashMap titles = new HashMap();
+		for ( int x = 0; x < n; x++ )	{
+			String key = (String)graph.getSearchKey ( x );
+			nodes.add ( new GraphNode ( key ) );
+			keys[x] = key;
+			hashes[x] = key.hashCode();
+			ArrayList row = graph.neighbors ( key );
+			degree[x] = row.size();
+			if ( row.isEmpty() )	continue;
+			int width = 4;
+			while ( width < row.size() )	width *= 2;
+			neighbors[x] = new int[width];
+			weights[x] = new double[width];
+			movies[x] = new String[width];
+			dates[x] = new int[width];
+			for ( int i = 0; i < row.size(); i++ )	{
+				String movie = graph.getMovie ( key, ((GraphNode)row.get ( i )).getKey() );
+				int open = movie.lastIndexOf ( " (" );
+				if ( open < 0 )	continue;
+				String title = movie.substring ( 0, open );
+				if ( !titles.containsKey ( title ) )
+					titles.put ( title, title );
+				neighbors[x][i] = i;
+				weights[x][i] = 1;
+				movies[x][i] = (String)titles.get ( title );
+				dates[x][i] = Integer.parseInt ( movie.substring ( open + 2, movie.length() - 1 ) );
+			}
+		}
+		return new Object[] { nodes, keys, hashes, new int[slots], degree, neighbors, weights, movies, dates };
+	}
+
+	/**
+	 * @return long bytes of heap in use after collecting garbage.
+	 */
+	private static long usedHeap()	{
+		Runtime runtime = Runtime.getRuntime();
+		for ( int x = 0; x < 4; x++ )	{
+			System.gc();
+			try	{
+				Thread.sleep ( 50 );
+			}
+			catch ( InterruptedException exception )	{
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	public static void main ( String[] args ) throws IOException	{
+		String which = args.length > 0 ? args[0] : "lookup";
+		int maxActors = args.length > 1 ? Integer.parseInt ( args[1] ) : 100000;
+		if ( which.equals ( "lookup" ) )	{
+			lookup ( maxActors );
+		}
+		else if ( which.equals ( "parse" ) )	{
+			parse ( maxActors );
+		}
+		else if ( which.equals ( "path" ) )	{
+			path ( maxActors );
+		}
+		else if ( which.equals ( "diameter" ) )	{
+			diameter ( maxActors );
+		}
+		else if ( which.equals ( "threads" ) )	{
+			threads ( maxActors );
+		}
+		else if ( which.equals ( "heap" ) )	{
+			heap ( maxActors );
+		}
+		else if ( which.equals ( "oracle" ) )	{
+			oracle ( maxActors );
+		}
+		else if ( which.equals ( "components" ) )	{
+			components ( maxActors );
+		}
+		else if ( which.equals ( "years" ) )	{
+			years ( maxActors );
+		}
+		else if ( which.equals ( "batch" ) )	{
+			batch ( maxActors );
+		}
+		else if ( which.equals ( "levels" ) )	{
+			levels ( maxActors );
+		}
+		else if ( which.equals ( "compress" ) )	{
+			compress ( maxActors );
+		}
+		else if ( which.equals ( "reorder" ) )	{
+			reorder ( maxActors );
+		}
+		else if ( which.equals ( "dijkstra" ) )	{
+			dijkstra ( maxActors );
+		}
+		else if ( which.equals ( "cache" ) )	{
+			cache ( maxActors );
+		}
+		else	{
+			System.out.println ( "Usage: java GraphBenchmark [lookup|parse|path|diameter|threads|heap|oracle|components|years|batch|levels|compress|reorder|dijkstra|cache] [largest actor count]" );
+			System.exit ( 1 );
+		}
+	}
+}
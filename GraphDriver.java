@@ -4,7 +4,7 @@ import java.io.*;
 /**
  * 
  * @author Coleman
- * This class provides a wrapper for the Graph object and parses all input files.
+ * This class provides a wrapper for the Graph object and loads all input files.
  */
 public class GraphDriver	{
 	
@@ -16,86 +16,144 @@ public class GraphDriver	{
 	 * @param path An ArrayList returned from shortestPath or the like.
 	 */
 	private static void printPath ( ArrayList path )	{
+		printPath ( path, Integer.MIN_VALUE, Integer.MAX_VALUE );
+	}
+
+	/**
+	 * Prints a path of actors from an ArrayList, naming movies from a range of years.
+	 * @param path An ArrayList returned from a search limited to the years.
+	 * @param from earliest year of a movie to name.
+	 * @param to latest year of a movie to name.
+	 */
+	private static void printPath ( ArrayList path, int from, int to )	{
 		for ( int x = 0; x < path.size() - 1; x++ )	{
 			Comparable one = ((GraphNode)path.get ( x )).getKey();
 			Comparable two = ((GraphNode)path.get ( x + 1 )).getKey();
-			String movie = mygraph.getMovie ( one, two );
+			String movie = mygraph.getMovie ( one, two, from, to );
 			if ( !movie.equals ( "(0)" ) )
 				System.out.println ( "'" + one.toString() + "' starred with '" + two.toString() + "' in the movie '" + movie + "'" );
 		}
 	}
 	
 	/**
-	 * Parses and inserts all data from an input file.
-	 * @param filename Name of the file to be read.
-	 * @param filenum Number of the file in the sequence, can be -1 if not known.
-	 * @param len Total number of input files.
+	 * Prints the command line options and quits.
 	 */
-	private static void readFile ( String filename, int filenum, int len )	{
-		BufferedReader read = null;
-		ArrayList actors = new ArrayList();
+	private static void usage()	{
+		System.out.println ( "Usage: java GraphDriver [-movies] [-save snapshot] [input files]" );
+		System.out.println ( "       java GraphDriver -load snapshot [-save snapshot]" );
+		System.out.println ( "       add -serve port to also answer queries over HTTP, which keep running during add" );
+		System.out.println ( "       add -metrics seconds to time every operation and print the times that often" );
+		System.out.println ( "       add -compress to pack the edges into a read-only graph that takes far less memory, not with -movies" );
+		System.out.println ( "       add -cache entries to remember that many path answers, and trees from the most asked actors" );
+		System.out.println ( "       add -batch pairs to print the separation of every pair of actors in a file, - for stdin, and quit" );
+		System.exit ( 1 );
+	}
+	
+	public static void main ( String[] args )	{  
+		// -movies keeps movies as vertices instead of linking every pair of co-stars
+		// -load opens a saved snapshot instead of reading input files, -save writes one after reading them
+		// -serve answers queries over HTTP on localhost alongside the menu
+		// -metrics turns on GraphMetrics, which also shows the times over JMX
+		// -batch answers a file of actor pairs instead of showing the menu
+		// -compress swaps the graph for the read-only view Graph.compress packs
+		// -cache installs a QueryCache, which the views the server searches share
+		int first = 0;
+		boolean movieVertices = false;
+		String loadfile = null;
+		String savefile = null;
+		int port = -1;
+		int metrics = 0;
+		String batchfile = null;
+		boolean compress = false;
+		int cache = 0;
+		GraphServer server = null;
+		while ( first < args.length && args[first].startsWith ( "-" ) && args[first].length() > 1 )	{
+			if ( args[first].equals ( "-movies" ) )
+				movieVertices = true;
+			else if ( args[first].equals ( "-load" ) && first + 1 < args.length )
+				loadfile = args[++first];
+			else if ( args[first].equals ( "-save" ) && first + 1 < args.length )
+				savefile = args[++first];
+			else if ( args[first].equals ( "-serve" ) && first + 1 < args.length )
+				port = Integer.parseInt ( args[++first] );
+			else if ( args[first].equals ( "-metrics" ) && first + 1 < args.length )
+				metrics = Integer.parseInt ( args[++first] );
+			else if ( args[first].equals ( "-batch" ) && first + 1 < args.length )
+				batchfile = args[++first];
+			else if ( args[first].equals ( "-compress" ) )
+				compress = true;
+			else if ( args[first].equals ( "-cache" ) && first + 1 < args.length )
+				cache = Integer.parseInt ( args[++first] );
+			else
+				usage();
+			first++;
+		}
+		if ( loadfile == null && args.length - first < 1 )
+			usage();
+		if ( metrics > 0 )	{
+			//GraphMetrics reads the property once, so it is set before any graph is touched
+			System.setProperty ( "graph.metrics", "true" );
+			GraphMetrics.startDump ( metrics * 1000L );
+		}
+		
 		try	{
-			String t = "";
-			if ( filenum != -1 )	{
-				t = " (" + (filenum + 1) + "/" + len + ")";
-			}
-			System.out.println ( "***Reading from file: " + filename + t );
-			read = new BufferedReader ( new FileReader ( filename ) );
-			//this big loop reads in the movie name and all the actors
-			while ( read.ready() )	{
-				String line = read.readLine();
-				if ( line.equals ( "" ) )	continue;
-				//split the date off the movie name, makes for easier tie breaking.
-				String data[] = line.split ( "\\(\\d{4}\\)\\s*$" );
-				String date =  line.substring ( data[0].length() + 1, data[0].length() + 5 );
-				data[0].trim();
-				
-				//get all the actors in a usable form
-				line = read.readLine();
-				// NEW
-				// added check for read.ready() : no longer must have two lines ending input file
-				while ( read.ready() && !line.equals ( "" ) )	{
-					actors.add ( line );
-					line = read.readLine();
-				}
-				String actor[] = new String[actors.size()];
-				actor = (String [])actors.toArray ( actor );
-				//now we must add all the actors into the graph
-				for ( int x = 0; x < actor.length; x++ )	{
-					try	{
-						mygraph.addVertex ( new GraphNode ( actor[x] ) );
-					}
-					catch ( GraphException exception )	{}
-				}
-				//and add an edge between all the actors for this movie
-				for ( int x = 0; x < actor.length - 1; x++ )	{
-					for ( int y = x + 1; y < actor.length; y++ )	{
-						try	{
-							mygraph.addEdge ( actor[x], actor[y], data[0], date );
-						}
-						catch ( GraphException exception )	{}
-					}
+			if ( loadfile != null )	{
+				long start = System.nanoTime();
+				mygraph = Graph.load ( loadfile );
+				System.out.println ( "***Opened snapshot " + loadfile + " with " + mygraph.numVertices() + " vertecies in "
+						+ (System.nanoTime() - start) / 1000000 + "ms" );
+			}
+			else	{
+				mygraph = new Graph ( false, movieVertices );
+				String files[] = new String[args.length - first];
+				System.arraycopy ( args, first, files, 0, files.length );
+				new MoviePipeline ( mygraph ).load ( files );
+			}
+			if ( savefile != null )	{
+				mygraph.save ( savefile );
+				System.out.println ( "***Saved snapshot " + savefile );
+			}
+			if ( compress )	{
+				long start = System.nanoTime();
+				try	{
+					mygraph = mygraph.compress();
+					System.out.println ( "***Compressed " + mygraph.numVertices() + " vertecies in " + (System.nanoTime() - start) / 1000000 + "ms" );
 				}
-				//start all over again
-				actors.clear();
-			}// end while
+				catch ( GraphException exception )	{
+					//the graph is still complete, so it is searched as it is
+					System.out.println ( "***Not compressed: " + exception.getMessage() );
+				}
+			}
+			if ( cache > 0 )	{
+				//room for a path of 32 vertecies per entry and for 32 trees, trees after 16 misses from one actor
+				mygraph.setCache ( new QueryCache ( cache, 32L * (cache + mygraph.numVertices()), 16 ) );
+				//the view the input files were committed to predates the cache, so the server gets a new one
+				if ( mygraph.view() != mygraph )	mygraph.commit();
+			}
+			if ( port >= 0 )	{
+				server = new GraphServer ( mygraph, port );
+				server.start();
+				System.out.println ( "***Serving " + mygraph.numVertices() + " vertecies on http://localhost:" + server.getPort()
+						+ "/ with " + ( server.isVirtual() ? "virtual threads" : "a thread pool" ) );
+			}
 		}
 		catch ( IOException exception )	{
-			System.out.println ( "Error reading the file: " + filename );
-			exception.printStackTrace();
-		}
-	}
-	
-	public static void main ( String[] args )	{  
-		if ( args.length < 1 )	{
-			System.out.println ( "Usage: java GraphDriver [input files]" );
+			System.out.println ( "Error with the snapshot or server: " + exception.getMessage() );
 			System.exit ( 1 );
 		}
-		
-		mygraph = new Graph();
-		
-		for ( int filenum = 0; filenum < args.length; filenum++ )	{
-			readFile ( args[filenum], filenum, args.length );
+		if ( batchfile != null )	{
+			try	{
+				BufferedReader pairs = new BufferedReader ( batchfile.equals ( "-" ) ? new InputStreamReader ( System.in )
+						: new FileReader ( batchfile ) );
+				new BatchQuery ( mygraph ).run ( pairs, System.out );
+				pairs.close();
+			}
+			catch ( IOException exception )	{
+				System.out.println ( "Error reading the pairs: " + exception.getMessage() );
+				System.exit ( 1 );
+			}
+			if ( server != null )	server.stop();
+			return;
 		}
 		
 		/* this block is the user interface. it is simple, but yet still allows for all
@@ -106,13 +164,17 @@ public class GraphDriver	{
 			System.out.println ( "*Commands*\t*Description*" );
 			System.out.println ( "path\t\tDjikstra's Shortest Path" );
 			System.out.println ( "bfs\t\tBreadth-First Search" );
+			System.out.println ( "years\t\tBreadth-First Search Through Movies Of Some Years" );
 			System.out.println ( "add\t\tUpdate Graph From File" );
 			System.out.println ( "dia\t\tCompute Diameter Of Graph" );
 			System.out.println ( "quit\t\tQuit" );
 			System.out.print ( "> " );
 			BufferedReader in = new BufferedReader ( new InputStreamReader ( System.in ) );
 			try	{
-				command = in.readLine().trim();
+				String line = in.readLine();
+				//without a console the server, if any, keeps running on its own
+				if ( line == null )	return;
+				command = line.trim();
 			}
 			catch ( IOException exception )	{
 				System.out.println ( "bailing from command:" );
@@ -134,6 +196,7 @@ public class GraphDriver	{
 				else	{
 					ArrayList path = mygraph.shortestPath ( actors[0].trim(), actors[1].trim() );
 					printPath ( path );
+					System.out.println ( "Total weight of the path: " + mygraph.pathCost ( path ) );
 				}
 			}
 			else if ( command.equals( "bfs" ) )	{
@@ -154,6 +217,46 @@ public class GraphDriver	{
 					printPath ( path );
 				}
 			}
+			else if ( command.equals( "years" ) )	{
+				String actors[] = null;
+				String years[] = null;
+				try	{
+					System.out.print ( "actors (one,two)> " );
+					actors = in.readLine().trim().split ( "," );
+					System.out.print ( "years (from,to)> " );
+					years = in.readLine().trim().split ( "," );
+				}
+				catch ( IOException exception )	{
+					System.out.println ( "bailing from years:" );
+					exception.printStackTrace();
+				}
+				int from = 0;
+				int to = 0;
+				try	{
+					if ( years != null && years.length == 2 )	{
+						from = Integer.parseInt ( years[0].trim() );
+						to = Integer.parseInt ( years[1].trim() );
+					}
+				}
+				catch ( NumberFormatException exception )	{
+					years = null;
+				}
+				if ( actors == null || years == null || actors.length != 2 || years.length != 2 )	{
+					System.out.println ( "Enter two actors and two years only!" );
+				}
+				else	{
+					if ( !mygraph.keepsEveryMovie() )
+						System.out.println ( "Note: co-star graphs only keep the oldest movie of each pair, so pairs who first starred together before "
+								+ from + " are left out even if they did again later. Start with -movies for exact ranges." );
+					ArrayList path = mygraph.bfs ( actors[0].trim(), actors[1].trim(), from, to );
+					if ( path.isEmpty() )
+						System.out.println ( "No connecting path through movies from " + from + " to " + to + "!" );
+					printPath ( path, from, to );
+				}
+			}
+			else if ( command.equals ( "add" ) && mygraph.isReadOnly() )	{
+				System.out.println ( "The graph is read-only, start without -load or -compress to add files!" );
+			}
 			else if ( command.equals ( "add" ) )	{
 				System.out.print ( "read from file> " );
 				String filename[] = null;
@@ -164,15 +267,22 @@ public class GraphDriver	{
 					System.out.println ( "bailing from add:" );
 					exception.printStackTrace();
 				}
-				for ( int q = 0; q < filename.length; q++ )	{
-					readFile ( filename[q], q, filename.length );
-				}
+				new MoviePipeline ( mygraph ).load ( filename );
 			}
 			else if ( command.equals ( "dia" ) )	{
 				System.out.println ( "Please wait while searching through " + mygraph.numVertices() + " vertecies..." );
-				System.out.println ( "The diameter of the graph is " + mygraph.diameter() );
+				ArrayList path = mygraph.diameterPath();
+				if ( path.isEmpty() )	{
+					System.out.println ( "The diameter of the graph is " + Double.POSITIVE_INFINITY );
+				}
+				else	{
+					System.out.println ( "The diameter of the graph is " + (path.size() - 1) + ", between '"
+							+ ((GraphNode)path.get ( 0 )).getKey() + "' and '" + ((GraphNode)path.get ( path.size() - 1 )).getKey() + "'" );
+					printPath ( path );
+				}
 			}
 			else if ( command.equals ( "quit" ) )	{
+				if ( server != null )	server.stop();
 				break;
 			}
 			else	{
@@ -0,0 +1,308 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts and times Graph operations, and records how many vertices each search visits and how<br>
+ * wide its frontier grows. Times go into log-linear histograms like HdrHistogram's, sixteen<br>
+ * buckets for every power of two, so percentiles come out within about 6% at any scale and<br>
+ * recording is one array increment. Metrics are only kept when the JVM is started with<br>
+ * -Dgraph.metrics=true. ENABLED is then fixed for the life of the JVM, so when it is false the<br>
+ * JIT drops every recording call and the searches run exactly as they did without them.<br>
+ * While enabled the metrics are registered over JMX as "Graph:type=GraphMetrics", and<br>
+ * startDump prints them every so often.
+ */
+public class GraphMetrics implements GraphMetricsMBean	{
+	//true if operations are being recorded, read once when the class loads
+	public static final boolean ENABLED = Boolean.getBoolean ( "graph.metrics" );
+	//timed operations
+	static final int LOAD = 0;
+	static final int ADD_EDGE = 1;
+	static final int ADD_MOVIE = 2;
+	static final int BFT = 3;
+	static final int BFS = 4;
+	static final int DFS = 5;
+	static final int SHORTEST_PATH = 6;
+	static final int DIAMETER = 7;
+	static final int SEPARATION = 8;
+	static final int DISTANCES = 9;
+	static final int COMPRESS = 10;
+	static final int REORDER = 11;
+	private static final String[] NAMES = { "load", "addEdge", "addMovie", "bft", "bfs", "dfs", "shortestPath", "diameter", "separation", "distances", "compress", "reorder" };
+	//name the metrics are registered under
+	private static final String OBJECT_NAME = "Graph:type=GraphMetrics";
+	//time, vertices visited and widest frontier of each operation
+	private static final Histogram[] TIMES = new Histogram[NAMES.length];
+	private static final Histogram[] VISITED = new Histogram[NAMES.length];
+	private static final Histogram[] FRONTIER = new Histogram[NAMES.length];
+	//thread printing the metrics, null if there is none
+	private static Thread dumper;
+
+	static	{
+		for ( int op = 0; op < NAMES.length; op++ )	{
+			TIMES[op] = new Histogram();
+			VISITED[op] = new Histogram();
+			FRONTIER[op] = new Histogram();
+		}
+		if ( ENABLED )	{
+			try	{
+				ManagementFactory.getPlatformMBeanServer().registerMBean ( new GraphMetrics(), new ObjectName ( OBJECT_NAME ) );
+			}
+			catch ( JMException exception )	{
+				System.err.println ( "Graph metrics are not available over JMX: " + exception.getMessage() );
+			}
+		}
+	}
+
+	/**
+	 * Private constructor, the only instance is the one registered over JMX.
+	 */
+	private GraphMetrics()	{
+	}
+
+	/**
+	 * Counts of values in log-linear buckets. Values below 16 get a bucket each, and every<br>
+	 * power of two above that is split into 16 buckets. Buckets are only ever incremented,<br>
+	 * so any number of threads can record at once without a lock.
+	 */
+	static class Histogram	{
+		//buckets for each power of two, as a number of bits
+		private static final int SUB_BITS = 4;
+		private static final int SUB_COUNT = 1 << SUB_BITS;
+		//enough buckets for any positive long
+		private AtomicLongArray counts = new AtomicLongArray ( (64 - SUB_BITS) << SUB_BITS );
+		private AtomicLong total = new AtomicLong();
+		private AtomicLong sum = new AtomicLong();
+		private AtomicLong max = new AtomicLong();
+
+		/**
+		 * Records one value.
+		 * @param value value to record, negative values count as 0.
+		 */
+		void record ( long value )	{
+			if ( value < 0 )	value = 0;
+			counts.incrementAndGet ( bucket ( value ) );
+			total.incrementAndGet();
+			sum.addAndGet ( value );
+			for ( long most = max.get(); value > most && !max.compareAndSet ( most, value ); most = max.get() );
+		}
+
+		/**
+		 * @return int bucket a value is counted in.
+		 */
+		static int bucket ( long value )	{
+			if ( value < SUB_COUNT )	return (int)value;
+			int shift = 63 - Long.numberOfLeadingZeros ( value ) - SUB_BITS;
+			return (shift + 1) << SUB_BITS | (int)(value >>> shift) & (SUB_COUNT - 1);
+		}
+
+		/**
+		 * @return long largest value counted in a bucket.
+		 */
+		static long highest ( int bucket )	{
+			if ( bucket < SUB_COUNT )	return bucket;
+			int shift = (bucket >>> SUB_BITS) - 1;
+			return ((long)(SUB_COUNT | bucket & (SUB_COUNT - 1)) << shift) + (1L << shift) - 1;
+		}
+
+		/**
+		 * @return long number of values recorded.
+		 */
+		long count()	{
+			return total.get();
+		}
+
+		/**
+		 * @return double mean of the values, 0 if there are none.
+		 */
+		double mean()	{
+			long n = total.get();
+			return n == 0 ? 0 : (double)sum.get() / n;
+		}
+
+		/**
+		 * @return long largest value recorded.
+		 */
+		long max()	{
+			return max.get();
+		}
+
+		/**
+		 * Finds a percentile, rounded up to the top of its bucket but never past the largest value.
+		 * @param fraction fraction of the values at or below the result, from 0 to 1.
+		 * @return long value at the fraction, 0 if there are none.
+		 */
+		long percentile ( double fraction )	{
+			long n = total.get();
+			if ( n == 0 )	return 0;
+			long rank = Math.max ( 1, (long)Math.ceil ( fraction * n ) );
+			long seen = 0;
+			for ( int b = 0; b < counts.length(); b++ )	{
+				seen += counts.get ( b );
+				if ( seen >= rank )	return Math.min ( highest ( b ), max.get() );
+			}
+			return max.get();
+		}
+
+		/**
+		 * Forgets every value.
+		 */
+		void reset()	{
+			for ( int b = 0; b < counts.length(); b++ )
+				counts.set ( b, 0 );
+			total.set ( 0 );
+			sum.set ( 0 );
+			max.set ( 0 );
+		}
+	}
+
+	/**
+	 * Starts timing an operation.
+	 * @return long time to hand to time, 0 if metrics are off.
+	 */
+	static long start()	{
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Records the time an operation took.
+	 * @param op operation, LOAD through REORDER.
+	 * @param start time returned by start when the operation began.
+	 */
+	static void time ( int op, long start )	{
+		if ( !ENABLED )	return;
+		TIMES[op].record ( System.nanoTime() - start );
+	}
+
+	/**
+	 * Records the size of one search.
+	 * @param op operation that searched.
+	 * @param visited number of vertices the search reached.
+	 * @param frontier most vertices waiting to be expanded at any one time.
+	 */
+	static void search ( int op, int visited, int frontier )	{
+		if ( !ENABLED )	return;
+		VISITED[op].record ( visited );
+		FRONTIER[op].record ( frontier );
+	}
+
+	/**
+	 * @return String table of every operation that has run, times in microseconds.
+	 */
+	public static String dump()	{
+		StringBuilder text = new StringBuilder();
+		text.append ( "operation\tcount\tmean us\tp50 us\tp90 us\tp99 us\tmax us\tvisited p50\tvisited max\tfrontier p50\tfrontier max\n" );
+		for ( int op = 0; op < NAMES.length; op++ )	{
+			Histogram times = TIMES[op];
+			if ( times.count() == 0 )	continue;
+			text.append ( NAMES[op] ).append ( NAMES[op].length() < 8 ? "\t\t" : "\t" ).append ( times.count() );
+			text.append ( String.format ( "\t%.1f\t%.1f\t%.1f\t%.1f\t%.1f", times.mean() / 1000, times.percentile ( 0.5 ) / 1000.0,
+					times.percentile ( 0.9 ) / 1000.0, times.percentile ( 0.99 ) / 1000.0, times.max() / 1000.0 ) );
+			if ( VISITED[op].count() > 0 )
+				text.append ( '\t' ).append ( VISITED[op].percentile ( 0.5 ) ).append ( '\t' ).append ( VISITED[op].max() )
+						.append ( '\t' ).append ( FRONTIER[op].percentile ( 0.5 ) ).append ( '\t' ).append ( FRONTIER[op].max() );
+			text.append ( '\n' );
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Prints dump to standard error every so often from a daemon thread, replacing any thread<br>
+	 * started before. Does nothing if metrics are off.
+	 * @param millis time between dumps.
+	 */
+	public static synchronized void startDump ( final long millis )	{
+		if ( !ENABLED )	return;
+		stopDump();
+		dumper = new Thread ( new Runnable()	{
+			public void run()	{
+				try	{
+					while ( !Thread.currentThread().isInterrupted() )	{
+						Thread.sleep ( millis );
+						System.err.print ( "***Graph metrics\n" + dump() );
+					}
+				}
+				catch ( InterruptedException exception )	{}
+			}
+		}, "graph-metrics" );
+		dumper.setDaemon ( true );
+		dumper.start();
+	}
+
+	/**
+	 * Stops the thread started by startDump, if there is one.
+	 */
+	public static synchronized void stopDump()	{
+		if ( dumper == null )	return;
+		dumper.interrupt();
+		dumper = null;
+	}
+
+	public String[] getOperations()	{
+		return NAMES.clone();
+	}
+
+	public long[] getCounts()	{
+		long[] counts = new long[NAMES.length];
+		for ( int op = 0; op < counts.length; op++ )
+			counts[op] = TIMES[op].count();
+		return counts;
+	}
+
+	public double[] getMeanMicros()	{
+		double[] micros = new double[NAMES.length];
+		for ( int op = 0; op < micros.length; op++ )
+			micros[op] = TIMES[op].mean() / 1000;
+		return micros;
+	}
+
+	public double[] getMedianMicros()	{
+		return micros ( 0.5 );
+	}
+
+	public double[] getP99Micros()	{
+		return micros ( 0.99 );
+	}
+
+	public double[] getMaxMicros()	{
+		return micros ( 1 );
+	}
+
+	/**
+	 * Private method for one percentile of every operation's time.
+	 */
+	private static double[] micros ( double fraction )	{
+		double[] micros = new double[NAMES.length];
+		for ( int op = 0; op < micros.length; op++ )
+			micros[op] = TIMES[op].percentile ( fraction ) / 1000.0;
+		return micros;
+	}
+
+	public long[] getMedianVisited()	{
+		long[] visited = new long[NAMES.length];
+		for ( int op = 0; op < visited.length; op++ )
+			visited[op] = VISITED[op].percentile ( 0.5 );
+		return visited;
+	}
+
+	public long[] getMaxFrontier()	{
+		long[] frontier = new long[NAMES.length];
+		for ( int op = 0; op < frontier.length; op++ )
+			frontier[op] = FRONTIER[op].max();
+		return frontier;
+	}
+
+	public String getReport()	{
+		return dump();
+	}
+
+	public void reset()	{
+		for ( int op = 0; op < NAMES.length; op++ )	{
+			TIMES[op].reset();
+			VISITED[op].reset();
+			FRONTIER[op].reset();
+		}
+	}
+}
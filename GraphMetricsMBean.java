@@ -0,0 +1,55 @@
+/**
+ * What GraphMetrics shows over JMX. Each array has one entry per name in getOperations.
+ */
+public interface GraphMetricsMBean	{
+
+	/**
+	 * @return String[] names of the timed operations.
+	 */
+	String[] getOperations();
+
+	/**
+	 * @return long[] number of times each operation ran.
+	 */
+	long[] getCounts();
+
+	/**
+	 * @return double[] mean time of each operation in microseconds.
+	 */
+	double[] getMeanMicros();
+
+	/**
+	 * @return double[] median time of each operation in microseconds.
+	 */
+	double[] getMedianMicros();
+
+	/**
+	 * @return double[] 99th percentile time of each operation in microseconds.
+	 */
+	double[] getP99Micros();
+
+	/**
+	 * @return double[] longest time of each operation in microseconds.
+	 */
+	double[] getMaxMicros();
+
+	/**
+	 * @return long[] median number of vertices each search visited, 0 for operations that do not search.
+	 */
+	long[] getMedianVisited();
+
+	/**
+	 * @return long[] widest frontier any search of each operation kept.
+	 */
+	long[] getMaxFrontier();
+
+	/**
+	 * @return String of the same table the periodic dump prints.
+	 */
+	String getReport();
+
+	/**
+	 * Forgets everything recorded so far.
+	 */
+	void reset();
+}
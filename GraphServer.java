@@ -0,0 +1,327 @@
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers queries against one loaded Graph over HTTP on localhost, with JSON responses.<br>
+ * Every request gets its own virtual thread when the JVM has them, and a thread from a<br>
+ * cached pool otherwise. Only a few requests per processor search at once and the rest<br>
+ * wait their turn, since each search holds a QueryState as large as the graph, which<br>
+ * thousands of requests in flight would otherwise each allocate. Each request searches the view the graph last committed, so any<br>
+ * number of requests can search at once while updates go into the graph itself, and a<br>
+ * request never sees half of an update.
+ * <pre>
+ * GET /path?from=A&amp;to=B      shortest path, with the movie linking each step
+ * GET /bfs?from=A&amp;to=B       breadth-first path, with the movie linking each step
+ *     &amp;since=Y&amp;until=Z        either path only through movies released in those years,
+ *                             since only on graphs that keep every movie
+ * GET /neighbors?actor=A      every vertex one edge away
+ * GET /sample?count=N         N random vertex names, for load testing
+ * GET /stats                  size of the graph, requests served and cache counts
+ * </pre>
+ */
+public class GraphServer	{
+	//graph being served
+	private Graph graph;
+	//the JDK server and the executor running its requests
+	private HttpServer server;
+	private ExecutorService executor;
+	//true if executor hands out virtual threads
+	private boolean virtual;
+	//requests answered so far, and how many of them failed
+	private AtomicLong requests = new AtomicLong();
+	private AtomicLong errors = new AtomicLong();
+	//when the server started
+	private long started;
+	//requests searching at once, each holding a QueryState the size of the graph
+	private Semaphore searches = new Semaphore ( 2 * Runtime.getRuntime().availableProcessors() );
+
+	/**
+	 * Constructor, makes a new GraphServer bound to a port on localhost.
+	 * @param graph graph to answer queries against.
+	 * @param port port to listen on, 0 picks a free one.
+	 * @throws IOException if the port cannot be bound.
+	 */
+	public GraphServer ( Graph graph, int port ) throws IOException	{
+		this.graph = graph;
+		//a deep accept backlog lets thousands of clients connect at once
+		server = HttpServer.create ( new InetSocketAddress ( InetAddress.getLoopbackAddress(), port ), 4096 );
+		executor = virtualExecutor();
+		virtual = executor != null;
+		if ( !virtual )
+			executor = Executors.newCachedThreadPool();
+		server.setExecutor ( executor );
+		server.createContext ( "/path", new Query ( "path" ) );
+		server.createContext ( "/bfs", new Query ( "bfs" ) );
+		server.createContext ( "/neighbors", new Query ( "neighbors" ) );
+		server.createContext ( "/sample", new Query ( "sample" ) );
+		server.createContext ( "/stats", new Query ( "stats" ) );
+	}
+
+	/**
+	 * Looks up the executor that starts a virtual thread per task, which only newer JVMs have.
+	 * @return ExecutorService of virtual threads, null if the JVM has none.
+	 */
+	private static ExecutorService virtualExecutor()	{
+		try	{
+			Method method = Executors.class.getMethod ( "newVirtualThreadPerTaskExecutor" );
+			return (ExecutorService)method.invoke ( null );
+		}
+		catch ( Exception exception )	{
+			return null;
+		}
+	}
+
+	/**
+	 * Starts answering requests in the background.
+	 */
+	public void start()	{
+		started = System.currentTimeMillis();
+		server.start();
+	}
+
+	/**
+	 * Stops answering requests, giving ones in progress a second to finish.
+	 */
+	public void stop()	{
+		server.stop ( 1 );
+		executor.shutdown();
+	}
+
+	/**
+	 * @return int port the server is listening on.
+	 */
+	public int getPort()	{
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * @return boolean true if requests run on virtual threads.
+	 */
+	public boolean isVirtual()	{
+		return virtual;
+	}
+
+	/**
+	 * Answers one kind of query, turning GraphExceptions into error responses.
+	 */
+	private class Query implements HttpHandler	{
+		private String name;
+
+		Query ( String name )	{
+			this.name = name;
+		}
+
+		public void handle ( HttpExchange exchange ) throws IOException	{
+			requests.incrementAndGet();
+			int status = 200;
+			String body;
+			try	{
+				if ( !exchange.getRequestMethod().equals ( "GET" ) )	{
+					status = 405;
+					body = error ( "Only GET is supported!" );
+				}
+				else	{
+					HashMap params = parameters ( exchange.getRequestURI().getRawQuery() );
+					searches.acquireUninterruptibly();
+					try	{
+						body = answer ( name, params );
+					}
+					finally	{
+						searches.release();
+					}
+				}
+			}
+			catch ( GraphException exception )	{
+				status = 404;
+				body = error ( exception.getMessage() );
+			}
+			catch ( IllegalArgumentException exception )	{
+				status = 400;
+				body = error ( exception.getMessage() );
+			}
+			catch ( RuntimeException exception )	{
+				status = 500;
+				body = error ( String.valueOf ( exception ) );
+			}
+			if ( status != 200 )	errors.incrementAndGet();
+			byte[] bytes = body.getBytes ( StandardCharsets.UTF_8 );
+			exchange.getResponseHeaders().set ( "Content-Type", "application/json; charset=utf-8" );
+			exchange.sendResponseHeaders ( status, bytes.length );
+			OutputStream out = exchange.getResponseBody();
+			out.write ( bytes );
+			out.close();
+		}
+	}
+
+	/**
+	 * Runs one query.
+	 * @param name name of the query.
+	 * @param params parameters of the request.
+	 * @return String of the JSON response.
+	 * @throws GraphException if the graph cannot answer the query.
+	 */
+	private String answer ( String name, HashMap params ) throws GraphException	{
+		Graph graph = this.graph.view();
+		if ( name.equals ( "path" ) || name.equals ( "bfs" ) )	{
+			String from = required ( params, "from" );
+			String to = required ( params, "to" );
+			boolean limited = params.containsKey ( "since" ) || params.containsKey ( "until" );
+			int since = params.containsKey ( "since" ) ? year ( (String)params.get ( "since" ) ) : Integer.MIN_VALUE;
+			int until = params.containsKey ( "until" ) ? year ( (String)params.get ( "until" ) ) : Integer.MAX_VALUE;
+			//a co-star graph would leave out every pair whose oldest movie is before since
+			if ( params.containsKey ( "since" ) && !graph.keepsEveryMovie() )
+				throw new IllegalArgumentException ( "Co-star graphs only keep the oldest movie of each pair, since needs a graph loaded with -movies!" );
+			ArrayList path;
+			if ( name.equals ( "path" ) )
+				path = limited ? graph.shortestPath ( from, to, since, until ) : graph.shortestPath ( from, to );
+			else
+				path = limited ? graph.bfs ( from, to, since, until ) : graph.bfs ( from, to );
+			if ( path.isEmpty() )	throw new GraphException ( "No connecting path!" );
+			return path ( graph, from, to, path, since, until );
+		}
+		if ( name.equals ( "neighbors" ) )	{
+			String actor = required ( params, "actor" );
+			ArrayList list = graph.neighbors ( actor );
+			StringBuilder json = new StringBuilder();
+			json.append ( "{\"actor\":" ).append ( quote ( actor ) ).append ( ",\"count\":" ).append ( list.size() ).append ( ",\"neighbors\":[" );
+			for ( int x = 0; x < list.size(); x++ )	{
+				if ( x > 0 )	json.append ( ',' );
+				json.append ( quote ( ((GraphNode)list.get ( x )).getKey().toString() ) );
+			}
+			return json.append ( "]}" ).toString();
+		}
+		if ( name.equals ( "sample" ) )	{
+			int count = params.containsKey ( "count" ) ? number ( (String)params.get ( "count" ) ) : 1;
+			int n = graph.numVertices();
+			StringBuilder json = new StringBuilder ( "{\"actors\":[" );
+			for ( int x = 0; x < count && n > 0; x++ )	{
+				if ( x > 0 )	json.append ( ',' );
+				json.append ( quote ( graph.getSearchKey ( ThreadLocalRandom.current().nextInt ( n ) ).toString() ) );
+			}
+			return json.append ( "]}" ).toString();
+		}
+		QueryCache cache = graph.getCache();
+		return "{\"vertices\":" + graph.numVertices() + ",\"edges\":" + graph.numEdges() + ",\"requests\":" + requests.get()
+				+ ",\"errors\":" + errors.get() + ",\"uptimeMs\":" + (System.currentTimeMillis() - started)
+				+ ",\"virtualThreads\":" + virtual
+				+ ( cache == null ? "" : ",\"cache\":{\"entries\":" + cache.size() + ",\"weight\":" + cache.weight() + ",\"hits\":" + cache.hits()
+						+ ",\"misses\":" + cache.misses() + ",\"evictions\":" + cache.evictions() + "}" ) + "}";
+	}
+
+	/**
+	 * Describes a path the way GraphDriver.printPath does, one step per pair of actors.
+	 * @param graph view the path was found in.
+	 * @param since earliest year of a movie the path was allowed to follow.
+	 * @param until latest year of a movie the path was allowed to follow.
+	 * @return String of the JSON response.
+	 */
+	private static String path ( Graph graph, String from, String to, ArrayList path, int since, int until )	{
+		StringBuilder json = new StringBuilder();
+		json.append ( "{\"from\":" ).append ( quote ( from ) ).append ( ",\"to\":" ).append ( quote ( to ) );
+		json.append ( ",\"length\":" ).append ( path.size() - 1 ).append ( ",\"cost\":" ).append ( graph.pathCost ( path ) ).append ( ",\"steps\":[" );
+		for ( int x = 0; x < path.size() - 1; x++ )	{
+			Comparable one = ((GraphNode)path.get ( x )).getKey();
+			Comparable two = ((GraphNode)path.get ( x + 1 )).getKey();
+			String movie = graph.getMovie ( one, two, since, until );
+			if ( x > 0 )	json.append ( ',' );
+			json.append ( "{\"actor\":" ).append ( quote ( one.toString() ) ).append ( ",\"costar\":" ).append ( quote ( two.toString() ) );
+			if ( !movie.equals ( "(0)" ) )	{
+				json.append ( ",\"movie\":" ).append ( quote ( movie ) );
+				json.append ( ",\"text\":" ).append ( quote ( "'" + one + "' starred with '" + two + "' in the movie '" + movie + "'" ) );
+			}
+			json.append ( '}' );
+		}
+		return json.append ( "]}" ).toString();
+	}
+
+	/**
+	 * Splits a raw query string into its decoded parameters.
+	 * @param query raw query string, may be null.
+	 * @return HashMap of parameter names to values.
+	 */
+	private static HashMap parameters ( String query )	{
+		HashMap params = new HashMap();
+		if ( query == null )	return params;
+		String[] pairs = query.split ( "&" );
+		for ( int x = 0; x < pairs.length; x++ )	{
+			int equals = pairs[x].indexOf ( '=' );
+			if ( equals <= 0 )	continue;
+			params.put ( URLDecoder.decode ( pairs[x].substring ( 0, equals ), StandardCharsets.UTF_8 ),
+					URLDecoder.decode ( pairs[x].substring ( equals + 1 ), StandardCharsets.UTF_8 ).trim() );
+		}
+		return params;
+	}
+
+	/**
+	 * @return String value of a parameter the query cannot do without.
+	 * @throws IllegalArgumentException if the parameter is missing.
+	 */
+	private static String required ( HashMap params, String name )	{
+		String value = (String)params.get ( name );
+		if ( value == null || value.length() == 0 )
+			throw new IllegalArgumentException ( "Missing parameter '" + name + "'!" );
+		return value;
+	}
+
+	/**
+	 * @return int value of a count parameter, between 0 and 10000.
+	 * @throws IllegalArgumentException if the value is not a number.
+	 */
+	private static int number ( String value )	{
+		try	{
+			return Math.max ( 0, Math.min ( 10000, Integer.parseInt ( value ) ) );
+		}
+		catch ( NumberFormatException exception )	{
+			throw new IllegalArgumentException ( "Not a number: '" + value + "'!" );
+		}
+	}
+
+	/**
+	 * @return int value of a year parameter.
+	 * @throws IllegalArgumentException if the value is not a number.
+	 */
+	private static int year ( String value )	{
+		try	{
+			return Integer.parseInt ( value );
+		}
+		catch ( NumberFormatException exception )	{
+			throw new IllegalArgumentException ( "Not a year: '" + value + "'!" );
+		}
+	}
+
+	/**
+	 * @return String of an error response.
+	 */
+	private static String error ( String message )	{
+		return "{\"error\":" + quote ( message ) + "}";
+	}
+
+	/**
+	 * Makes a JSON string literal.
+	 * @param text text to quote.
+	 * @return String of the quoted and escaped text.
+	 */
+	static String quote ( String text )	{
+		StringBuilder json = new StringBuilder ( text.length() + 2 );
+		json.append ( '"' );
+		for ( int x = 0; x < text.length(); x++ )	{
+			char c = text.charAt ( x );
+			if ( c == '"' || c == '\\' )
+				json.append ( '\\' ).append ( c );
+			else if ( c < ' ' )
+				json.append ( String.format ( "\\u%04x", (int)c ) );
+			else
+				json.append ( c );
+		}
+		return json.append ( '"' ).toString();
+	}
+}
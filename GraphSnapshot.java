@@ -0,0 +1,454 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A Graph saved as a compact binary file and read back through memory mapping. The file holds<br>
+ * a table of vertex keys with a hash table over them, a table of movie titles and dates, and<br>
+ * the edges in compressed sparse row form: one offset per vertex into a neighbor array with<br>
+ * the movie and year of every edge alongside. Nothing is decoded up front, so a loaded graph<br>
+ * can answer queries as soon as the file is mapped.
+ */
+class GraphSnapshot extends EdgeStore	{
+	//first eight bytes of every snapshot, "MGRAPH01"
+	private static final long MAGIC = 0x4D47524150483031L;
+	//bytes before the first section
+	private static final int HEADER = 128;
+	//flag bits in the header
+	private static final int DIRECTED = 1;
+	private static final int WEIGHTED = 2;
+	//bytes per mapping, a multiple of eight so no aligned value spans two mappings
+	private static final int CHUNK_BITS = 30;
+	private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+	//the mapped file
+	private MappedByteBuffer[] chunks;
+	//header values
+	private int flags;
+	private int vertices;
+	private int movies;
+	private long edges;
+	private int slots;
+	//start of each section
+	private long keyOffsets;
+	private long keyBytes;
+	private long hashTable;
+	private long titleOffsets;
+	private long titleBytes;
+	private long movieDates;
+	private long edgeOffsets;
+	private long neighbors;
+	private long edgeMovies;
+	private long edgeYears;
+	private long edgeWeights;
+
+	/**
+	 * Maps a snapshot file.
+	 * @param filename snapshot to open.
+	 * @throws IOException if the file cannot be read or is not a snapshot.
+	 */
+	GraphSnapshot ( String filename ) throws IOException	{
+		RandomAccessFile file = new RandomAccessFile ( filename, "r" );
+		try	{
+			FileChannel channel = file.getChannel();
+			long length = channel.size();
+			chunks = new MappedByteBuffer[(int)((length + CHUNK_MASK) >>> CHUNK_BITS)];
+			for ( int c = 0; c < chunks.length; c++ )	{
+				long start = (long)c << CHUNK_BITS;
+				chunks[c] = channel.map ( FileChannel.MapMode.READ_ONLY, start, Math.min ( CHUNK_MASK + 1, length - start ) );
+			}
+		}
+		finally	{
+			file.close();
+		}
+		if ( chunks.length == 0 || getLong ( 0 ) != MAGIC || getInt ( 8 ) != 1 )
+			throw new IOException ( "Not a graph snapshot: " + filename );
+		flags = getInt ( 12 );
+		vertices = getInt ( 16 );
+		movies = getInt ( 20 );
+		edges = getLong ( 24 );
+		slots = getInt ( 32 );
+		keyOffsets = getLong ( 40 );
+		keyBytes = getLong ( 48 );
+		hashTable = getLong ( 56 );
+		titleOffsets = getLong ( 64 );
+		titleBytes = getLong ( 72 );
+		movieDates = getLong ( 80 );
+		edgeOffsets = getLong ( 88 );
+		neighbors = getLong ( 96 );
+		edgeMovies = getLong ( 104 );
+		edgeYears = getLong ( 112 );
+		edgeWeights = getLong ( 120 );
+	}
+
+	private int getInt ( long pos )	{
+		return chunks[(int)(pos >>> CHUNK_BITS)].getInt ( (int)(pos & CHUNK_MASK) );
+	}
+
+	private long getLong ( long pos )	{
+		return chunks[(int)(pos >>> CHUNK_BITS)].getLong ( (int)(pos & CHUNK_MASK) );
+	}
+
+	private double getDouble ( long pos )	{
+		return chunks[(int)(pos >>> CHUNK_BITS)].getDouble ( (int)(pos & CHUNK_MASK) );
+	}
+
+	private byte getByte ( long pos )	{
+		return chunks[(int)(pos >>> CHUNK_BITS)].get ( (int)(pos & CHUNK_MASK) );
+	}
+
+	/**
+	 * Decodes a UTF-8 string from a string table.
+	 * @param offsets start of the table's offset array.
+	 * @param bytes start of the table's bytes.
+	 * @param index entry to decode.
+	 * @return String at that entry.
+	 */
+	private String string ( long offsets, long bytes, int index )	{
+		long from = getLong ( offsets + 8L * index );
+		long to = getLong ( offsets + 8L * (index + 1) );
+		byte[] b = new byte[(int)(to - from)];
+		for ( int x = 0; x < b.length; x++ )
+			b[x] = getByte ( bytes + from + x );
+		return new String ( b, StandardCharsets.UTF_8 );
+	}
+
+	/**
+	 * @return boolean true if the saved graph was directed.
+	 */
+	boolean isDirected()	{
+		return (flags & DIRECTED) != 0;
+	}
+
+	/**
+	 * @return int number of vertices.
+	 */
+	int numVertices()	{
+		return vertices;
+	}
+
+	int numEdges()	{
+		return (int)Math.min ( edges, Integer.MAX_VALUE );
+	}
+
+	/**
+	 * @param index vertex index.
+	 * @return String key of the vertex.
+	 */
+	String key ( int index )	{
+		return string ( keyOffsets, keyBytes, index );
+	}
+
+	/**
+	 * @param movie movie number.
+	 * @return String title of the movie.
+	 */
+	String title ( int movie )	{
+		return string ( titleOffsets, titleBytes, movie );
+	}
+
+	/**
+	 * @param movie movie number.
+	 * @return int date of the movie.
+	 */
+	int date ( int movie )	{
+		return getInt ( movieDates + 4L * movie );
+	}
+
+	/**
+	 * Finds a vertex through the saved hash table, comparing the key's bytes in place.
+	 * @param key key to look up.
+	 * @return int index of the vertex, or -1 if it is not in the snapshot.
+	 */
+	int find ( Object key )	{
+		if ( !(key instanceof String) || slots == 0 )	return -1;
+		byte[] b = ((String)key).getBytes ( StandardCharsets.UTF_8 );
+		int mask = slots - 1;
+		for ( int slot = mix ( key.hashCode() ) & mask; ; slot = (slot + 1) & mask )	{
+			int index = getInt ( hashTable + 4L * slot ) - 1;
+			if ( index < 0 )	return -1;
+			long from = getLong ( keyOffsets + 8L * index );
+			long to = getLong ( keyOffsets + 8L * (index + 1) );
+			if ( to - from != b.length )	continue;
+			int x = 0;
+			while ( x < b.length && getByte ( keyBytes + from + x ) == b[x] )
+				x++;
+			if ( x == b.length )	return index;
+		}
+	}
+
+	/**
+	 * Spreads the bits of a hash code, the same way VertexIndex does.
+	 */
+	private static int mix ( int h )	{
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	EdgeCursor cursor()	{
+		return new Cursor();
+	}
+
+	/**
+	 * Walks one row of the mapped neighbor array.
+	 */
+	private class Cursor extends EdgeCursor	{
+		//current edge and one past the last edge of the row
+		private long pos;
+		private long end;
+
+		void reset ( int vertex )	{
+			pos = getLong ( edgeOffsets + 8L * vertex ) - 1;
+			end = getLong ( edgeOffsets + 8L * (vertex + 1) );
+		}
+
+		int next()	{
+			if ( ++pos >= end )	return -1;
+			return getInt ( neighbors + 4L * pos );
+		}
+
+		double weight()	{
+			if ( (flags & WEIGHTED) == 0 )	return 1;
+			return getDouble ( edgeWeights + 8L * pos );
+		}
+
+		String movie()	{
+			int movie = getInt ( edgeMovies + 4L * pos );
+			return movie < 0 ? null : title ( movie );
+		}
+
+		int date()	{
+			return getInt ( edgeYears + 4L * pos );
+		}
+	}
+
+	/**
+	 * Writes a graph as a snapshot. Several edges from one vertex to the same neighbor, as a<br>
+	 * movie graph produces, are saved as one edge carrying the oldest movie, then the first<br>
+	 * title alphabetically, and the smallest weight.
+	 * @param filename file to write.
+	 * @param keys key of every vertex by index.
+	 * @param store edges of the graph.
+	 * @param directed true if the graph is directed.
+	 * @throws IOException if the file cannot be written.
+	 */
+	static void write ( String filename, Comparable[] keys, EdgeStore store, boolean directed ) throws IOException	{
+		int n = keys.length;
+		//pass one: pick the edges and number the movies
+		long[] rowStart = new long[n + 1];
+		IntList nbr = new IntList();
+		IntList mov = new IntList();
+		IntList yr = new IntList();
+		double[] wt = new double[16];
+		boolean weighted = false;
+		VertexIndex movieIndex = new VertexIndex();
+		IntList movieDate = new IntList();
+		ArrayList titles = new ArrayList();
+		int[] seen = new int[n];
+		int[] slotOf = new int[n];
+		Arrays.fill ( seen, -1 );
+		EdgeCursor edges = store.cursor();
+		for ( int x = 0; x < n; x++ )	{
+			rowStart[x] = nbr.size;
+			edges.reset ( x );
+			for ( int y = edges.next(); y >= 0; y = edges.next() )	{
+				String title = edges.movie();
+				int date = edges.date();
+				int movie = -1;
+				if ( title != null )	{
+					String mkey = title + "(" + date + ")";
+					movie = movieIndex.find ( mkey );
+					if ( movie < 0 )	{
+						movie = movieIndex.add ( mkey );
+						titles.add ( title );
+						movieDate.add ( date );
+					}
+				}
+				if ( edges.weight() != 1 )	weighted = true;
+				if ( seen[y] != x )	{
+					seen[y] = x;
+					slotOf[y] = nbr.size;
+					if ( nbr.size == wt.length )	wt = Arrays.copyOf ( wt, wt.length * 2 );
+					wt[nbr.size] = edges.weight();
+					nbr.add ( y );
+					mov.add ( movie );
+					yr.add ( date );
+					continue;
+				}
+				int slot = slotOf[y];
+				wt[slot] = Math.min ( wt[slot], edges.weight() );
+				int old = mov.data[slot];
+				if ( movie >= 0 && (old < 0 || date < yr.data[slot]
+						|| (date == yr.data[slot] && title.compareTo ( (String)titles.get ( old ) ) < 0)) )	{
+					mov.data[slot] = movie;
+					yr.data[slot] = date;
+				}
+			}
+		}
+		rowStart[n] = nbr.size;
+
+		byte[][] keyText = new byte[n][];
+		for ( int x = 0; x < n; x++ )
+			keyText[x] = keys[x].toString().getBytes ( StandardCharsets.UTF_8 );
+		byte[][] titleText = new byte[titles.size()][];
+		for ( int m = 0; m < titleText.length; m++ )
+			titleText[m] = ((String)titles.get ( m )).getBytes ( StandardCharsets.UTF_8 );
+		int hashSlots = 16;
+		while ( hashSlots < 2 * n )
+			hashSlots *= 2;
+		int[] table = new int[hashSlots];
+		for ( int x = 0; x < n; x++ )	{
+			int slot = mix ( keys[x].toString().hashCode() ) & (hashSlots - 1);
+			while ( table[slot] != 0 )
+				slot = (slot + 1) & (hashSlots - 1);
+			table[slot] = x + 1;
+		}
+
+		//lay out the sections, each starting on an eight byte boundary
+		long e = nbr.size;
+		long[] section = new long[11];
+		long at = HEADER;
+		section[0] = at;	at = align ( at + 8L * (n + 1) );
+		section[1] = at;	at = align ( at + total ( keyText ) );
+		section[2] = at;	at = align ( at + 4L * hashSlots );
+		section[3] = at;	at = align ( at + 8L * (titleText.length + 1) );
+		section[4] = at;	at = align ( at + total ( titleText ) );
+		section[5] = at;	at = align ( at + 4L * titleText.length );
+		section[6] = at;	at = align ( at + 8L * (n + 1) );
+		section[7] = at;	at = align ( at + 4L * e );
+		section[8] = at;	at = align ( at + 4L * e );
+		section[9] = at;	at = align ( at + 4L * e );
+		section[10] = at;	at = align ( at + (weighted ? 8L * e : 0) );
+
+		Output out = new Output ( filename );
+		try	{
+			out.writeLong ( MAGIC );
+			out.writeInt ( 1 );
+			out.writeInt ( (directed ? DIRECTED : 0) | (weighted ? WEIGHTED : 0) );
+			out.writeInt ( n );
+			out.writeInt ( titleText.length );
+			out.writeLong ( e );
+			out.writeInt ( hashSlots );
+			out.writeInt ( 0 );
+			for ( int s = 0; s < section.length; s++ )
+				out.writeLong ( section[s] );
+			out.padTo ( section[0] );
+			out.writeTable ( keyText );
+			out.padTo ( section[1] );
+			for ( int x = 0; x < n; x++ )
+				out.write ( keyText[x] );
+			out.padTo ( section[2] );
+			for ( int s = 0; s < hashSlots; s++ )
+				out.writeInt ( table[s] );
+			out.padTo ( section[3] );
+			out.writeTable ( titleText );
+			out.padTo ( section[4] );
+			for ( int m = 0; m < titleText.length; m++ )
+				out.write ( titleText[m] );
+			out.padTo ( section[5] );
+			for ( int m = 0; m < titleText.length; m++ )
+				out.writeInt ( movieDate.data[m] );
+			out.padTo ( section[6] );
+			for ( int x = 0; x <= n; x++ )
+				out.writeLong ( rowStart[x] );
+			out.padTo ( section[7] );
+			for ( int s = 0; s < e; s++ )
+				out.writeInt ( nbr.data[s] );
+			out.padTo ( section[8] );
+			for ( int s = 0; s < e; s++ )
+				out.writeInt ( mov.data[s] );
+			out.padTo ( section[9] );
+			for ( int s = 0; s < e; s++ )
+				out.writeInt ( yr.data[s] );
+			out.padTo ( section[10] );
+			if ( weighted )
+				for ( int s = 0; s < e; s++ )
+					out.writeDouble ( wt[s] );
+			out.padTo ( at );
+		}
+		finally	{
+			out.close();
+		}
+	}
+
+	private static long align ( long at )	{
+		return (at + 7) & ~7L;
+	}
+
+	private static long total ( byte[][] text )	{
+		long sum = 0;
+		for ( int x = 0; x < text.length; x++ )
+			sum += text[x].length;
+		return sum;
+	}
+
+	/**
+	 * Big-endian output that keeps count of the bytes written, for padding between sections.
+	 */
+	private static class Output extends DataOutputStream	{
+		private Counter counter;
+
+		Output ( String filename ) throws IOException	{
+			super ( new Counter ( new BufferedOutputStream ( new FileOutputStream ( filename ), 1 << 16 ) ) );
+			counter = (Counter)out;
+		}
+
+		/**
+		 * Writes zero bytes until the file reaches a position.
+		 */
+		void padTo ( long to ) throws IOException	{
+			while ( counter.written < to )
+				write ( 0 );
+		}
+
+		/**
+		 * Writes the offset array of a string table.
+		 */
+		void writeTable ( byte[][] text ) throws IOException	{
+			long offset = 0;
+			writeLong ( 0 );
+			for ( int x = 0; x < text.length; x++ )	{
+				offset += text[x].length;
+				writeLong ( offset );
+			}
+		}
+	}
+
+	/**
+	 * Counts every byte on its way to the file.
+	 */
+	private static class Counter extends FilterOutputStream	{
+		long written;
+
+		Counter ( OutputStream out )	{
+			super ( out );
+		}
+
+		public void write ( int b ) throws IOException	{
+			out.write ( b );
+			written++;
+		}
+
+		public void write ( byte[] b, int off, int len ) throws IOException	{
+			out.write ( b, off, len );
+			written += len;
+		}
+	}
+
+	/**
+	 * Growable list of ints used while laying out a snapshot.
+	 */
+	private static class IntList	{
+		int[] data = new int[16];
+		int size;
+
+		void add ( int value )	{
+			if ( size == data.length )
+				data = Arrays.copyOf ( data, size * 2 );
+			data[size++] = value;
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * Binary min-heap of vertex indices ordered by a key array, which also keeps where each<br>
+ * vertex sits so a vertex whose key drops can be moved up in place rather than added again.<br>
+ * Keys live in an array the caller owns and changes, and every array comes from the<br>
+ * QueryState the search borrowed, so a search allocates nothing but the heap itself.
+ */
+class IndexedHeap	{
+	//vertices in heap order, and the place of each vertex in it
+	private int[] heap;
+	private int[] at;
+	//key of each vertex, smallest first
+	private double[] key;
+	//number of vertices in the heap
+	private int count;
+	//most vertices the heap held at once
+	private int widest;
+
+	/**
+	 * Constructor, makes an empty heap over arrays the caller keeps.
+	 * @param heap room for every vertex.
+	 * @param at room for the place of every vertex.
+	 * @param key key of every vertex.
+	 */
+	IndexedHeap ( int[] heap, int[] at, double[] key )	{
+		this.heap = heap;
+		this.at = at;
+		this.key = key;
+	}
+
+	/**
+	 * @return boolean true if no vertex is waiting.
+	 */
+	boolean isEmpty()	{
+		return count == 0;
+	}
+
+	/**
+	 * @return int most vertices the heap has held at once.
+	 */
+	int widest()	{
+		return widest;
+	}
+
+	/**
+	 * Adds a vertex that is not in the heap, whose key is already set.
+	 * @param v vertex to add.
+	 */
+	void add ( int v )	{
+		heap[count] = v;
+		at[v] = count;
+		up ( count++ );
+		if ( count > widest )	widest = count;
+	}
+
+	/**
+	 * Moves a vertex up after its key was lowered.
+	 * @param v vertex in the heap.
+	 */
+	void decreased ( int v )	{
+		up ( at[v] );
+	}
+
+	/**
+	 * Removes the vertex with the smallest key.
+	 * @return int the vertex removed.
+	 */
+	int poll()	{
+		int v = heap[0];
+		if ( --count > 0 )	{
+			heap[0] = heap[count];
+			at[heap[0]] = 0;
+			down ( 0 );
+		}
+		return v;
+	}
+
+	/**
+	 * Private method for moving a heap entry toward the root until its parent is no larger.
+	 */
+	private void up ( int x )	{
+		int v = heap[x];
+		double k = key[v];
+		while ( x > 0 )	{
+			int p = heap[(x - 1) >>> 1];
+			if ( key[p] <= k )	break;
+			heap[x] = p;
+			at[p] = x;
+			x = (x - 1) >>> 1;
+		}
+		heap[x] = v;
+		at[v] = x;
+	}
+
+	/**
+	 * Private method for moving a heap entry toward the leaves until its children are no smaller.
+	 */
+	private void down ( int x )	{
+		int v = heap[x];
+		double k = key[v];
+		for ( int c = 2 * x + 1; c < count; c = 2 * x + 1 )	{
+			if ( c + 1 < count && key[heap[c + 1]] < key[heap[c]] )
+				c++;
+			int child = heap[c];
+			if ( key[child] >= k )	break;
+			heap[x] = child;
+			at[child] = x;
+			x = c;
+		}
+		heap[x] = v;
+		at[v] = x;
+	}
+}
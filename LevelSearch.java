@@ -0,0 +1,343 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Breadth-first search from one source to every vertex, one level at a time with each level<br>
+ * split across a ForkJoinPool. A level is searched top-down, expanding every frontier vertex<br>
+ * and claiming its unvisited neighbors in an atomic bitset, or bottom-up, where every<br>
+ * unvisited vertex looks for any neighbor in the frontier and stops at the first one. Once<br>
+ * the frontier holds a large share of the remaining edges bottom-up checks far fewer edges,<br>
+ * so the search switches to it then and back once the frontier shrinks again (Beamer's<br>
+ * direction-optimizing search). Bottom-up needs every edge to lead both ways, so graphs<br>
+ * holding one-way edges are always searched top-down. Degrees are counted once when the<br>
+ * search is made, so it must be made again whenever the edges change.
+ */
+class LevelSearch	{
+	//switch to bottom-up once the frontier has more than 1/ALPHA of the unexplored edges
+	private static final int ALPHA = 14;
+	//switch back to top-down once the frontier has fewer than 1/BETA of the vertices
+	private static final int BETA = 24;
+	//vertices each task handles before a level is split no further
+	private static final int GRAIN = 1024;
+	//edges to search
+	private EdgeStore store;
+	//number of vertex indices, and how many of them belong to vertices that were not removed
+	private int size;
+	private int live;
+	//edges leaving each vertex, and all of them added up
+	private int[] degree;
+	private long edges;
+	//true if every edge has its reverse, so bottom-up levels find the same distances
+	private boolean symmetric;
+
+	/**
+	 * Constructor, counts the edges of every vertex.
+	 * @param store edges to search.
+	 * @param size number of vertex indices, counting removed vertices.
+	 * @param directed true if edges only lead one way.
+	 */
+	LevelSearch ( EdgeStore store, int size, boolean directed )	{
+		this.store = store;
+		this.size = size;
+		live = size - store.numRemoved();
+		degree = new int[size];
+		EdgeCursor cursor = store.cursor();
+		//every edge hashed both ways round, the sums only match if each edge has its reverse
+		long forward = 0;
+		long backward = 0;
+		for ( int v = 0; v < size; v++ )	{
+			if ( store.isRemoved ( v ) )	continue;
+			cursor.reset ( v );
+			for ( int u = cursor.next(); u >= 0; u = cursor.next() )	{
+				degree[v]++;
+				forward += DistanceOracle.mix ( (long)v << 32 | u );
+				backward += DistanceOracle.mix ( (long)u << 32 | v );
+			}
+			edges += degree[v];
+		}
+		symmetric = !directed && forward == backward;
+	}
+
+	/**
+	 * Constructor, searches another store holding the same edges with the degrees already counted.
+	 * @param counted search whose degrees to share.
+	 * @param store edges to search.
+	 */
+	LevelSearch ( LevelSearch counted, EdgeStore store )	{
+		this.store = store;
+		size = counted.size;
+		live = counted.live;
+		degree = counted.degree;
+		edges = counted.edges;
+		symmetric = counted.symmetric;
+	}
+
+	/**
+	 * @return boolean true if every edge has its reverse.
+	 */
+	boolean symmetric()	{
+		return symmetric;
+	}
+
+	/**
+	 * Finds the distance of every vertex from a source.
+	 * @param source index of the vertex to start from.
+	 * @param pool threads to split each level across, null to search on the calling thread alone.
+	 * @param visits filled with the vertices reached and the widest frontier, may be null.
+	 * @return int[] number of edges from the source to each vertex index, -1 if unreachable.
+	 */
+	int[] run ( int source, ForkJoinPool pool, int[] visits )	{
+		int[] dist = new int[size];
+		Arrays.fill ( dist, -1 );
+		AtomicLongArray visited = new AtomicLongArray ( (size + 63) >>> 6 );
+		dist[source] = 0;
+		visited.set ( source >>> 6, 1L << source );
+		//the frontier as a queue for top-down levels, or as a bitset for bottom-up ones
+		int[] frontier = new int[] { source };
+		long[] bits = null;
+		int count = 1;
+		long frontierEdges = degree[source];
+		long unexplored = edges - degree[source];
+		int reached = 1;
+		int widest = 1;
+		//size of the frontier before this one, bottom-up only pays while the frontier grows
+		int last = 0;
+		for ( int level = 0; count > 0; level++ )	{
+			if ( bits == null && symmetric && count > last && frontierEdges > unexplored / ALPHA )
+				bits = bitset ( frontier, count );
+			else if ( bits != null && count < live / BETA )	{
+				frontier = queue ( bits, count );
+				bits = null;
+			}
+			Step step;
+			if ( bits == null )	{
+				//the next frontier cannot hold more vertices than there are edges leaving this one
+				int[] next = new int[(int)Math.min ( size, frontierEdges )];
+				step = new TopDown ( frontier, 0, count, next, visited, dist, level + 1, pool != null );
+				run ( step, pool, count );
+				frontier = ((TopDown)step).next;
+			}
+			else	{
+				step = new BottomUp ( bits, new long[bits.length], 0, bits.length, visited, dist, level + 1, pool != null );
+				run ( step, pool, size );
+				bits = ((BottomUp)step).next;
+			}
+			last = count;
+			count = step.found.get();
+			frontierEdges = step.foundEdges.get();
+			unexplored -= frontierEdges;
+			reached += count;
+			if ( count > widest )	widest = count;
+		}
+		if ( visits != null )	{
+			visits[0] = reached;
+			visits[1] = widest;
+		}
+		return dist;
+	}
+
+	/**
+	 * Private method for running one level, on the pool if it is worth splitting.
+	 */
+	private static void run ( Step step, ForkJoinPool pool, int work )	{
+		if ( pool == null || work <= GRAIN )
+			step.leaf();
+		else
+			pool.invoke ( step );
+	}
+
+	/**
+	 * Private method for turning a frontier queue into a bitset.
+	 */
+	private long[] bitset ( int[] frontier, int count )	{
+		long[] bits = new long[(size + 63) >>> 6];
+		for ( int x = 0; x < count; x++ )
+			bits[frontier[x] >>> 6] |= 1L << frontier[x];
+		return bits;
+	}
+
+	/**
+	 * Private method for turning a frontier bitset into a queue.
+	 */
+	private static int[] queue ( long[] bits, int count )	{
+		int[] frontier = new int[count];
+		int n = 0;
+		for ( int w = 0; w < bits.length; w++ )
+			for ( long word = bits[w]; word != 0; word &= word - 1 )
+				frontier[n++] = w << 6 | Long.numberOfTrailingZeros ( word );
+		return frontier;
+	}
+
+	/**
+	 * One level of the search over part of the graph, which halves itself across the pool<br>
+	 * until a part is small enough to search directly. Every part adds what it found to<br>
+	 * counters shared by the whole level.
+	 */
+	private abstract class Step extends RecursiveAction	{
+		//tasks are never serialized, RecursiveAction is only Serializable by inheritance
+		private static final long serialVersionUID = 1L;
+		//vertices found by the whole level and the edges leaving them
+		AtomicInteger found;
+		AtomicLong foundEdges;
+		AtomicLongArray visited;
+		int[] dist;
+		int level;
+		//true if the part may be split
+		boolean split;
+
+		/**
+		 * Searches the whole part on the calling thread.
+		 */
+		abstract void leaf();
+	}
+
+	/**
+	 * A top-down level over part of the frontier queue. Each part claims neighbors in the<br>
+	 * visited bitset, collects the ones it won, and copies them into the next queue at a<br>
+	 * place it reserves with one atomic add.
+	 */
+	private class TopDown extends Step	{
+		private static final long serialVersionUID = 1L;
+		private int[] frontier;
+		private int from;
+		private int to;
+		//the next frontier, shared by every part of the level and filled up to found
+		int[] next;
+
+		TopDown ( int[] frontier, int from, int to, int[] next, AtomicLongArray visited, int[] dist, int level, boolean split )	{
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+			this.next = next;
+			this.visited = visited;
+			this.dist = dist;
+			this.level = level;
+			this.split = split;
+			found = new AtomicInteger();
+			foundEdges = new AtomicLong();
+		}
+
+		private TopDown ( TopDown parent, int from, int to )	{
+			this ( parent.frontier, from, to, parent.next, parent.visited, parent.dist, parent.level, true );
+			found = parent.found;
+			foundEdges = parent.foundEdges;
+		}
+
+		protected void compute()	{
+			if ( split && to - from > GRAIN )	{
+				int middle = (from + to) >>> 1;
+				invokeAll ( new TopDown ( this, from, middle ), new TopDown ( this, middle, to ) );
+				return;
+			}
+			leaf();
+		}
+
+		void leaf()	{
+			EdgeCursor cursor = store.cursor();
+			int[] mine = new int[16];
+			int n = 0;
+			long sum = 0;
+			for ( int x = from; x < to; x++ )	{
+				cursor.reset ( frontier[x] );
+				for ( int v = cursor.next(); v >= 0; v = cursor.next() )	{
+					if ( !claim ( visited, v ) )	continue;
+					dist[v] = level;
+					if ( n == mine.length )
+						mine = Arrays.copyOf ( mine, n * 2 );
+					mine[n++] = v;
+					sum += degree[v];
+				}
+			}
+			if ( n == 0 )	return;
+			System.arraycopy ( mine, 0, next, found.getAndAdd ( n ), n );
+			foundEdges.addAndGet ( sum );
+		}
+	}
+
+	/**
+	 * A bottom-up level over a range of words of the bitsets. Each part owns its words of the<br>
+	 * next frontier and of the visited bitset, so it writes them without contention.
+	 */
+	private class BottomUp extends Step	{
+		private static final long serialVersionUID = 1L;
+		private long[] current;
+		//the next frontier, shared by every part of the level
+		long[] next;
+		private int from;
+		private int to;
+
+		BottomUp ( long[] current, long[] next, int from, int to, AtomicLongArray visited, int[] dist, int level, boolean split )	{
+			this.current = current;
+			this.next = next;
+			this.from = from;
+			this.to = to;
+			this.visited = visited;
+			this.dist = dist;
+			this.level = level;
+			this.split = split;
+			found = new AtomicInteger();
+			foundEdges = new AtomicLong();
+		}
+
+		private BottomUp ( BottomUp parent, int from, int to )	{
+			this ( parent.current, parent.next, from, to, parent.visited, parent.dist, parent.level, true );
+			found = parent.found;
+			foundEdges = parent.foundEdges;
+		}
+
+		protected void compute()	{
+			if ( split && (to - from) << 6 > GRAIN )	{
+				int middle = (from + to) >>> 1;
+				invokeAll ( new BottomUp ( this, from, middle ), new BottomUp ( this, middle, to ) );
+				return;
+			}
+			leaf();
+		}
+
+		void leaf()	{
+			EdgeCursor cursor = store.cursor();
+			int n = 0;
+			long sum = 0;
+			for ( int w = from; w < to; w++ )	{
+				long seen = visited.get ( w );
+				long word = 0;
+				int end = Math.min ( size, (w + 1) << 6 );
+				for ( int v = w << 6; v < end; v++ )	{
+					if ( (seen & 1L << v) != 0 || store.isRemoved ( v ) )	continue;
+					cursor.reset ( v );
+					for ( int u = cursor.next(); u >= 0; u = cursor.next() )	{
+						if ( (current[u >>> 6] & 1L << u) == 0 )	continue;
+						dist[v] = level;
+						word |= 1L << v;
+						n++;
+						sum += degree[v];
+						break;
+					}
+				}
+				if ( word == 0 )	continue;
+				next[w] = word;
+				visited.set ( w, seen | word );
+			}
+			found.addAndGet ( n );
+			foundEdges.addAndGet ( sum );
+		}
+	}
+
+	/**
+	 * Marks a vertex visited unless another part already has.
+	 * @param bits visited bitset.
+	 * @param v index of the vertex.
+	 * @return boolean true if this call marked it.
+	 */
+	private static boolean claim ( AtomicLongArray bits, int v )	{
+		int w = v >>> 6;
+		long mask = 1L << v;
+		for ( long old = bits.get ( w ); (old & mask) == 0; old = bits.get ( w ) )
+			if ( bits.compareAndSet ( w, old, old | mask ) )	return true;
+		return false;
+	}
+}
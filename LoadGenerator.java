@@ -0,0 +1,201 @@
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives a running GraphServer with many concurrent queries between random actors and reports<br>
+ * the query rate and latency percentiles. Actor names come from the server's /sample query.<br>
+ * Usage: java LoadGenerator [-c concurrency] [-d seconds] [-w warmup seconds] [-q bfs|path|neighbors] url
+ */
+public class LoadGenerator	{
+	//server to query, such as http://localhost:8080
+	private String url;
+	//most queries in flight at once
+	private int concurrency;
+	//query to send
+	private String query;
+	//actors to pick queries from
+	private String[] actors;
+	private HttpClient client;
+	//latency of every finished query in nanoseconds, while recording
+	private long[] latencies = new long[1 << 16];
+	private int count;
+	private boolean recording;
+	//queries answered with no path, and ones that failed outright
+	private AtomicLong missing = new AtomicLong();
+	private AtomicLong errors = new AtomicLong();
+
+	/**
+	 * Constructor, makes a new LoadGenerator.
+	 * @param url server to query.
+	 * @param concurrency most queries in flight at once.
+	 * @param query name of the query to send.
+	 */
+	public LoadGenerator ( String url, int concurrency, String query )	{
+		this.url = url.endsWith ( "/" ) ? url.substring ( 0, url.length() - 1 ) : url;
+		this.concurrency = concurrency;
+		this.query = query;
+		client = HttpClient.newBuilder().version ( HttpClient.Version.HTTP_1_1 ).build();
+	}
+
+	/**
+	 * Fetches actor names to query from the server.
+	 * @throws Exception if the server cannot be reached.
+	 */
+	public void sample() throws Exception	{
+		HttpResponse response = client.send ( HttpRequest.newBuilder ( URI.create ( url + "/sample?count=2000" ) ).build(),
+				HttpResponse.BodyHandlers.ofString() );
+		actors = strings ( (String)response.body() );
+		if ( actors.length == 0 )
+			throw new IllegalStateException ( "The server has no actors to query!" );
+	}
+
+	/**
+	 * Sends queries for a while, keeping as many in flight as the concurrency allows.
+	 * @param seconds how long to send queries for.
+	 * @param record true to keep the latencies.
+	 * @return double seconds spent.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	public double run ( double seconds, boolean record ) throws InterruptedException	{
+		synchronized ( this )	{
+			count = 0;
+			recording = record;
+		}
+		missing.set ( 0 );
+		errors.set ( 0 );
+		final Semaphore slots = new Semaphore ( concurrency );
+		Random random = new Random();
+		long start = System.nanoTime();
+		long stop = start + (long)(seconds * 1e9);
+		while ( System.nanoTime() < stop )	{
+			slots.acquire();
+			final long sent = System.nanoTime();
+			client.sendAsync ( HttpRequest.newBuilder ( URI.create ( url + request ( random ) ) ).build(), HttpResponse.BodyHandlers.ofString() )
+					.whenComplete ( ( response, failure ) ->	{
+						long nanos = System.nanoTime() - sent;
+						if ( failure != null || (response.statusCode() != 200 && response.statusCode() != 404) )
+							errors.incrementAndGet();
+						else	{
+							if ( response.statusCode() == 404 )	missing.incrementAndGet();
+							finished ( nanos );
+						}
+						slots.release();
+					} );
+		}
+		//wait for the queries still in flight
+		slots.acquire ( concurrency );
+		slots.release ( concurrency );
+		return (System.nanoTime() - start) / 1e9;
+	}
+
+	/**
+	 * @return String path and query string of one random query.
+	 */
+	private String request ( Random random )	{
+		String one = URLEncoder.encode ( actors[random.nextInt ( actors.length )], StandardCharsets.UTF_8 );
+		if ( query.equals ( "neighbors" ) )
+			return "/neighbors?actor=" + one;
+		String two = URLEncoder.encode ( actors[random.nextInt ( actors.length )], StandardCharsets.UTF_8 );
+		return "/" + query + "?from=" + one + "&to=" + two;
+	}
+
+	/**
+	 * Records the latency of one answered query.
+	 */
+	private synchronized void finished ( long nanos )	{
+		if ( !recording )	return;
+		if ( count == latencies.length )
+			latencies = Arrays.copyOf ( latencies, count * 2 );
+		latencies[count++] = nanos;
+	}
+
+	/**
+	 * Prints the rate and latency percentiles of the recorded queries.
+	 * @param seconds seconds spent recording.
+	 */
+	public synchronized void report ( double seconds )	{
+		Arrays.sort ( latencies, 0, count );
+		System.out.println ( "queries\t\t" + count + " (" + missing.get() + " with no path, " + errors.get() + " failed)" );
+		System.out.println ( "concurrency\t" + concurrency );
+		System.out.println ( "QPS\t\t" + String.format ( "%.1f", count / seconds ) );
+		if ( count == 0 )	return;
+		System.out.println ( "p50 ms\t\t" + String.format ( "%.3f", percentile ( 0.50 ) ) );
+		System.out.println ( "p99 ms\t\t" + String.format ( "%.3f", percentile ( 0.99 ) ) );
+		System.out.println ( "p999 ms\t\t" + String.format ( "%.3f", percentile ( 0.999 ) ) );
+		System.out.println ( "max ms\t\t" + String.format ( "%.3f", latencies[count - 1] / 1e6 ) );
+	}
+
+	/**
+	 * @param fraction fraction of the queries that were at least as fast.
+	 * @return double latency in milliseconds.
+	 */
+	private double percentile ( double fraction )	{
+		return latencies[Math.min ( count - 1, (int)(count * fraction) )] / 1e6;
+	}
+
+	/**
+	 * Pulls every string out of a flat JSON response such as {"actors":["a","b"]}.
+	 * @param json text of the response.
+	 * @return String[] of the strings after the first, which is the field name.
+	 */
+	private static String[] strings ( String json )	{
+		ArrayList list = new ArrayList();
+		for ( int x = 0; x < json.length(); x++ )	{
+			if ( json.charAt ( x ) != '"' )	continue;
+			StringBuilder text = new StringBuilder();
+			for ( x++; json.charAt ( x ) != '"'; x++ )	{
+				char c = json.charAt ( x );
+				if ( c == '\\' )	{
+					c = json.charAt ( ++x );
+					if ( c == 'u' )	{
+						c = (char)Integer.parseInt ( json.substring ( x + 1, x + 5 ), 16 );
+						x += 4;
+					}
+				}
+				text.append ( c );
+			}
+			list.add ( text.toString() );
+		}
+		if ( !list.isEmpty() )	list.remove ( 0 );
+		return (String[])list.toArray ( new String[list.size()] );
+	}
+
+	public static void main ( String[] args ) throws Exception	{
+		int concurrency = 1000;
+		double seconds = 10;
+		double warmup = 2;
+		String query = "bfs";
+		int x = 0;
+		for ( ; x < args.length - 1 && args[x].startsWith ( "-" ); x += 2 )	{
+			if ( args[x].equals ( "-c" ) )
+				concurrency = Integer.parseInt ( args[x + 1] );
+			else if ( args[x].equals ( "-d" ) )
+				seconds = Double.parseDouble ( args[x + 1] );
+			else if ( args[x].equals ( "-w" ) )
+				warmup = Double.parseDouble ( args[x + 1] );
+			else if ( args[x].equals ( "-q" ) )
+				query = args[x + 1];
+			else
+				break;
+		}
+		if ( x != args.length - 1 )	{
+			System.out.println ( "Usage: java LoadGenerator [-c concurrency] [-d seconds] [-w warmup seconds] [-q bfs|path|neighbors] url" );
+			System.exit ( 1 );
+		}
+		LoadGenerator load = new LoadGenerator ( args[x], concurrency, query );
+		load.sample();
+		if ( warmup > 0 )
+			load.run ( warmup, false );
+		load.report ( load.run ( seconds, true ) );
+		System.exit ( 0 );
+	}
+}
@@ -0,0 +1,308 @@
+import java.util.Arrays;
+
+/**
+ * Edge storage that keeps movies as vertices of their own. Each movie holds its cast and each<br>
+ * actor holds the movies it appeared in, so a cast of k actors costs k links instead of the<br>
+ * k(k-1)/2 edges of linking every pair. Co-star edges are produced on the fly by walking<br>
+ * actor to movie to actor. freeze hands out read-only views that share the cast and role<br>
+ * lists, which are only ever appended to in place, so no view sees a later change. Removed<br>
+ * actors are marked and skipped, and stay in the casts they were in until compact.
+ */
+class MovieIncidence extends EdgeStore	{
+	//starting capacity of the actor and movie tables
+	private static final int INITIAL_SIZE = 16;
+	//starting capacity of a cast or role list
+	private static final int INITIAL_LINKS = 4;
+	//title of each movie tagged with its date, the symbol id is the movie number
+	private SymbolTable titles;
+	//actor indices of the cast of each movie, in the order they were added
+	private int[][] casts;
+	//number of actors in each cast
+	private int[] castSize;
+	//movie numbers of each actor, in the order the actor joined them
+	private int[][] roles;
+	//number of movies of each actor
+	private int[] roleCount;
+	//true for each actor removed since the last compaction
+	private boolean[] removed;
+	//number of removed actors
+	private int numRemoved;
+	//number of actors
+	private int actors;
+	//number of actor to movie links
+	private int links;
+
+	/**
+	 * Constructor, makes an empty store.
+	 */
+	MovieIncidence()	{
+		clear();
+	}
+
+	/**
+	 * Private constructor for a view sharing the lists of another store.
+	 * @param source store to share.
+	 */
+	private MovieIncidence ( MovieIncidence source )	{
+		titles = source.titles.freeze();
+		casts = source.casts.clone();
+		castSize = source.castSize.clone();
+		roles = source.roles.clone();
+		roleCount = source.roleCount.clone();
+		removed = source.removed.clone();
+		numRemoved = source.numRemoved;
+		actors = source.actors;
+		links = source.links;
+	}
+
+	/**
+	 * Makes a view of the store as it is now. The view must only be read, and later changes<br>
+	 * to this store do not show up in it.
+	 * @return MovieIncidence view of the store.
+	 */
+	MovieIncidence freeze()	{
+		return new MovieIncidence ( this );
+	}
+
+	/**
+	 * Removes every actor and movie.
+	 */
+	void clear()	{
+		titles = new SymbolTable();
+		casts = new int[INITIAL_SIZE][];
+		castSize = new int[INITIAL_SIZE];
+		roles = new int[INITIAL_SIZE][];
+		roleCount = new int[INITIAL_SIZE];
+		removed = new boolean[INITIAL_SIZE];
+		numRemoved = 0;
+		actors = 0;
+		links = 0;
+	}
+
+	/**
+	 * Adds an actor with no movies.
+	 * @return int index of the new actor.
+	 */
+	int addActor()	{
+		if ( actors == roles.length )	{
+			roles = Arrays.copyOf ( roles, actors * 2 );
+			roleCount = Arrays.copyOf ( roleCount, actors * 2 );
+			removed = Arrays.copyOf ( removed, actors * 2 );
+		}
+		return actors++;
+	}
+
+	/**
+	 * Removes an actor from every cast by dropping its roles and marking it. The index stays<br>
+	 * taken, and the actor stays listed in its casts, until compact.
+	 * @param index actor to remove.
+	 */
+	void removeActor ( int index )	{
+		links -= roleCount[index];
+		roles[index] = null;
+		roleCount[index] = 0;
+		removed[index] = true;
+		numRemoved++;
+	}
+
+	/**
+	 * @param v index of an actor.
+	 * @return boolean true if the actor was removed since the last compaction.
+	 */
+	boolean isRemoved ( int v )	{
+		return removed[v];
+	}
+
+	/**
+	 * @return int number of removed actors still taking up an index.
+	 */
+	int numRemoved()	{
+		return numRemoved;
+	}
+
+	/**
+	 * Drops removed actors from the casts and renumbers the rest. Casts are rebuilt in new<br>
+	 * lists rather than in place, since views may share the old ones.
+	 * @param map new index of each actor, -1 for removed ones.
+	 * @param count number of actors that are left.
+	 */
+	void compact ( int[] map, int count )	{
+		int capacity = Math.max ( INITIAL_SIZE, count );
+		int[][] newRoles = new int[capacity][];
+		int[] newCount = new int[capacity];
+		for ( int a = 0; a < actors; a++ )	{
+			if ( map[a] < 0 )	continue;
+			newRoles[map[a]] = roles[a];
+			newCount[map[a]] = roleCount[a];
+		}
+		for ( int m = 0; m < titles.size(); m++ )	{
+			if ( casts[m] == null )	continue;
+			int[] cast = new int[casts[m].length];
+			int kept = 0;
+			for ( int i = 0; i < castSize[m]; i++ )	{
+				int actor = map[casts[m][i]];
+				if ( actor >= 0 )	cast[kept++] = actor;
+			}
+			casts[m] = cast;
+			castSize[m] = kept;
+		}
+		roles = newRoles;
+		roleCount = newCount;
+		removed = new boolean[capacity];
+		numRemoved = 0;
+		actors = count;
+	}
+
+	/**
+	 * Finds or creates a movie.
+	 * @param title title of the movie.
+	 * @param date date of the movie.
+	 * @return int movie number.
+	 */
+	int addMovie ( String title, int date )	{
+		int m = titles.add ( title, date );
+		if ( m == casts.length )	{
+			casts = Arrays.copyOf ( casts, m * 2 );
+			castSize = Arrays.copyOf ( castSize, m * 2 );
+		}
+		return m;
+	}
+
+	/**
+	 * Adds an actor to the cast of a movie, unless it is already there.
+	 * @param actor actor index.
+	 * @param movie movie number.
+	 * @return boolean false if the actor was already in the cast.
+	 */
+	boolean link ( int actor, int movie )	{
+		int[] list = roles[actor];
+		//casts are read in one movie at a time, so a repeat is almost always the last role
+		for ( int i = roleCount[actor] - 1; i >= 0; i-- )
+			if ( list[i] == movie )
+				return false;
+		roles[actor] = append ( roles[actor], roleCount[actor]++, movie );
+		casts[movie] = append ( casts[movie], castSize[movie]++, actor );
+		links++;
+		return true;
+	}
+
+	/**
+	 * @param movie movie number.
+	 * @return int index of an actor in the cast that was not removed, -1 if there is none.
+	 */
+	int member ( int movie )	{
+		for ( int i = 0; i < castSize[movie]; i++ )
+			if ( !removed[casts[movie][i]] )
+				return casts[movie][i];
+		return -1;
+	}
+
+	/**
+	 * Stores a value at the end of a list, growing the list if it is full.
+	 * @param list list to append to, may be null.
+	 * @param used number of values in the list.
+	 * @param value value to store.
+	 * @return int[] the list holding the value.
+	 */
+	private static int[] append ( int[] list, int used, int value )	{
+		if ( list == null )
+			list = new int[INITIAL_LINKS];
+		else if ( used == list.length )
+			list = Arrays.copyOf ( list, used * 2 );
+		list[used] = value;
+		return list;
+	}
+
+	/**
+	 * @param movie movie number.
+	 * @return String title of the movie.
+	 */
+	String title ( int movie )	{
+		return titles.get ( movie );
+	}
+
+	/**
+	 * @param movie movie number.
+	 * @return int date of the movie.
+	 */
+	int date ( int movie )	{
+		return titles.tag ( movie );
+	}
+
+	/**
+	 * @return int number of movies.
+	 */
+	int numMovies()	{
+		return titles.size();
+	}
+
+	/**
+	 * @return long bytes used by the stored titles.
+	 */
+	long titleFootprint()	{
+		return titles.footprint();
+	}
+
+	/**
+	 * @return int number of actor to movie links.
+	 */
+	int numEdges()	{
+		return links;
+	}
+
+	/**
+	 * @return EdgeCursor producing the co-star edges of an actor.
+	 */
+	EdgeCursor cursor()	{
+		return new Cursor();
+	}
+
+	/**
+	 * Walks the movies of an actor in the order it joined them and the cast of each movie<br>
+	 * in the order the cast was added, which is the order Graph would have created the edges.
+	 */
+	private class Cursor extends EdgeCursor	{
+		//actor being expanded
+		private int actor;
+		//position in the actor's movie list
+		private int role;
+		//movie at that position
+		private int movie;
+		//position in the movie's cast
+		private int member;
+
+		void reset ( int vertex )	{
+			actor = vertex;
+			role = -1;
+			movie = -1;
+			member = 0;
+		}
+
+		int next()	{
+			while ( true )	{
+				if ( movie >= 0 && member < castSize[movie] )	{
+					int costar = casts[movie][member++];
+					if ( costar != actor && (numRemoved == 0 || !removed[costar]) )	return costar;
+				}
+				else if ( ++role < roleCount[actor] )	{
+					movie = roles[actor][role];
+					member = 0;
+				}
+				else
+					return -1;
+			}
+		}
+
+		double weight()	{
+			return 1;
+		}
+
+		String movie()	{
+			return titles.get ( movie );
+		}
+
+		int date()	{
+			return titles.tag ( movie );
+		}
+	}
+}
@@ -0,0 +1,214 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads movies one at a time from a movie list input file. Each movie is a line holding<br>
+ * the title followed by the date in parentheses, then one actor per line, then a blank line.<br>
+ * The text is scanned straight out of a reused byte buffer and decoded as UTF-8 one line at<br>
+ * a time, so the only objects made per movie are the strings handed back in the MovieRecord.
+ */
+public class MovieListReader	{
+	//size of the read buffer, lines longer than this grow it
+	private static final int BUFFER_SIZE = 1 << 16;
+	//source of the bytes
+	private ReadableByteChannel channel;
+	//bytes read but not yet scanned live between pos and limit
+	private byte[] buf;
+	private ByteBuffer wrap;
+	private int pos;
+	private int limit;
+	//true once the channel has no more bytes
+	private boolean eof;
+	//start and end of the line found by readLine
+	private int lineStart;
+	private int lineEnd;
+	//reused for lines that are not plain ASCII
+	private CharsetDecoder decoder;
+	private CharBuffer chars;
+	//reused while collecting a cast
+	private String[] actors;
+
+	/**
+	 * Constructor, reads movies from a channel.
+	 * @param channel source of the bytes.
+	 */
+	public MovieListReader ( ReadableByteChannel channel )	{
+		this.channel = channel;
+		buf = new byte[BUFFER_SIZE];
+		wrap = ByteBuffer.wrap ( buf );
+		decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput ( CodingErrorAction.REPLACE )
+				.onUnmappableCharacter ( CodingErrorAction.REPLACE );
+		chars = CharBuffer.allocate ( 256 );
+		actors = new String[64];
+	}
+
+	/**
+	 * Constructor, reads movies from a stream.
+	 * @param in source of the bytes.
+	 */
+	public MovieListReader ( InputStream in )	{
+		this ( Channels.newChannel ( in ) );
+	}
+
+	/**
+	 * Opens a movie list by name. "-" reads standard input and names ending in ".gz" are unzipped.
+	 * @param filename name of the file to read.
+	 * @return MovieListReader over the file.
+	 * @throws IOException if the file cannot be opened.
+	 */
+	public static MovieListReader open ( String filename ) throws IOException	{
+		InputStream in;
+		if ( filename.equals ( "-" ) )
+			in = System.in;
+		else
+			in = new FileInputStream ( filename );
+		if ( filename.endsWith ( ".gz" ) )
+			in = new GZIPInputStream ( in, BUFFER_SIZE );
+		return new MovieListReader ( in );
+	}
+
+	/**
+	 * Reads the next movie.
+	 * @return MovieRecord of the next movie, or null at the end of the input.
+	 * @throws IOException if the input cannot be read.
+	 */
+	public MovieRecord next() throws IOException	{
+		//skip blank lines between movies
+		do	{
+			if ( !readLine() )	return null;
+		} while ( lineEnd == lineStart );
+
+		//split the date off the movie name, makes for easier tie breaking.
+		String title;
+		int year = 0;
+		int end = lineEnd;
+		while ( end > lineStart && (buf[end - 1] & 0xff) <= ' ' )
+			end--;
+		int open = end - 6;
+		if ( open >= lineStart && buf[open] == '(' && buf[end - 1] == ')' && isYear ( open + 1 ) )	{
+			for ( int x = open + 1; x < open + 5; x++ )
+				year = year * 10 + buf[x] - '0';
+			end = open;
+			while ( end > lineStart && (buf[end - 1] & 0xff) <= ' ' )
+				end--;
+		}
+		title = decode ( lineStart, end );
+
+		//get all the actors in a usable form
+		int count = 0;
+		while ( readLine() && lineEnd != lineStart )	{
+			if ( count == actors.length )
+				actors = Arrays.copyOf ( actors, count * 2 );
+			actors[count++] = decode ( lineStart, lineEnd );
+		}
+		return new MovieRecord ( title, year, Arrays.copyOf ( actors, count ) );
+	}
+
+	/**
+	 * @param at position of the first digit.
+	 * @return boolean true if the four bytes at a position are digits.
+	 */
+	private boolean isYear ( int at )	{
+		for ( int x = at; x < at + 4; x++ )
+			if ( buf[x] < '0' || buf[x] > '9' )
+				return false;
+		return true;
+	}
+
+	/**
+	 * Finds the next line in the buffer, refilling it from the channel as needed. The line<br>
+	 * is left between lineStart and lineEnd without its line terminator.
+	 * @return boolean false if there are no more lines.
+	 * @throws IOException if the input cannot be read.
+	 */
+	private boolean readLine() throws IOException	{
+		int scan = pos;
+		while ( true )	{
+			for ( ; scan < limit; scan++ )	{
+				if ( buf[scan] == '\n' )	{
+					lineStart = pos;
+					lineEnd = scan > pos && buf[scan - 1] == '\r' ? scan - 1 : scan;
+					pos = scan + 1;
+					return true;
+				}
+			}
+			if ( eof )	{
+				if ( pos == limit )	return false;
+				//last line without a terminator
+				lineStart = pos;
+				lineEnd = limit > pos && buf[limit - 1] == '\r' ? limit - 1 : limit;
+				pos = limit;
+				return true;
+			}
+			//keep the partial line and read more behind it
+			scan -= pos;
+			fill();
+		}
+	}
+
+	/**
+	 * Moves the unscanned bytes to the front of the buffer and reads more after them.
+	 * @throws IOException if the input cannot be read.
+	 */
+	private void fill() throws IOException	{
+		int kept = limit - pos;
+		if ( kept == buf.length )	{
+			buf = Arrays.copyOf ( buf, buf.length * 2 );
+			wrap = ByteBuffer.wrap ( buf );
+		}
+		else
+			System.arraycopy ( buf, pos, buf, 0, kept );
+		pos = 0;
+		limit = kept;
+		wrap.clear();
+		wrap.position ( limit );
+		int n = channel.read ( wrap );
+		while ( n == 0 )
+			n = channel.read ( wrap );
+		if ( n < 0 )
+			eof = true;
+		else
+			limit += n;
+	}
+
+	/**
+	 * Turns a run of UTF-8 bytes into a String, skipping the decoder for plain ASCII.
+	 * @param from first byte.
+	 * @param to one past the last byte.
+	 * @return String of the decoded text.
+	 */
+	private String decode ( int from, int to )	{
+		boolean ascii = true;
+		for ( int x = from; x < to && ascii; x++ )
+			ascii = buf[x] >= 0;
+		if ( ascii )
+			return new String ( buf, from, to - from, StandardCharsets.ISO_8859_1 );
+		if ( chars.capacity() < to - from )
+			chars = CharBuffer.allocate ( to - from );
+		chars.clear();
+		decoder.reset();
+		wrap.limit ( to );
+		wrap.position ( from );
+		decoder.decode ( wrap, chars, true );
+		decoder.flush ( chars );
+		chars.flip();
+		return chars.toString();
+	}
+
+	/**
+	 * Closes the underlying channel.
+	 * @throws IOException if the channel cannot be closed.
+	 */
+	public void close() throws IOException	{
+		channel.close();
+	}
+}
@@ -0,0 +1,150 @@
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * Loads movie list input files into a Graph with parsing spread across several threads.<br>
+ * Parser threads each read one file at a time and hand finished movies to a bounded queue<br>
+ * for that file. The calling thread is the only one that touches the graph, and it drains<br>
+ * the queues in file order, so the graph comes out exactly as if the files were read one<br>
+ * after another. The whole batch is committed at the end, so queries working on the graph's<br>
+ * view see either none of it or all of it. A graph that is read-only is left as it is.
+ */
+public class MoviePipeline	{
+	//marks the end of a file in its queue
+	private static final MovieRecord END = new MovieRecord ( null, 0, null );
+	//graph being filled
+	private Graph graph;
+	//number of parser threads
+	private int workers;
+	//most movies a file may have parsed ahead of the graph
+	private int capacity;
+
+	/**
+	 * Constructor, uses one parser thread per processor.
+	 * @param graph graph to fill.
+	 */
+	public MoviePipeline ( Graph graph )	{
+		this ( graph, Runtime.getRuntime().availableProcessors(), 1024 );
+	}
+
+	/**
+	 * Constructor, makes a new MoviePipeline.
+	 * @param graph graph to fill.
+	 * @param workers number of parser threads.
+	 * @param capacity most movies a file may have parsed ahead of the graph.
+	 */
+	public MoviePipeline ( Graph graph, int workers, int capacity )	{
+		this.graph = graph;
+		this.workers = Math.max ( 1, workers );
+		this.capacity = Math.max ( 1, capacity );
+	}
+
+	/**
+	 * Parses and inserts all data from a list of input files, commits the graph, then prints<br>
+	 * the throughput and how many edges changed.
+	 * @param files names of the files to read.
+	 */
+	public void load ( String[] files )	{
+		if ( graph.isReadOnly() )	{
+			System.out.println ( "***Cannot load into a read-only snapshot or view!" );
+			return;
+		}
+		ExecutorService parsers = Executors.newFixedThreadPool ( workers );
+		BlockingQueue[] queues = new BlockingQueue[files.length];
+		//tasks start in file order, so the file being drained always has a parser
+		for ( int f = 0; f < files.length; f++ )	{
+			queues[f] = new ArrayBlockingQueue ( capacity );
+			parsers.execute ( new Parser ( files[f], f, files.length, queues[f] ) );
+		}
+		long start = System.nanoTime();
+		long timer = GraphMetrics.start();
+		int edges = graph.numEdges();
+		int movies = 0;
+		int[] pairs = new int[3];
+		try	{
+			for ( int f = 0; f < files.length; f++ )	{
+				for ( Object item = queues[f].take(); item != END; item = queues[f].take() )	{
+					MovieRecord movie = (MovieRecord)item;
+					int[] counts = graph.addMovie ( movie.getTitle(), movie.getYear(), movie.getCast() );
+					for ( int x = 0; x < pairs.length; x++ )
+						pairs[x] += counts[x];
+					movies++;
+				}
+			}
+		}
+		catch ( GraphException exception )	{
+			//the movies already added are kept and committed
+			System.out.println ( "Loading stopped: " + exception.getMessage() );
+		}
+		catch ( InterruptedException exception )	{
+			Thread.currentThread().interrupt();
+			System.out.println ( "Loading was interrupted." );
+		}
+		finally	{
+			parsers.shutdownNow();
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		long publish = System.nanoTime();
+		graph.commit();
+		publish = System.nanoTime() - publish;
+		GraphMetrics.time ( GraphMetrics.LOAD, timer );
+		edges = graph.numEdges() - edges;
+		System.out.println ( "***Loaded " + movies + " movies and " + edges + " edges in "
+				+ String.format ( "%.2f", seconds ) + "s (" + (long)(movies / seconds) + " movies/sec, "
+				+ (long)(edges / seconds) + " edges/sec)" );
+		System.out.println ( "***" + pairs[Graph.INSERTED] + " pairs inserted, " + pairs[Graph.REPLACED] + " replaced by older movies, "
+				+ pairs[Graph.SKIPPED] + " skipped" );
+		System.out.println ( "***Update took " + String.format ( "%.2f", seconds + publish / 1e9 ) + "s, "
+				+ (pairs[Graph.INSERTED] + pairs[Graph.REPLACED]) + " edges changed, published " + graph.numVertices()
+				+ " vertecies in " + String.format ( "%.2f", publish / 1e6 ) + "ms" );
+	}
+
+	/**
+	 * Reads one file into its queue, always finishing the queue with END unless load cancelled it.
+	 */
+	private static class Parser implements Runnable	{
+		private String filename;
+		private int filenum;
+		private int len;
+		private BlockingQueue queue;
+
+		Parser ( String filename, int filenum, int len, BlockingQueue queue )	{
+			this.filename = filename;
+			this.filenum = filenum;
+			this.len = len;
+			this.queue = queue;
+		}
+
+		public void run()	{
+			MovieListReader read = null;
+			//a parser interrupted by load giving up has no one waiting for its END
+			boolean cancelled = false;
+			try	{
+				System.out.println ( "***Reading from file: " + filename + " (" + (filenum + 1) + "/" + len + ")" );
+				read = MovieListReader.open ( filename );
+				for ( MovieRecord movie = read.next(); movie != null; movie = read.next() )
+					queue.put ( movie );
+			}
+			catch ( IOException exception )	{
+				System.out.println ( "Error reading the file: " + filename );
+				exception.printStackTrace();
+			}
+			catch ( InterruptedException exception )	{
+				cancelled = true;
+			}
+			finally	{
+				try	{
+					if ( read != null )	read.close();
+				}
+				catch ( IOException exception )	{}
+				//even a parser that failed some other way ends its queue, so load moves on to the next file
+				if ( !cancelled )	{
+					try	{
+						queue.put ( END );
+					}
+					catch ( InterruptedException exception )	{}
+				}
+			}
+		}
+	}
+}
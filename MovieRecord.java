@@ -0,0 +1,44 @@
+/**
+ * One movie read from a movie list input file: its title, release year and cast.
+ */
+public class MovieRecord	{
+	//title of the movie without the date
+	private String title;
+	//four digit release year, 0 if the input had none
+	private int year;
+	//actors in the order they were listed
+	private String[] cast;
+
+	/**
+	 * Constructor, makes a new MovieRecord.
+	 * @param title title of the movie.
+	 * @param year release year of the movie, 0 if unknown.
+	 * @param cast actors in the movie.
+	 */
+	public MovieRecord ( String title, int year, String[] cast )	{
+		this.title = title;
+		this.year = year;
+		this.cast = cast;
+	}
+
+	/**
+	 * @return String title of the movie.
+	 */
+	public String getTitle()	{
+		return title;
+	}
+
+	/**
+	 * @return int release year of the movie, 0 if unknown.
+	 */
+	public int getYear()	{
+		return year;
+	}
+
+	/**
+	 * @return String[] actors in the movie.
+	 */
+	public String[] getCast()	{
+		return cast;
+	}
+}
@@ -0,0 +1,272 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the answers of recent path queries so a Graph answers a repeated one without<br>
+ * searching, installed with Graph.setCache. Answers are kept by query, both keys and the<br>
+ * range of years, least recently used first, and the oldest are evicted once there are<br>
+ * more than a set number or their weight, one per vertex they hold, passes a set total.<br>
+ * Every answer is stamped with the version of the graph it was found in, and every change<br>
+ * to a graph gives it a new version, so a change leaves the cache untouched and an answer<br>
+ * from before it is dropped the next time it is looked up. A source that keeps missing is<br>
+ * hot, and in an undirected graph the cache then keeps the whole breadth-first tree from<br>
+ * it, as the distance of every vertex, which answers bfs between the source and any other<br>
+ * vertex by walking back one level at a time. Trees are kept only while they fit beside<br>
+ * each other, so the hottest sources keep theirs. A graph and the views it commits share the cache.<br>
+ * All methods are synchronized, so any number of threads can search through one cache.
+ */
+public class QueryCache	{
+	//kinds of query
+	static final int BFS = 0;
+	static final int SHORTEST_PATH = 1;
+	private static final int TREE = 2;
+	//most answers kept, and most vertices all of them may hold
+	private int maxEntries;
+	private long maxWeight;
+	//misses from one source before its tree is kept, 0 to never keep trees
+	private int hotAfter;
+	//answers by query, least recently used first
+	private LinkedHashMap entries = new LinkedHashMap ( 16, 0.75f, true );
+	//misses of each recent source, the least recently missed forgotten past maxEntries
+	private LinkedHashMap misses;
+	//vertices held by every answer, and by the trees among them
+	private long weight;
+	private long trees;
+	//lookups answered, lookups not answered, and answers evicted to make room
+	private long hits;
+	private long missed;
+	private long evictions;
+
+	/**
+	 * Constructor, makes a cache that never keeps trees.
+	 * @param maxEntries most answers to keep.
+	 */
+	public QueryCache ( int maxEntries )	{
+		this ( maxEntries, Long.MAX_VALUE, 0 );
+	}
+
+	/**
+	 * Constructor, makes an empty cache.
+	 * @param maxEntries most answers and trees to keep.
+	 * @param maxWeight most vertices all of them may hold, where a tree holds every vertex of its graph.
+	 * @param hotAfter misses from one source before its tree is kept, 0 to never keep trees.
+	 */
+	public QueryCache ( final int maxEntries, long maxWeight, int hotAfter )	{
+		if ( maxEntries < 1 || maxWeight < 1 || hotAfter < 0 )
+			throw new IllegalArgumentException ( "Cache bounds must be positive!" );
+		this.maxEntries = maxEntries;
+		this.maxWeight = maxWeight;
+		this.hotAfter = hotAfter;
+		misses = new LinkedHashMap ( 16, 0.75f, true )	{
+			protected boolean removeEldestEntry ( Map.Entry eldest )	{
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * One query, which is the key of its answer.
+	 */
+	private static class Key	{
+		final int kind;
+		final Comparable one;
+		final Comparable two;
+		final int from;
+		final int to;
+
+		Key ( int kind, Comparable one, Comparable two, int from, int to )	{
+			this.kind = kind;
+			this.one = one;
+			this.two = two;
+			this.from = from;
+			this.to = to;
+		}
+
+		public boolean equals ( Object other )	{
+			if ( !(other instanceof Key) )	return false;
+			Key key = (Key)other;
+			return kind == key.kind && from == key.from && to == key.to && one.equals ( key.one )
+					&& ( two == null ? key.two == null : two.equals ( key.two ) );
+		}
+
+		public int hashCode()	{
+			int hash = 31 * kind + one.hashCode();
+			hash = 31 * hash + ( two == null ? 0 : two.hashCode() );
+			return 31 * (31 * hash + from) + to;
+		}
+	}
+
+	/**
+	 * An answer and the version of the graph it was found in.
+	 */
+	private static class Entry	{
+		final long version;
+		final Object value;
+		final long weight;
+
+		Entry ( long version, Object value, long weight )	{
+			this.version = version;
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * Looks up the path a query found, counting a hit or a miss.
+	 * @param version version of the graph asking.
+	 * @param kind BFS or SHORTEST_PATH.
+	 * @param one first key of the query.
+	 * @param two second key of the query.
+	 * @param from earliest year of a movie the query follows.
+	 * @param to latest year of a movie the query follows.
+	 * @return ArrayList the path, which the caller must not change, null if there is none from this version.
+	 */
+	synchronized ArrayList get ( long version, int kind, Comparable one, Comparable two, int from, int to )	{
+		ArrayList path = (ArrayList)find ( version, new Key ( kind, one, two, from, to ) );
+		if ( path != null )
+			hits++;
+		else
+			missed++;
+		return path;
+	}
+
+	/**
+	 * Keeps the path a query found, evicting the least recently used answers if there is no room.
+	 * @param version version of the graph the path was found in.
+	 * @param kind BFS or SHORTEST_PATH.
+	 * @param one first key of the query.
+	 * @param two second key of the query.
+	 * @param from earliest year of a movie the query follows.
+	 * @param to latest year of a movie the query follows.
+	 * @param path the path, which nothing may change once it is kept.
+	 */
+	synchronized void put ( long version, int kind, Comparable one, Comparable two, int from, int to, ArrayList path )	{
+		store ( new Key ( kind, one, two, from, to ), new Entry ( version, path, Math.max ( 1, path.size() ) ) );
+	}
+
+	/**
+	 * Counts a bfs from a source that missed, and tells whether the source has turned hot.<br>
+	 * A tree is only made room for beside the trees already kept, never by evicting one,<br>
+	 * so trees from more hot sources than fit do not keep replacing each other.
+	 * @param version version of the graph asking.
+	 * @param source key of the source.
+	 * @param size weight a tree from the source would have.
+	 * @return boolean true if the source has missed hotAfter times since its last tree and there is room for another.
+	 */
+	synchronized boolean hot ( long version, Comparable source, int size )	{
+		if ( hotAfter == 0 )	return false;
+		int[] count = (int[])misses.get ( source );
+		if ( count == null )	{
+			count = new int[1];
+			misses.put ( source, count );
+		}
+		return ++count[0] >= hotAfter && trees + size <= maxWeight && find ( version, new Key ( TREE, source, null, 0, 0 ) ) == null;
+	}
+
+	/**
+	 * Looks up the breadth-first tree from a source, counting a hit if there is one.
+	 * @param version version of the graph asking.
+	 * @param source key of the source.
+	 * @return int[] edges from the source to each vertex index, -1 if unreachable, null if there is no tree from this version.
+	 */
+	synchronized int[] tree ( long version, Comparable source )	{
+		int[] dist = (int[])find ( version, new Key ( TREE, source, null, 0, 0 ) );
+		if ( dist != null )	hits++;
+		return dist;
+	}
+
+	/**
+	 * Keeps the breadth-first tree from a source, evicting the least recently used answers if there is no room.
+	 * @param version version of the graph the tree was found in.
+	 * @param source key of the source.
+	 * @param dist edges from the source to each vertex index, as tree returns it.
+	 */
+	synchronized void putTree ( long version, Comparable source, int[] dist )	{
+		//a source whose tree is evicted has to turn hot again before it gets another
+		misses.remove ( source );
+		store ( new Key ( TREE, source, null, 0, 0 ), new Entry ( version, dist, Math.max ( 1, dist.length ) ) );
+	}
+
+	/**
+	 * Private method for the value kept under a key, dropping it if it is from another version.
+	 */
+	private Object find ( long version, Key key )	{
+		Entry entry = (Entry)entries.get ( key );
+		if ( entry == null )	return null;
+		if ( entry.version == version )	return entry.value;
+		entries.remove ( key );
+		drop ( entry );
+		return null;
+	}
+
+	/**
+	 * Private method for taking the weight of a value that was removed off the totals.
+	 */
+	private void drop ( Entry entry )	{
+		weight -= entry.weight;
+		if ( entry.value instanceof int[] )	trees -= entry.weight;
+	}
+
+	/**
+	 * Private method for keeping a value and evicting the least recently used ones past the bounds.
+	 */
+	private void store ( Key key, Entry entry )	{
+		if ( entry.weight > maxWeight )	return;
+		Entry old = (Entry)entries.put ( key, entry );
+		if ( old != null )	drop ( old );
+		weight += entry.weight;
+		if ( entry.value instanceof int[] )	trees += entry.weight;
+		for ( Iterator eldest = entries.values().iterator(); entries.size() > maxEntries || weight > maxWeight; )	{
+			drop ( (Entry)eldest.next() );
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Forgets every answer and tree, keeping the counts.
+	 */
+	public synchronized void clear()	{
+		entries.clear();
+		misses.clear();
+		weight = 0;
+		trees = 0;
+	}
+
+	/**
+	 * @return int number of answers and trees kept, counting ones from older versions not yet dropped.
+	 */
+	public synchronized int size()	{
+		return entries.size();
+	}
+
+	/**
+	 * @return long vertices held by every answer and tree kept.
+	 */
+	public synchronized long weight()	{
+		return weight;
+	}
+
+	/**
+	 * @return long lookups answered from the cache.
+	 */
+	public synchronized long hits()	{
+		return hits;
+	}
+
+	/**
+	 * @return long lookups the graph had to search for.
+	 */
+	public synchronized long misses()	{
+		return missed;
+	}
+
+	/**
+	 * @return long answers and trees evicted to stay within the bounds.
+	 */
+	public synchronized long evictions()	{
+		return evictions;
+	}
+}
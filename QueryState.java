@@ -0,0 +1,99 @@
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scratch space for one search over a Graph. A search borrows a QueryState with begin and<br>
+ * hands it back with end, and no two searches hold the same one, so they never share marks.<br>
+ * Idle states wait in a pool shared by every thread rather than in each thread, so a thread<br>
+ * made for a single request, such as a virtual thread or one of a short-lived ForkJoinPool,<br>
+ * reuses the arrays of the searches before it. Only as many states are made as searches run<br>
+ * at once, and at most a few per processor are kept once they finish. A vertex counts as<br>
+ * marked only if its mark holds the epoch of the current search, so starting a new search<br>
+ * is just moving to the next epoch.
+ */
+class QueryState	{
+	//most idle states kept, more are dropped as they are handed back
+	private static final int MAX_IDLE = 2 * Runtime.getRuntime().availableProcessors();
+	//idle states, and how many there are
+	private static final ConcurrentLinkedQueue IDLE = new ConcurrentLinkedQueue();
+	private static final AtomicInteger IDLE_COUNT = new AtomicInteger();
+	//epoch of the search in progress
+	int epoch;
+	//epoch each vertex was last marked in from each end, a vertex is marked if it holds epoch
+	int[] markF;
+	int[] markB;
+	//queues of vertices to expand from each end
+	int[] queueF;
+	int[] queueB;
+	//distance of each marked vertex from each end
+	int[] depthF;
+	int[] depthB;
+	//the vertex each marked vertex was reached from, from each end
+	int[] parentF;
+	int[] parentB;
+	//best known distance of each vertex reached by shortestPath
+	double[] weight;
+	//estimate of the weight left to the target of each vertex reached by an A* search
+	double[] estimate;
+	//key each vertex waits under in the heap of an A* search, its weight plus its estimate
+	double[] priority;
+
+	/**
+	 * Private constructor, only reached through begin.
+	 * @param capacity number of vertices the arrays must hold.
+	 */
+	private QueryState ( int capacity )	{
+		allocate ( capacity );
+	}
+
+	/**
+	 * Starts a new search with nothing marked, which must hand the state back with end.
+	 * @param size number of vertices in the graph being searched.
+	 * @return QueryState held by the search alone, large enough for the graph.
+	 */
+	static QueryState begin ( int size )	{
+		QueryState state = (QueryState)IDLE.poll();
+		if ( state == null )
+			state = new QueryState ( Math.max ( 16, size ) );
+		else
+			IDLE_COUNT.decrementAndGet();
+		if ( state.markF.length < size )
+			state.allocate ( Math.max ( size, state.markF.length * 2 ) );
+		else if ( ++state.epoch == Integer.MAX_VALUE )	{
+			Arrays.fill ( state.markF, 0 );
+			Arrays.fill ( state.markB, 0 );
+			state.epoch = 1;
+		}
+		return state;
+	}
+
+	/**
+	 * Hands the state back once its search is done, after which the search must not touch it.
+	 */
+	void end()	{
+		if ( IDLE_COUNT.incrementAndGet() <= MAX_IDLE )
+			IDLE.offer ( this );
+		else
+			IDLE_COUNT.decrementAndGet();
+	}
+
+	/**
+	 * Private method for replacing every array with a larger one.
+	 * @param capacity number of vertices the arrays must hold.
+	 */
+	private void allocate ( int capacity )	{
+		epoch = 1;
+		markF = new int[capacity];
+		markB = new int[capacity];
+		queueF = new int[capacity];
+		queueB = new int[capacity];
+		depthF = new int[capacity];
+		depthB = new int[capacity];
+		parentF = new int[capacity];
+		parentB = new int[capacity];
+		weight = new double[capacity];
+		estimate = new double[capacity];
+		priority = new double[capacity];
+	}
+}
@@ -0,0 +1,329 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Stores strings back to back in one byte arena and refers to each by an int id. Strings<br>
+ * whose characters all fit in a byte are kept as Latin-1, one byte per character, and the<br>
+ * rest as UTF-8. Each string carries an int tag, such as the date of a movie, and a string<br>
+ * with its tag is only stored once when added through add. Strings are turned back into<br>
+ * String objects only when asked for, and are compared against lookups in place. A table<br>
+ * handed out by freeze shares its arrays until the original next changes, which copies them.
+ */
+class SymbolTable	{
+	//starting capacity of the arena in bytes and of the symbol tables
+	private static final int INITIAL_BYTES = 256;
+	private static final int INITIAL_SYMBOLS = 16;
+	//marks a length whose bytes are UTF-8 rather than Latin-1
+	private static final int UTF8 = 0x80000000;
+	//encoded bytes of every symbol, back to back
+	private byte[] arena;
+	//number of arena bytes in use
+	private int used;
+	//first arena byte of each symbol
+	private int[] starts;
+	//number of bytes of each symbol, with UTF8 set if they are UTF-8
+	private int[] lengths;
+	//tag of each symbol
+	private int[] tags;
+	//String hash code of each symbol, mixed with its tag
+	private int[] hashes;
+	//number of symbols
+	private int count;
+	//slots holding a symbol id plus one, made on the first add so append only tables have none
+	private int[] table;
+	//true if the arrays are shared with a view made by freeze
+	private boolean shared;
+
+	/**
+	 * Constructor, makes an empty table.
+	 */
+	SymbolTable()	{
+		clear();
+	}
+
+	/**
+	 * Private constructor for a view sharing the arrays of another table.
+	 * @param source table to share.
+	 */
+	private SymbolTable ( SymbolTable source )	{
+		arena = source.arena;
+		used = source.used;
+		starts = source.starts;
+		lengths = source.lengths;
+		tags = source.tags;
+		hashes = source.hashes;
+		count = source.count;
+		table = source.table;
+	}
+
+	/**
+	 * Makes a view of the table as it is now. The view must only be read, and later changes<br>
+	 * to this table do not show up in it.
+	 * @return SymbolTable view of the table.
+	 */
+	SymbolTable freeze()	{
+		shared = true;
+		return new SymbolTable ( this );
+	}
+
+	/**
+	 * Private method for copying the arrays before the first change after a freeze.
+	 */
+	private void unshare()	{
+		if ( !shared )	return;
+		shared = false;
+		arena = arena.clone();
+		starts = starts.clone();
+		lengths = lengths.clone();
+		tags = tags.clone();
+		hashes = hashes.clone();
+		if ( table != null )
+			table = table.clone();
+	}
+
+	/**
+	 * Removes every symbol.
+	 */
+	void clear()	{
+		arena = new byte[INITIAL_BYTES];
+		used = 0;
+		starts = new int[INITIAL_SYMBOLS];
+		lengths = new int[INITIAL_SYMBOLS];
+		tags = new int[INITIAL_SYMBOLS];
+		hashes = new int[INITIAL_SYMBOLS];
+		count = 0;
+		table = null;
+		shared = false;
+	}
+
+	/**
+	 * @return int number of symbols.
+	 */
+	int size()	{
+		return count;
+	}
+
+	/**
+	 * Spreads the bits of a hash code the same way VertexIndex does.
+	 * @param h raw hash code.
+	 * @return int mixed hash code.
+	 */
+	private static int mix ( int h )	{
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @return int hash of a string with a tag.
+	 */
+	private static int hash ( String text, int tag )	{
+		return mix ( text.hashCode() * 31 + tag );
+	}
+
+	/**
+	 * Finds a string with a tag that was stored through add.
+	 * @param text string to look up.
+	 * @param tag tag it was stored with.
+	 * @return int id of the symbol, or -1 if there is none.
+	 */
+	int find ( String text, int tag )	{
+		if ( table == null )	return -1;
+		int h = hash ( text, tag );
+		int mask = table.length - 1;
+		for ( int slot = h & mask; table[slot] != 0; slot = (slot + 1) & mask )	{
+			int id = table[slot] - 1;
+			if ( hashes[id] == h && tags[id] == tag && equals ( id, text ) )
+				return id;
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds a string with a tag, storing it if it is not there yet.
+	 * @param text string to look up.
+	 * @param tag tag of the string.
+	 * @return int id of the symbol.
+	 */
+	int add ( String text, int tag )	{
+		if ( table == null )	{
+			table = new int[INITIAL_SYMBOLS * 2];
+			rehash();
+		}
+		int id = find ( text, tag );
+		if ( id >= 0 )	return id;
+		return append ( text, tag );
+	}
+
+	/**
+	 * Stores a string as a new symbol without looking for it first. Symbols stored this way<br>
+	 * can only be found by id, unless the table is also used through add.
+	 * @param text string to store.
+	 * @param tag tag of the string.
+	 * @return int id of the new symbol, which is the previous size of the table.
+	 */
+	int append ( String text, int tag )	{
+		unshare();
+		if ( count == starts.length )	{
+			starts = Arrays.copyOf ( starts, count * 2 );
+			lengths = Arrays.copyOf ( lengths, count * 2 );
+			tags = Arrays.copyOf ( tags, count * 2 );
+			hashes = Arrays.copyOf ( hashes, count * 2 );
+		}
+		boolean latin = true;
+		for ( int x = 0; x < text.length() && latin; x++ )
+			latin = text.charAt ( x ) < 0x100;
+		byte[] bytes = null;
+		int length = text.length();
+		if ( !latin )	{
+			bytes = text.getBytes ( StandardCharsets.UTF_8 );
+			length = bytes.length;
+		}
+		if ( used + length > arena.length )
+			arena = Arrays.copyOf ( arena, Math.max ( used + length, arena.length * 2 ) );
+		if ( latin )	{
+			for ( int x = 0; x < length; x++ )
+				arena[used + x] = (byte)text.charAt ( x );
+		}
+		else
+			System.arraycopy ( bytes, 0, arena, used, length );
+		starts[count] = used;
+		lengths[count] = latin ? length : length | UTF8;
+		tags[count] = tag;
+		hashes[count] = hash ( text, tag );
+		used += length;
+		count++;
+		if ( table != null )	{
+			//keep the load factor at or below one half
+			if ( count * 2 > table.length )
+				rehash();
+			else
+				place ( count - 1 );
+		}
+		return count - 1;
+	}
+
+	/**
+	 * @param id id of a symbol.
+	 * @return String the symbol decodes to.
+	 */
+	String get ( int id )	{
+		int length = lengths[id];
+		if ( (length & UTF8) != 0 )
+			return new String ( arena, starts[id], length & ~UTF8, StandardCharsets.UTF_8 );
+		return new String ( arena, starts[id], length, StandardCharsets.ISO_8859_1 );
+	}
+
+	/**
+	 * @param id id of a symbol.
+	 * @return int tag the symbol was stored with.
+	 */
+	int tag ( int id )	{
+		return tags[id];
+	}
+
+	/**
+	 * @param id id of a symbol.
+	 * @return int hash code of the symbol's string, the same as String.hashCode mixed with the tag.
+	 */
+	int hash ( int id )	{
+		return hashes[id];
+	}
+
+	/**
+	 * Compares a symbol with a string without decoding the symbol.
+	 * @param id id of a symbol.
+	 * @param text string to compare with.
+	 * @return boolean true if the symbol holds the same characters.
+	 */
+	boolean equals ( int id, String text )	{
+		int length = lengths[id];
+		int at = starts[id];
+		if ( (length & UTF8) == 0 )	{
+			if ( length != text.length() )	return false;
+			for ( int x = 0; x < length; x++ )
+				if ( (arena[at + x] & 0xff) != text.charAt ( x ) )
+					return false;
+			return true;
+		}
+		int end = at + (length & ~UTF8);
+		int x = 0;
+		//decode one code point at a time and match it against the next chars of text
+		while ( at < end )	{
+			int b = arena[at++] & 0xff;
+			int c;
+			if ( b < 0x80 )
+				c = b;
+			else if ( b < 0xe0 )
+				c = (b & 0x1f) << 6 | (arena[at++] & 0x3f);
+			else if ( b < 0xf0 )	{
+				c = (b & 0x0f) << 12 | (arena[at] & 0x3f) << 6 | (arena[at + 1] & 0x3f);
+				at += 2;
+			}
+			else	{
+				c = (b & 0x07) << 18 | (arena[at] & 0x3f) << 12 | (arena[at + 1] & 0x3f) << 6 | (arena[at + 2] & 0x3f);
+				at += 3;
+			}
+			if ( c >= 0x10000 )	{
+				if ( x + 1 >= text.length() || text.charAt ( x ) != Character.highSurrogate ( c )
+						|| text.charAt ( x + 1 ) != Character.lowSurrogate ( c ) )
+					return false;
+				x += 2;
+			}
+			else if ( x >= text.length() || text.charAt ( x++ ) != c )
+				return false;
+		}
+		return x == text.length();
+	}
+
+	/**
+	 * Compares a symbol with a string in String.compareTo order, decoding the symbol only if it is UTF-8.
+	 * @param id id of a symbol.
+	 * @param text string to compare with.
+	 * @return int negative, zero or positive as the symbol sorts before, with or after the string.
+	 */
+	int compareTo ( int id, String text )	{
+		int length = lengths[id];
+		if ( (length & UTF8) != 0 )
+			return get ( id ).compareTo ( text );
+		int at = starts[id];
+		int n = Math.min ( length, text.length() );
+		for ( int x = 0; x < n; x++ )	{
+			int diff = (arena[at + x] & 0xff) - text.charAt ( x );
+			if ( diff != 0 )	return diff;
+		}
+		return length - text.length();
+	}
+
+	/**
+	 * @return long bytes held by the arena and the per symbol tables.
+	 */
+	long footprint()	{
+		long bytes = arena.length + 4L * (starts.length + lengths.length + tags.length + hashes.length);
+		if ( table != null )
+			bytes += 4L * table.length;
+		return bytes;
+	}
+
+	/**
+	 * Stores an id in the first free slot of its probe sequence.
+	 * @param id id to store.
+	 */
+	private void place ( int id )	{
+		int mask = table.length - 1;
+		int slot = hashes[id] & mask;
+		while ( table[slot] != 0 )
+			slot = (slot + 1) & mask;
+		table[slot] = id + 1;
+	}
+
+	/**
+	 * Rebuilds the slot table from the symbols.
+	 */
+	private void rehash()	{
+		while ( count * 2 > table.length )
+			table = new int[table.length * 2];
+		Arrays.fill ( table, 0 );
+		for ( int x = 0; x < count; x++ )
+			place ( x );
+	}
+}
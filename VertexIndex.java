@@ -0,0 +1,252 @@
+import java.util.Arrays;
+
+/**
+ * Hash index from vertex keys to vertex indices, kept in step with the vertex list of a Graph.<br>
+ * Uses open addressing with linear probing over a primitive int table, so lookups neither<br>
+ * box the index nor walk the vertex list. Keys are matched with equals and hashCode, which<br>
+ * for the String keys the graph is built from agrees with compareTo. String keys are kept<br>
+ * encoded in a SymbolTable rather than as String objects and are decoded when asked for.<br>
+ * An index handed out by freeze shares its arrays until the original next changes.
+ */
+class VertexIndex	{
+	//starting number of slots, always a power of two
+	private static final int INITIAL_SLOTS = 16;
+	//slots holding a vertex index plus one, zero marks an empty slot
+	private int[] table;
+	//String key of each vertex by index, or an empty placeholder for other keys
+	private SymbolTable names;
+	//key of each vertex by index that is not a String, null for String keys
+	private Object[] others;
+	//cached hash of each key by index, saves rehashing the keys on growth
+	private int[] hashes;
+	//true for each key removed since the last compaction, kept out of the table when it grows
+	private boolean[] removed;
+	//number of keys in the index
+	private int count;
+	//true if the arrays are shared with a view made by freeze
+	private boolean shared;
+
+	/**
+	 * Constructor, makes an empty index.
+	 */
+	VertexIndex()	{
+		clear();
+	}
+
+	/**
+	 * Private constructor for a view sharing the arrays of another index.
+	 * @param source index to share.
+	 */
+	private VertexIndex ( VertexIndex source )	{
+		table = source.table;
+		names = source.names.freeze();
+		others = source.others;
+		hashes = source.hashes;
+		removed = source.removed;
+		count = source.count;
+	}
+
+	/**
+	 * Makes a view of the index as it is now. The view must only be read, and later changes<br>
+	 * to this index do not show up in it.
+	 * @return VertexIndex view of the index.
+	 */
+	VertexIndex freeze()	{
+		shared = true;
+		return new VertexIndex ( this );
+	}
+
+	/**
+	 * Private method for copying the arrays before the first change after a freeze.
+	 */
+	private void unshare()	{
+		if ( !shared )	return;
+		shared = false;
+		table = table.clone();
+		others = others.clone();
+		hashes = hashes.clone();
+		removed = removed.clone();
+	}
+
+	/**
+	 * Removes every key from the index.
+	 */
+	void clear()	{
+		table = new int[INITIAL_SLOTS];
+		names = new SymbolTable();
+		others = new Object[INITIAL_SLOTS];
+		hashes = new int[INITIAL_SLOTS];
+		removed = new boolean[INITIAL_SLOTS];
+		count = 0;
+		shared = false;
+	}
+
+	/**
+	 * @return int number of keys in the index.
+	 */
+	int size()	{
+		return count;
+	}
+
+	/**
+	 * Spreads the bits of a hash code so that keys with similar hashes land in different slots.
+	 * @param h raw hash code.
+	 * @return int mixed hash code.
+	 */
+	private static int mix ( int h )	{
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Finds the index of a key.
+	 * @param key key to look up.
+	 * @return int index of the key, or -1 if it is not in the index.
+	 */
+	int find ( Object key )	{
+		int h = mix ( key.hashCode() );
+		int mask = table.length - 1;
+		for ( int slot = h & mask; table[slot] != 0; slot = (slot + 1) & mask )	{
+			int index = table[slot] - 1;
+			if ( hashes[index] == h && matches ( index, key ) )
+				return index;
+		}
+		return -1;
+	}
+
+	/**
+	 * Private method for comparing the key at an index with a key being looked up.
+	 * @return boolean true if the keys are equal.
+	 */
+	private boolean matches ( int index, Object key )	{
+		if ( others[index] != null )
+			return others[index].equals ( key );
+		return key instanceof String && names.equals ( index, (String)key );
+	}
+
+	/**
+	 * Appends a key that is not yet in the index.
+	 * @param key key to add.
+	 * @return int index given to the key, which is the previous size of the index.
+	 */
+	int add ( Object key )	{
+		unshare();
+		if ( count == hashes.length )	{
+			others = Arrays.copyOf ( others, count * 2 );
+			hashes = Arrays.copyOf ( hashes, count * 2 );
+			removed = Arrays.copyOf ( removed, count * 2 );
+		}
+		int h = mix ( key.hashCode() );
+		if ( key instanceof String )
+			names.append ( (String)key, 0 );
+		else	{
+			names.append ( "", 0 );
+			others[count] = key;
+		}
+		hashes[count] = h;
+		count++;
+		//keep the load factor at or below one half
+		if ( count * 2 > table.length )	{
+			table = new int[table.length * 2];
+			rehash();
+		}
+		else
+			place ( count - 1, h );
+		return count - 1;
+	}
+
+	/**
+	 * Makes the key at an index impossible to find. The key keeps its index, and get still<br>
+	 * returns it, until compact. Later entries of the probe run are shifted back over the<br>
+	 * freed slot so no lookup stops short of them.
+	 * @param index index of the key to remove.
+	 */
+	void remove ( int index )	{
+		unshare();
+		int mask = table.length - 1;
+		int hole = hashes[index] & mask;
+		while ( table[hole] != index + 1 )
+			hole = (hole + 1) & mask;
+		for ( int slot = (hole + 1) & mask; table[slot] != 0; slot = (slot + 1) & mask )	{
+			int home = hashes[table[slot] - 1] & mask;
+			//an entry may fill the hole if the hole lies between its home slot and where it sits
+			if ( ((slot - home) & mask) >= ((slot - hole) & mask) )	{
+				table[hole] = table[slot];
+				hole = slot;
+			}
+		}
+		table[hole] = 0;
+		removed[index] = true;
+	}
+
+	/**
+	 * Drops the keys of removed vertices and renumbers the rest. Everything is rebuilt rather<br>
+	 * than changed in place, since views may share the old arrays.
+	 * @param map new index of each key, -1 for removed ones.
+	 * @param kept number of keys that are left.
+	 */
+	void compact ( int[] map, int kept )	{
+		SymbolTable oldNames = names;
+		Object[] oldOthers = others;
+		int[] oldHashes = hashes;
+		int capacity = INITIAL_SLOTS;
+		while ( capacity < kept )	capacity *= 2;
+		int slots = INITIAL_SLOTS;
+		while ( slots < kept * 2 )	slots *= 2;
+		names = new SymbolTable();
+		others = new Object[capacity];
+		hashes = new int[capacity];
+		removed = new boolean[capacity];
+		table = new int[slots];
+		for ( int x = 0; x < count; x++ )	{
+			int to = map[x];
+			if ( to < 0 )	continue;
+			names.append ( oldOthers[x] == null ? oldNames.get ( x ) : "", 0 );
+			others[to] = oldOthers[x];
+			hashes[to] = oldHashes[x];
+			place ( to, hashes[to] );
+		}
+		count = kept;
+		shared = false;
+	}
+
+	/**
+	 * @param index index of the key.
+	 * @return Object key stored at the index.
+	 */
+	Object get ( int index )	{
+		if ( others[index] != null )
+			return others[index];
+		return names.get ( index );
+	}
+
+	/**
+	 * @return long bytes used by the index and the encoded String keys.
+	 */
+	long footprint()	{
+		return 4L * (table.length + hashes.length + others.length) + names.footprint();
+	}
+
+	/**
+	 * Stores an index in the first free slot of its probe sequence.
+	 * @param index index to store.
+	 * @param h mixed hash of the key at that index.
+	 */
+	private void place ( int index, int h )	{
+		int mask = table.length - 1;
+		int slot = h & mask;
+		while ( table[slot] != 0 )
+			slot = (slot + 1) & mask;
+		table[slot] = index + 1;
+	}
+
+	/**
+	 * Rebuilds the slot table from the cached hashes.
+	 */
+	private void rehash()	{
+		Arrays.fill ( table, 0 );
+		for ( int x = 0; x < count; x++ )
+			if ( !removed[x] )
+				place ( x, hashes[x] );
+	}
+}
@@ -0,0 +1,146 @@
+import java.util.Arrays;
+
+/**
+ * The edges of each vertex sorted by the date of their movie, so a search limited to a range<br>
+ * of years finds the first edge in range with a binary search and stops at the first one<br>
+ * past it, instead of walking every edge and skipping the rest. A vertex is sorted the first<br>
+ * time a search expands it, and only vertices that searches reach are ever sorted. The rows<br>
+ * are copies, so the index must be dropped whenever the edges change.
+ */
+class YearIndex	{
+	//edges the rows are sorted from
+	private EdgeStore store;
+	//sorted edges of each vertex, null until a search first expands it
+	private Row[] rows;
+
+	/**
+	 * Constructor, makes an index with no vertex sorted yet.
+	 * @param store edges to sort.
+	 * @param size number of vertex indices.
+	 */
+	YearIndex ( EdgeStore store, int size )	{
+		this.store = store;
+		rows = new Row[size];
+	}
+
+	/**
+	 * The edges of one vertex by date. The fields are final, so a row sorted on one thread<br>
+	 * can be read on any other once it is stored.
+	 */
+	private static class Row	{
+		final int[] neighbors;
+		final int[] dates;
+		final double[] weights;
+
+		Row ( int[] neighbors, int[] dates, double[] weights )	{
+			this.neighbors = neighbors;
+			this.dates = dates;
+			this.weights = weights;
+		}
+	}
+
+	/**
+	 * Private method for reaching the sorted edges of a vertex, sorting them if no search has yet.<br>
+	 * Two searches that reach an unsorted vertex at once both sort it, which is harmless.
+	 * @param v index of a vertex.
+	 * @return Row of its edges, earliest first.
+	 */
+	private Row row ( int v )	{
+		Row row = rows[v];
+		if ( row != null )	return row;
+		EdgeCursor edges = store.cursor();
+		edges.reset ( v );
+		int count = 0;
+		int[] neighbors = new int[4];
+		int[] dates = new int[4];
+		double[] weights = new double[4];
+		for ( int u = edges.next(); u >= 0; u = edges.next() )	{
+			if ( count == neighbors.length )	{
+				neighbors = Arrays.copyOf ( neighbors, count * 2 );
+				dates = Arrays.copyOf ( dates, count * 2 );
+				weights = Arrays.copyOf ( weights, count * 2 );
+			}
+			neighbors[count] = u;
+			dates[count] = edges.date();
+			weights[count] = edges.weight();
+			count++;
+		}
+		//sort the dates with each edge's position riding along in the low bits
+		long[] order = new long[count];
+		for ( int i = 0; i < count; i++ )
+			order[i] = (long)dates[i] << 32 | i;
+		Arrays.sort ( order );
+		int[] sortedNeighbors = new int[count];
+		int[] sortedDates = new int[count];
+		double[] sortedWeights = new double[count];
+		for ( int i = 0; i < count; i++ )	{
+			int from = (int)order[i];
+			sortedNeighbors[i] = neighbors[from];
+			sortedDates[i] = dates[from];
+			sortedWeights[i] = weights[from];
+		}
+		row = new Row ( sortedNeighbors, sortedDates, sortedWeights );
+		rows[v] = row;
+		return row;
+	}
+
+	/**
+	 * @param from earliest date of an edge to walk.
+	 * @param to latest date of an edge to walk.
+	 * @return EdgeCursor over the edges dated from one year to another, both included.
+	 */
+	EdgeCursor cursor ( int from, int to )	{
+		return new Cursor ( from, to );
+	}
+
+	/**
+	 * Walks the edges of a vertex that fall in a range of dates. The index keeps no titles,<br>
+	 * so movie returns null, and Graph.getMovie names the movie of an edge instead.
+	 */
+	private class Cursor extends EdgeCursor	{
+		private int from;
+		private int to;
+		private Row row;
+		//next edge of the row to return, and the edge before it
+		private int at;
+		private int current;
+
+		Cursor ( int from, int to )	{
+			this.from = from;
+			this.to = to;
+		}
+
+		void reset ( int vertex )	{
+			row = row ( vertex );
+			//first edge dated from or later
+			int low = 0;
+			int high = row.dates.length;
+			while ( low < high )	{
+				int mid = (low + high) >>> 1;
+				if ( row.dates[mid] < from )
+					low = mid + 1;
+				else
+					high = mid;
+			}
+			at = low;
+		}
+
+		int next()	{
+			if ( at == row.dates.length || row.dates[at] > to )	return -1;
+			current = at++;
+			return row.neighbors[current];
+		}
+
+		double weight()	{
+			return row.weights[current];
+		}
+
+		String movie()	{
+			return null;
+		}
+
+		int date()	{
+			return row.dates[current];
+		}
+	}
+}